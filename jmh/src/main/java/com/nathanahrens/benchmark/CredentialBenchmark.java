@@ -0,0 +1,90 @@
+package com.nathanahrens.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pwsafe.lib.file.PwsFile;
+import org.pwsafe.lib.file.PwsFileFactory;
+import org.pwsafe.lib.file.PwsRecord;
+
+import com.nathanahrens.pwsafe.Credential;
+import com.nathanahrens.pwsafe.SafeWrapper;
+import com.nathanahrens.pwsafe.VaultCache;
+
+/**
+ * <p>Looking up credentials the way the clients do.</p>
+ * <p>{@link #getCredential()} measures lookups on a vault that is already unlocked (and cached by {@link VaultCache}),
+ * as a long running client does for each query. The <code>firstCredential</code> benchmarks measure a client that
+ * starts, unlocks the vault and needs one credential, loading every record or only the requested one.</p>
+ * @author nahrens
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class CredentialBenchmark {
+	@Param({ "100", "10000", "100000" })
+	public int records;
+
+	private String vault;
+	private SafeWrapper wrapper;
+	private int next;
+
+	@Setup
+	public void setup() throws Exception {
+		this.vault = VaultFixtures.getVault(this.records).getPath();
+		this.wrapper = new SafeWrapper(this.vault, VaultFixtures.getPassphrase());
+	}
+
+	@TearDown
+	public void tearDown() {
+		VaultCache.getInstance().clear();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3)
+	@Measurement(iterations = 5)
+	public Credential getCredential() {
+		int i = this.next;
+		this.next = (i + 1) % this.records;
+		return this.wrapper.getCredential(VaultFixtures.getGroup(i), VaultFixtures.getTitle(i));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 20)
+	public PwsRecord firstCredential() throws Exception {
+		return firstRecord(PwsFileFactory.loadFile(this.vault, VaultFixtures.getPassphrase()));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 20)
+	public PwsRecord firstCredentialLazily() throws Exception {
+		return firstRecord(PwsFileFactory.loadFileLazily(this.vault, VaultFixtures.getPassphrase()));
+	}
+
+	private PwsRecord firstRecord(PwsFile file) {
+		// The last record, so a lazy load has to skip over all the others
+		int i = this.records - 1;
+		PwsRecord rec = file.getRecord(VaultFixtures.getGroup(i), VaultFixtures.getTitle(i));
+		file.dispose();
+		return rec;
+	}
+}
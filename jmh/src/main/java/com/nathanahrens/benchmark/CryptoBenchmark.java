@@ -0,0 +1,109 @@
+package com.nathanahrens.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pwsafe.lib.Util;
+import org.pwsafe.lib.crypto.TwofishPws;
+
+/**
+ * <p>The cryptographic primitives of unlocking and reading a vault: stretching the passphrase and decrypting the
+ * records.</p>
+ * <p>2048 iterations is the minimum of the V3 format, 262144 a vault created by a recent Password Safe.
+ * {@link #stretchPassphraseBouncyCastle(Passphrase)} forces the BouncyCastle SHA-256, to compare with the JCA
+ * provider used by default.</p>
+ * @author nahrens
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CryptoBenchmark {
+	@State(Scope.Benchmark)
+	public static class Passphrase {
+		@Param({ "2048", "262144" })
+		public int iterations;
+
+		byte[] passphrase;
+		byte[] salt;
+
+		@Setup
+		public void setup() {
+			this.passphrase = VaultFixtures.PASSPHRASE.getBytes();
+			this.salt = new byte[32];
+			new Random(42).nextBytes(this.salt);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Data {
+		@Param({ "4096", "1048576" })
+		public int bytes;
+
+		byte[] key;
+		byte[] iv;
+		byte[] input;
+		byte[] output;
+
+		@Setup
+		public void setup() {
+			Random random = new Random(42);
+			this.key = new byte[32];
+			random.nextBytes(this.key);
+			this.iv = new byte[16];
+			random.nextBytes(this.iv);
+			this.input = new byte[this.bytes];
+			random.nextBytes(this.input);
+			this.output = new byte[this.bytes];
+		}
+	}
+
+	@Benchmark
+	public byte[] stretchPassphrase(Passphrase p) {
+		return Util.stretchPassphrase(p.passphrase, p.salt, p.iterations);
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Dorg.pwsafe.lib.crypto.sha256=bc")
+	public byte[] stretchPassphraseBouncyCastle(Passphrase p) {
+		return Util.stretchPassphrase(p.passphrase, p.salt, p.iterations);
+	}
+
+	/**
+	 * Decrypts into a preallocated buffer, as the record reader does.
+	 */
+	@Benchmark
+	public byte[] processCBC(Data d) {
+		TwofishPws twofish = new TwofishPws(d.key, false, d.iv);
+		twofish.processCBC(d.input, 0, d.output, 0, d.bytes);
+		return d.output;
+	}
+
+	/**
+	 * Decrypts a block at a time into new arrays, as the original record reader did.
+	 */
+	@Benchmark
+	public byte[] processCBCByBlock(Data d) {
+		TwofishPws twofish = new TwofishPws(d.key, false, d.iv);
+		byte[] block = new byte[16];
+		for (int i = 0; i < d.bytes; i += block.length) {
+			block = new byte[16];
+			System.arraycopy(d.input, i, block, 0, block.length);
+			System.arraycopy(twofish.processCBC(block), 0, d.output, i, block.length);
+		}
+		return d.output;
+	}
+}
@@ -0,0 +1,111 @@
+package com.nathanahrens.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nathanahrens.resultset.DataExportExcelWriter;
+
+/**
+ * <p>Peak heap used by the Excel export as the number of rows grows, streaming with the row window used by the
+ * clients, and building the whole workbook in memory (a window of 0) for comparison. The rows are generated as they
+ * are read, so the fixtures themselves take no heap.</p>
+ * <p>Before each export the heap is collected and the peak usage of the heap memory pools is reset. The peak used
+ * above the collected heap is reported as the <code>peakHeapBytes</code> counter next to the time. The peaks of the
+ * pools are summed, which overstates the peak a little as the pools need not peak at the same time. A streaming export
+ * should stay flat as the rows grow.</p>
+ * @author nahrens
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class ExcelHeapBenchmark {
+	private static final int COLUMNS = 8;
+
+	@Param({ "10000", "100000", "300000" })
+	public int rows;
+
+	@Param({ "1000", "0" })
+	public int rowWindow;
+
+	private ExportFixtures fixtures;
+	private File output;
+
+	/**
+	 * Peak heap of the last export, above the heap in use before it.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class PeakHeap {
+		private long baseline;
+		private long peak;
+
+		@Setup(Level.Invocation)
+		public void reset() {
+			System.gc();
+			long used = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					pool.resetPeakUsage();
+					used += pool.getUsage().getUsed();
+				}
+			}
+			this.baseline = used;
+		}
+
+		@TearDown(Level.Invocation)
+		public void record() {
+			long peakUsed = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					peakUsed += pool.getPeakUsage().getUsed();
+				}
+			}
+			this.peak = peakUsed - this.baseline;
+		}
+
+		public long peakHeapBytes() {
+			return this.peak;
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		this.fixtures = new ExportFixtures(COLUMNS, 0, false);
+		this.output = File.createTempFile("export", ".xlsx");
+		this.output.deleteOnExit();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.output.delete();
+	}
+
+	@Benchmark
+	public long saveExcel(PeakHeap heap) throws Exception {
+		return new DataExportExcelWriter(this.rowWindow).saveExcel(this.fixtures.newGeneratedResultSet(this.rows),
+				this.output.getPath(), false, null);
+	}
+}
@@ -0,0 +1,166 @@
+package com.nathanahrens.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nathanahrens.resultset.DataExportColumnarWriter;
+import com.nathanahrens.resultset.DataExportDelimitedWriter;
+import com.nathanahrens.resultset.DataExportExcelWriter;
+import com.nathanahrens.resultset.ResultSetUtil;
+
+/**
+ * <p>Exporting query results, see {@link ExportFixtures}.</p>
+ * <p>The Excel export streams with the row window used by the clients, so the time includes writing the compressed
+ * workbook to a temporary file. {@link ResultSetUtil#printResultSet(java.sql.ResultSet, String)} writes to the stdout
+ * file descriptor, which JMH passes on from the forked JVM, so the printed export runs the same writer with a channel
+ * that discards its output. {@link #printPerCell()} is the baseline for it: the loop that printed each cell with
+ * <code>System.out.print</code> before the delimited writer, printing to a stream set up as <code>System.out</code> is
+ * but discarding its output.</p>
+ * <p>The Excel and columnar exports report the size of the file they write as the <code>outputBytes</code> counter
+ * next to the time. Run with <code>-prof gc</code> to see the allocation per export, and see
+ * {@link ExcelHeapBenchmark} for the peak heap of the Excel export.</p>
+ * @author nahrens
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportBenchmark {
+	private static final int ROW_WINDOW = 1000;
+
+	@Param({ "8", "32" })
+	public int columns;
+
+	@Param({ "10000", "100000" })
+	public int rows;
+
+	@Param({ "false", "true" })
+	public boolean temporal;
+
+	private ExportFixtures fixtures;
+	private File output;
+	private File columnarOutput;
+
+	/**
+	 * Size of the last file written.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class OutputSize {
+		private long bytes;
+
+		public long outputBytes() {
+			return this.bytes;
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		this.fixtures = new ExportFixtures(this.columns, this.rows, this.temporal);
+		this.output = File.createTempFile("export", ".xlsx");
+		this.output.deleteOnExit();
+		this.columnarOutput = File.createTempFile("export", DataExportColumnarWriter.EXTENSION);
+		this.columnarOutput.deleteOnExit();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.output.delete();
+		this.columnarOutput.delete();
+	}
+
+	@Benchmark
+	public long saveExcel(OutputSize size) throws Exception {
+		long rows = new DataExportExcelWriter(ROW_WINDOW).saveExcel(this.fixtures.newResultSet(),
+				this.output.getPath(), true, "SELECT * FROM BENCHMARK");
+		size.bytes = this.output.length();
+		return rows;
+	}
+
+	@Benchmark
+	public long saveColumnar(OutputSize size) throws Exception {
+		long rows = new DataExportColumnarWriter().saveColumnar(this.fixtures.newResultSet(),
+				this.columnarOutput.getPath(), "SELECT * FROM BENCHMARK");
+		size.bytes = this.columnarOutput.length();
+		return rows;
+	}
+
+	@Benchmark
+	public long printResultSet() throws Exception {
+		// As ResultSetUtil.printResultSet
+		DataExportDelimitedWriter writer = new DataExportDelimitedWriter('|', Charset.defaultCharset());
+		writer.setLineSeparator(System.lineSeparator());
+		return writer.write(this.fixtures.newResultSet(), new WritableByteChannel() {
+			public int write(ByteBuffer src) {
+				int length = src.remaining();
+				src.position(src.limit());
+				return length;
+			}
+
+			public boolean isOpen() {
+				return true;
+			}
+
+			public void close() {
+			}
+		});
+	}
+
+	@Benchmark
+	public long printPerCell() throws Exception {
+		// System.out buffers 128 bytes and flushes on every line
+		PrintStream out = new PrintStream(new BufferedOutputStream(OutputStream.nullOutputStream(), 128), true);
+		ResultSet rs = this.fixtures.newResultSet();
+		String separator = "|";
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int colCount = rsmd.getColumnCount();
+
+		// As ResultSetUtil.printResultSet and printHeaders did, with a divider under the headers
+		for (int i = 1; i <= colCount; i++) {
+			out.print(rsmd.getColumnName(i) + separator);
+		}
+		out.println();
+		for (int i = 1; i <= colCount; i++) {
+			for (int j = 0; j < rsmd.getColumnName(i).length(); j++) {
+				out.print("-");
+			}
+			out.print(separator);
+		}
+		out.println();
+		long rows = 0;
+		while (rs.next()) {
+			for (int i = 1; i <= colCount; i++) {
+				out.print(rs.getString(i) + separator);
+			}
+			out.println();
+			rows++;
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,150 @@
+package com.nathanahrens.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Random;
+
+import com.nathanahrens.resultset.RowResultSet;
+import com.nathanahrens.resultset.RowResultSetMetaData;
+
+/**
+ * <p>Generates in memory query results for the export benchmarks, served by a {@link RowResultSet}, so the writers can
+ * be measured without a database.</p>
+ * <p>The columns cycle through the types of a typical extract, with the value classes a JDBC driver returns for them,
+ * and one value in twenty is null. A temporal extract has only DATE and TIMESTAMP columns. The values are generated
+ * from a fixed seed, so every run writes the same file.</p>
+ * @author nahrens
+ *
+ */
+public final class ExportFixtures {
+	private static final int[] MIXED_TYPES = { Types.INTEGER, Types.VARCHAR, Types.BIGINT, Types.DECIMAL,
+			Types.TIMESTAMP, Types.VARCHAR, Types.DOUBLE, Types.DATE };
+	private static final int[] TEMPORAL_TYPES = { Types.DATE, Types.TIMESTAMP };
+
+	/** 2020-01-01T00:00:00Z */
+	private static final long EPOCH_2020 = 1577836800000L;
+
+	private final RowResultSetMetaData rsmd;
+	private final int[] types;
+	private final Object[][] rows;
+
+	/**
+	 *
+	 * @param columns  Number of columns.
+	 * @param rows     Number of rows.
+	 * @param temporal Generate only DATE and TIMESTAMP columns.
+	 */
+	public ExportFixtures(int columns, int rows, boolean temporal) {
+		int[] mix = temporal ? TEMPORAL_TYPES : MIXED_TYPES;
+		String[] names = new String[columns];
+		int[] types = new int[columns];
+		String[] typeNames = new String[columns];
+		for (int i = 0; i < columns; i++) {
+			names[i] = "COL" + (i + 1);
+			types[i] = mix[i % mix.length];
+			typeNames[i] = typeName(types[i]);
+		}
+		this.rsmd = new RowResultSetMetaData(names, names, types, typeNames);
+		this.types = types;
+
+		Random random = new Random(42);
+		this.rows = new Object[rows][];
+		for (int r = 0; r < rows; r++) {
+			this.rows[r] = row(types, random);
+		}
+	}
+
+	private static Object[] row(int[] types, Random random) {
+		Object[] row = new Object[types.length];
+		for (int i = 0; i < types.length; i++) {
+			row[i] = random.nextInt(20) == 0 ? null : value(types[i], random);
+		}
+		return row;
+	}
+
+	/**
+	 *
+	 * @return ResultSet A new {@link ResultSet} over the generated rows.
+	 */
+	public ResultSet newResultSet() {
+		final Object[][] rows = this.rows;
+		return RowResultSet.create(this.rsmd, new RowResultSet.RowSource() {
+			private int next;
+
+			public Object[] nextRow() {
+				return this.next < rows.length ? rows[this.next++] : null;
+			}
+
+			public void close() {
+			}
+		});
+	}
+
+	/**
+	 * Generates the rows as they are read instead of serving the rows generated up front, so that the memory used
+	 * while reading does not depend on the number of rows. The rows start with the same values as the rows generated
+	 * up front.
+	 * @param rows Number of rows to generate.
+	 * @return ResultSet A new {@link ResultSet} over the rows, with the columns of these fixtures.
+	 */
+	public ResultSet newGeneratedResultSet(final int rows) {
+		final int[] types = this.types;
+		return RowResultSet.create(this.rsmd, new RowResultSet.RowSource() {
+			private final Random random = new Random(42);
+			private int next;
+
+			public Object[] nextRow() {
+				if (this.next == rows) {
+					return null;
+				}
+				this.next++;
+				return row(types, this.random);
+			}
+
+			public void close() {
+			}
+		});
+	}
+
+	private static Object value(int type, Random random) {
+		switch (type) {
+		case Types.INTEGER:
+			return random.nextInt(1000000);
+		case Types.BIGINT:
+			return random.nextLong() >>> 16;
+		case Types.DECIMAL:
+			return BigDecimal.valueOf(random.nextInt(100000000), 2);
+		case Types.DOUBLE:
+			return random.nextDouble() * 1000;
+		case Types.DATE:
+			return new java.sql.Date(EPOCH_2020 + random.nextInt(3650) * 86400000L);
+		case Types.TIMESTAMP:
+			Timestamp timestamp = new Timestamp(EPOCH_2020 + (random.nextLong() >>> 1) % (3650 * 86400000L));
+			timestamp.setNanos(random.nextInt(1000000000));
+			return timestamp;
+		default:
+			return "value " + Integer.toString(random.nextInt(), 36);
+		}
+	}
+
+	private static String typeName(int type) {
+		switch (type) {
+		case Types.INTEGER:
+			return "INTEGER";
+		case Types.BIGINT:
+			return "BIGINT";
+		case Types.DECIMAL:
+			return "NUMBER";
+		case Types.DOUBLE:
+			return "BINARY_DOUBLE";
+		case Types.DATE:
+			return "DATE";
+		case Types.TIMESTAMP:
+			return "TIMESTAMP";
+		default:
+			return "VARCHAR2";
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.nathanahrens.benchmark;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nathanahrens.metrics.QueryMetrics;
+import com.nathanahrens.resultset.RowResultSet;
+
+/**
+ * <p>Reading the rows of a result set with the typed getter of each column, as the column plan of
+ * {@link com.nathanahrens.resultset.DataExportExcelWriter} does, without writing them anywhere. The rows are served by
+ * a {@link RowResultSet} (cached, partitioned and pipelined results), and optionally through the result set
+ * {@link QueryMetrics#meter(ResultSet, String, String)} wraps them in while metrics are recorded.</p>
+ * <p>Run with <code>-prof gc</code>: <code>gc.alloc.rate.norm</code> divided by the number of rows is the allocation
+ * per row of the result sets themselves, apart from the DATE columns, which are read as a new {@link Timestamp}.</p>
+ * @author nahrens
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResultSetBenchmark {
+	private static final int COLUMNS = 8;
+
+	@Param({ "100000" })
+	public int rows;
+
+	@Param({ "false", "true" })
+	public boolean metered;
+
+	private ExportFixtures fixtures;
+
+	@Setup
+	public void setup() {
+		this.fixtures = new ExportFixtures(COLUMNS, this.rows, false);
+		QueryMetrics.getInstance().setFile(this.metered ? new File("benchmark-metrics.prom") : null);
+	}
+
+	@TearDown
+	public void tearDown() {
+		QueryMetrics.getInstance().setFile(null);
+		QueryMetrics.getInstance().clear();
+	}
+
+	@Benchmark
+	public long readTyped() throws SQLException {
+		ResultSet rs = QueryMetrics.getInstance().meter(this.fixtures.newResultSet(), "jdbc:benchmark", null);
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int[] types = new int[rsmd.getColumnCount()];
+		for (int i = 0; i < types.length; i++) {
+			types[i] = rsmd.getColumnType(i + 1);
+		}
+		long sum = 0;
+		while (rs.next()) {
+			for (int i = 1; i <= types.length; i++) {
+				switch (types[i - 1]) {
+				case Types.INTEGER:
+					sum += rs.getInt(i);
+					break;
+				case Types.BIGINT:
+					sum += rs.getLong(i);
+					break;
+				case Types.DECIMAL:
+				case Types.DOUBLE:
+					sum += (long) rs.getDouble(i);
+					break;
+				case Types.DATE:
+				case Types.TIMESTAMP:
+					Timestamp timestamp = rs.getTimestamp(i);
+					sum += timestamp == null ? 0 : timestamp.getNanos();
+					break;
+				default:
+					String value = rs.getString(i);
+					sum += value == null ? 0 : value.length();
+				}
+				if (rs.wasNull()) {
+					sum++;
+				}
+			}
+		}
+		rs.close();
+		return sum;
+	}
+}
@@ -0,0 +1,103 @@
+package com.nathanahrens.benchmark;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pwsafe.lib.file.PwsFieldTypeV3;
+import org.pwsafe.lib.file.PwsFile;
+import org.pwsafe.lib.file.PwsFileFactory;
+import org.pwsafe.lib.file.PwsRecord;
+
+/**
+ * <p>Loading vaults with {@link PwsFileFactory} and reading their records from the sealed, in memory copy.</p>
+ * <p>The load benchmarks include stretching the passphrase with the iterations of a new vault (see
+ * {@link CryptoBenchmark}), so the difference between the vault sizes is the cost of decrypting and parsing the
+ * records. {@link #loadFileSequential(Blackhole)} runs with a common pool of one thread, which disables the parallel
+ * decryption of V3 vaults, to compare with {@link #loadFile(Blackhole)} on a machine with several cores.</p>
+ * @author nahrens
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VaultBenchmark {
+	@Param({ "100", "10000", "100000" })
+	public int records;
+
+	private String vault;
+	private PwsFile loaded;
+	private int next;
+
+	@Setup
+	public void setup() throws Exception {
+		File file = VaultFixtures.getVault(this.records);
+		this.vault = file.getPath();
+		this.loaded = PwsFileFactory.loadFile(this.vault, VaultFixtures.getPassphrase());
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.loaded.dispose();
+	}
+
+	@Benchmark
+	public void loadFile(Blackhole bh) throws Exception {
+		PwsFile file = PwsFileFactory.loadFile(this.vault, VaultFixtures.getPassphrase());
+		bh.consume(file.getRecordCount());
+		file.dispose();
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Djava.util.concurrent.ForkJoinPool.common.parallelism=1")
+	public void loadFileSequential(Blackhole bh) throws Exception {
+		PwsFile file = PwsFileFactory.loadFile(this.vault, VaultFixtures.getPassphrase());
+		bh.consume(file.getRecordCount());
+		file.dispose();
+	}
+
+	@Benchmark
+	public void loadFileLazily(Blackhole bh) throws Exception {
+		PwsFile file = PwsFileFactory.loadFileLazily(this.vault, VaultFixtures.getPassphrase());
+		bh.consume(file.getRecordCount());
+		file.dispose();
+	}
+
+	/**
+	 * Looks up a record by group and title through the index, unsealing only that record.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public PwsRecord getRecord() {
+		int i = this.next;
+		this.next = (i + 1) % this.records;
+		return this.loaded.getRecord(VaultFixtures.getGroup(i), VaultFixtures.getTitle(i));
+	}
+
+	/**
+	 * Unseals every record, as exporting or searching a vault does.
+	 */
+	@Benchmark
+	public void iterateRecords(Blackhole bh) {
+		Iterator<? extends PwsRecord> iter = this.loaded.getRecords();
+		while (iter.hasNext()) {
+			bh.consume(iter.next().getField(PwsFieldTypeV3.PASSWORD));
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.nathanahrens.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.pwsafe.lib.file.PwsFieldTypeV3;
+import org.pwsafe.lib.file.PwsFile;
+import org.pwsafe.lib.file.PwsFileFactory;
+import org.pwsafe.lib.file.PwsFileStorage;
+import org.pwsafe.lib.file.PwsRecord;
+import org.pwsafe.lib.file.PwsStringUnicodeField;
+
+/**
+ * <p>Generates V3 vaults for the benchmarks, in a temporary directory that is removed when the JVM exits. Vaults are
+ * generated once per record count and JVM.</p>
+ * <p>Record <code>i</code> has title <code>t&lt;i&gt;</code>, username <code>user&lt;i&gt;</code> and password
+ * <code>pw&lt;i&gt;</code>. Every tenth record has no group, the others are in group <code>g&lt;i % 7&gt;</code>, and
+ * every fiftieth record has about 25 KB of notes, so the vaults resemble ones in use.</p>
+ * @author nahrens
+ *
+ */
+public final class VaultFixtures {
+	public static final String PASSPHRASE = "benchmark";
+
+	private static final Map<Integer, File> vaults = new HashMap<Integer, File>();
+	private static File directory;
+
+	private VaultFixtures() {
+	}
+
+	/**
+	 *
+	 * @param records Number of records in the vault.
+	 * @return File The vault, generated on first use.
+	 * @throws Exception When the vault can not be generated.
+	 */
+	public static synchronized File getVault(int records) throws Exception {
+		File vault = vaults.get(records);
+		if (vault == null) {
+			vault = new File(getDirectory(), "vault" + records + ".psafe3");
+			vault.deleteOnExit();
+			generate(vault, records);
+			vaults.put(records, vault);
+		}
+		return vault;
+	}
+
+	/**
+	 *
+	 * @return StringBuilder A new copy of the passphrase of the vaults (loading may clear it).
+	 */
+	public static StringBuilder getPassphrase() {
+		return new StringBuilder(PASSPHRASE);
+	}
+
+	/**
+	 *
+	 * @param i Number of the record.
+	 * @return String Group of the record, or null if it is not in a group.
+	 */
+	public static String getGroup(int i) {
+		return i % 10 == 0 ? null : "g" + (i % 7);
+	}
+
+	/**
+	 *
+	 * @param i Number of the record.
+	 * @return String Title of the record.
+	 */
+	public static String getTitle(int i) {
+		return "t" + i;
+	}
+
+	private static void generate(File vault, int records) throws Exception {
+		StringBuilder notes = new StringBuilder();
+		for (int k = 0; k < 2000; k++) {
+			notes.append("note line ").append(k).append('\n');
+		}
+
+		PwsFile file = PwsFileFactory.newFile();
+		file.setPassphrase(getPassphrase());
+		for (int i = 0; i < records; i++) {
+			PwsRecord rec = file.newRecord();
+			String group = getGroup(i);
+			if (group != null) {
+				rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.GROUP, group));
+			}
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.TITLE, getTitle(i)));
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.USERNAME, "user" + i));
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.PASSWORD, "pw" + i));
+			if (i % 50 == 0) {
+				rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.NOTES, notes.toString()));
+			}
+			file.add(rec);
+		}
+		file.setStorage(new PwsFileStorage(vault.getPath()));
+		file.save();
+		file.dispose();
+	}
+
+	private static File getDirectory() throws IOException {
+		if (directory == null) {
+			File temp = File.createTempFile("vaults", "");
+			if (!temp.delete() || !temp.mkdir()) {
+				throw new IOException("Unable to create directory " + temp);
+			}
+			temp.deleteOnExit();
+			directory = temp;
+		}
+		return directory;
+	}
+}
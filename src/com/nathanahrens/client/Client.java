@@ -1,24 +1,122 @@
 package com.nathanahrens.client;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.nathanahrens.log.Logger;
+import com.nathanahrens.metrics.QueryMetrics;
+import com.nathanahrens.resultset.DataExportColumnarWriter;
+import com.nathanahrens.resultset.DataExportDelimitedWriter;
 import com.nathanahrens.resultset.DataExportExcelWriter;
+import com.nathanahrens.resultset.FetchPipeline;
 import com.nathanahrens.resultset.ResultSetUtil;
 
 public class Client implements IClient {
+	/** Bytes to aim for per round trip when the fetch size is adaptive. */
+	private static final int ADAPTIVE_FETCH_BYTES = 2 * 1024 * 1024;
+	private static final int ADAPTIVE_FETCH_MIN = 10;
+	private static final int ADAPTIVE_FETCH_MAX = 10000;
+	/** Number of threads executing queries started with {@link #queryAsync(String)}, unless replaced. */
+	private static final int ASYNC_THREADS = 8;
+
+	private static Executor asyncExecutor;
+
+	/**
+	 * Future of a query started with {@link #queryAsync(String)}. Cancelling the future, or completing it exceptionally
+	 * (such as by a timeout), cancels the statement if it is still executing.
+	 */
+	private static class QueryFuture extends CompletableFuture<QueryResult> {
+		private QueryResult pending;
+
+		/**
+		 * Record the statement that is about to execute.
+		 * @return boolean False if the future is already done, in which case the statement should not be executed.
+		 */
+		private synchronized boolean started(QueryResult result) {
+			if (this.isDone()) {
+				return false;
+			}
+			this.pending = result;
+			return true;
+		}
+
+		private void cancelPending() {
+			QueryResult result;
+			synchronized (this) {
+				result = this.pending;
+				this.pending = null;
+			}
+			if (result != null) {
+				result.cancel();
+			}
+		}
+
+		@Override
+		public boolean complete(QueryResult value) {
+			boolean completed = super.complete(value);
+			if (completed) {
+				synchronized (this) {
+					this.pending = null;
+				}
+			}
+			return completed;
+		}
+
+		@Override
+		public boolean completeExceptionally(Throwable ex) {
+			boolean completed = super.completeExceptionally(ex);
+			if (completed) {
+				this.cancelPending();
+			}
+			return completed;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				this.cancelPending();
+			}
+			return cancelled;
+		}
+	}
 
 	private final Source source;
 	private Connection connection;
+	private PreparedStatement stmt;
 	private ResultSet rs;
 	private String sql;
 	private Logger logger;
+	private int rowWindow;
+	private ZoneId excelTimeZone;
+	private ChronoUnit timestampPrecision;
+	private int sheetRowLimit;
+	private int fetchSize;
+	private String partitionColumn;
+	private int partitions;
+	private PartitionedQuery.PartitionMode partitionMode = PartitionedQuery.PartitionMode.RANGE;
+	private boolean orderedPartitions;
+	private PartitionedQuery partitionedQuery;
+	private boolean pipelined;
+	private FetchPipeline pipeline;
+	private OutputFormat format;
+	private long cacheTtlSeconds;
+	private String metricsName;
 
 	public Client(Source source, Logger logger) {
 		this.logger = logger;
@@ -29,7 +127,12 @@ public class Client implements IClient {
 	private boolean connect() {
 		this.logger.log("Connecting to source...");
 		try {
+			long startTime = System.nanoTime();
+			boolean pooled = this.connection == null;
 			this.connection = this.getConnection();
+			if (pooled) {
+				this.observe(QueryMetrics.Phase.CONNECT, System.nanoTime() - startTime);
+			}
 			return true;
 		} catch (SQLException e) {
 			e.printStackTrace();
@@ -40,36 +143,125 @@ public class Client implements IClient {
 
 	private Connection getConnection() throws SQLException {
 		if (this.connection == null) {
-			try {
-				Class.forName(this.source.getSourceTypeDriver());
-			} catch (ClassNotFoundException e) {
-				e.printStackTrace();
-				this.logger.log("Please ensure the driver class is in the classpath...");
-			}
-			Connection conn = DriverManager.getConnection(this.source.getSourceURL(),
-					this.source.getUser().getUserName(), this.source.getUser().getPassword());
-			return conn;
+			this.loadDriver();
+			return ConnectionPool.getInstance().borrow(this.source, this.logger);
 		}
 		return this.connection;
 	}
 
+	/**
+	 * Record the duration of a phase of the query in the {@link QueryMetrics}, under the source and the metrics name
+	 * of the client.
+	 */
+	private void observe(QueryMetrics.Phase phase, long nanos) {
+		QueryMetrics.getInstance().observe(this.source.getSourceURL(), this.metricsName, phase, nanos);
+	}
+
+	/**
+	 * Time reading the rows of the query, if {@link QueryMetrics} are recorded.
+	 */
+	private ResultSet meter(ResultSet rs) {
+		return QueryMetrics.getInstance().meter(rs, this.source.getSourceURL(), this.metricsName);
+	}
+
+	/**
+	 * Record the time taken to write the results, and the size of the file written.
+	 */
+	private void observeExport(long nanos, String path) {
+		this.observe(QueryMetrics.Phase.EXPORT, nanos);
+		if (path != null) {
+			QueryMetrics.getInstance().addBytes(this.source.getSourceURL(), this.metricsName, new File(path).length());
+		}
+	}
+
+	private void loadDriver() {
+		try {
+			Class.forName(this.source.getSourceTypeDriver());
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+			this.logger.log("Please ensure the driver class is in the classpath...");
+		}
+	}
+
+	/**
+	 * Prepare the statement for a query, applying the fetch size and row limit of the source.
+	 */
+	private PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+		PreparedStatement stmt = connection.prepareStatement(sql);
+		if (this.source.getFetchSize() > 0) {
+			stmt.setFetchSize(this.source.getFetchSize());
+		}
+		if (this.source.getMaxRows() > 0) {
+			stmt.setMaxRows(this.source.getMaxRows());
+		}
+		return stmt;
+	}
+
 	public boolean query(String sql) {
 		this.sql = sql;
+		boolean partitioned = this.partitionColumn != null && this.partitions > 1;
+		// Slices return the rows in a different order, and without the row limit of the source
+		String partitioning = partitioned ? this.partitionColumn + "/" + this.partitions + "/" + this.partitionMode
+				+ (this.orderedPartitions ? "/ordered" : "") : null;
+		if (this.cacheTtlSeconds > 0) {
+			ResultSet cached = ResultCache.getInstance().get(this.source, sql, partitioning, this.logger);
+			if (cached != null) {
+				this.logger.log("Query answered from the result cache...");
+				this.rs = cached;
+				// No round trips to the source
+				this.fetchSize = 0;
+				return true;
+			}
+		}
+		boolean success;
+		if (partitioned) {
+			success = this.queryPartitioned(sql);
+		} else {
+			success = this.querySingle(sql);
+		}
+		if (success && this.cacheTtlSeconds > 0) {
+			try {
+				this.rs = ResultCache.getInstance().put(this.source, sql, partitioning, this.rs,
+						this.cacheTtlSeconds * 1000, this.logger);
+			} catch (SQLException e) {
+				e.printStackTrace();
+				this.logger.log("Failed to fetch query results...");
+				return false;
+			}
+		}
+		return success;
+	}
+
+	private boolean querySingle(String sql) {
 		if (this.connect()) {
 			this.logger.log("Sending query to source...");
 			PreparedStatement stmt;
 			try {
-				stmt = this.connection.prepareStatement(sql);
+				long prepareTime = System.nanoTime();
+				stmt = this.prepareStatement(this.connection, sql);
+				this.stmt = stmt;
 				
 				// Execute query
 				long startTime = System.nanoTime();
+				this.observe(QueryMetrics.Phase.PREPARE, startTime - prepareTime);
 				stmt.executeQuery();
 				long endTime = System.nanoTime();
+				this.observe(QueryMetrics.Phase.EXECUTE, endTime - startTime);
 				double delta = (double) ((endTime - startTime)/1000000000.0);
 				this.logger.log(String.format("Query executed in %,.3f seconds... ",delta));
 				
 				// Fetch ResultSet
 				this.rs = stmt.getResultSet();
+				if (this.source.isAdaptiveFetch()) {
+					this.adaptFetchSize(this.rs);
+				}
+				this.fetchSize = this.rs.getFetchSize();
+				this.rs = this.meter(this.rs);
+				if (this.fetchSize > 0) {
+					this.logger.log(String.format("Fetching %,d rows per round trip...", this.fetchSize));
+				} else {
+					this.logger.log("Fetching rows with the default fetch size of the driver...");
+				}
 				
 				return true;
 			} catch (SQLException e) {
@@ -80,39 +272,404 @@ public class Client implements IClient {
 		return false;
 	}
 
-	public void saveExcel(String path) {
-		this.saveExcel(path, false);
+	private boolean queryPartitioned(String sql) {
+		this.partitionedQuery = new PartitionedQuery(this.source, sql, this.partitionColumn, this.partitions,
+				this.partitionMode, this.orderedPartitions, this.logger);
+		try {
+			long startTime = System.nanoTime();
+			this.rs = this.partitionedQuery.execute();
+			long endTime = System.nanoTime();
+			// The slices connect, prepare and execute on their own threads, time them as a whole
+			this.observe(QueryMetrics.Phase.EXECUTE, endTime - startTime);
+			this.rs = this.meter(this.rs);
+			double delta = (double) ((endTime - startTime)/1000000000.0);
+			this.logger.log(String.format("Partitioned query executed in %,.3f seconds... ",delta));
+			this.fetchSize = this.source.getFetchSize();
+			return true;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			this.logger.log("Failed to execute partitioned query...");
+		}
+		return false;
+	}
+
+	/**
+	 * Pick a fetch size so that each round trip carries roughly {@link #ADAPTIVE_FETCH_BYTES}, based on the
+	 * estimated width of the rows returned by the query.
+	 */
+	private void adaptFetchSize(ResultSet rs) throws SQLException {
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int rowWidth = ResultSetUtil.estimateRowWidth(rsmd);
+		int fetchSize = Math.max(ADAPTIVE_FETCH_MIN, Math.min(ADAPTIVE_FETCH_MAX, ADAPTIVE_FETCH_BYTES / rowWidth));
+		this.logger.log(String.format("Adaptive fetch size for %d columns of ~%,d bytes per row: %,d rows",
+				rsmd.getColumnCount(), rowWidth, fetchSize));
+		rs.setFetchSize(fetchSize);
+	}
+
+	public CompletableFuture<QueryResult> queryAsync(String sql) {
+		return this.queryAsync(sql, 0);
+	}
+
+	public CompletableFuture<QueryResult> queryAsync(String sql, long timeoutMillis) {
+		QueryFuture future = new QueryFuture();
+		if (timeoutMillis > 0) {
+			future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		getAsyncExecutor().execute(() -> this.executeAsync(sql, timeoutMillis, future));
+		return future;
+	}
+
+	private void executeAsync(String sql, long timeoutMillis, QueryFuture future) {
+		if (future.isDone()) {
+			// Cancelled or timed out while waiting for a thread
+			return;
+		}
+		Connection connection = null;
+		QueryResult result = null;
+		try {
+			this.loadDriver();
+			long connectTime = System.nanoTime();
+			connection = ConnectionPool.getInstance().borrow(this.source, this.logger);
+			long prepareTime = System.nanoTime();
+			this.observe(QueryMetrics.Phase.CONNECT, prepareTime - connectTime);
+			PreparedStatement stmt = this.prepareStatement(connection, sql);
+			this.observe(QueryMetrics.Phase.PREPARE, System.nanoTime() - prepareTime);
+			if (timeoutMillis > 0) {
+				// Also let the source give up on the query, in case the cancel does not reach it
+				stmt.setQueryTimeout((int) Math.max(1, (timeoutMillis + 999) / 1000));
+			}
+			result = new QueryResult(sql, connection, stmt);
+			connection = null;
+			if (!future.started(result)) {
+				result.close();
+				return;
+			}
+
+			long startTime = System.nanoTime();
+			ResultSet rs = stmt.executeQuery();
+			long endTime = System.nanoTime();
+			this.observe(QueryMetrics.Phase.EXECUTE, endTime - startTime);
+			double delta = (double) ((endTime - startTime)/1000000000.0);
+			if (this.source.isAdaptiveFetch()) {
+				this.adaptFetchSize(rs);
+			}
+			result.setResultSet(this.meter(rs), delta);
+			if (future.complete(result)) {
+				this.logger.log(String.format("Asynchronous query executed in %,.3f seconds... ",delta));
+			} else {
+				result.close();
+			}
+		} catch (SQLException | RuntimeException e) {
+			if (result != null) {
+				result.close();
+			} else if (connection != null) {
+				ConnectionPool.getInstance().release(connection);
+			}
+			// No effect if the future was already cancelled or timed out, which is what caused the failure
+			future.completeExceptionally(e);
+		}
+	}
+
+	private static synchronized Executor getAsyncExecutor() {
+		if (asyncExecutor == null) {
+			AtomicInteger threadNumber = new AtomicInteger();
+			asyncExecutor = Executors.newFixedThreadPool(ASYNC_THREADS, runnable -> {
+				Thread thread = new Thread(runnable, "Client-async-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return asyncExecutor;
+	}
+
+	/**
+	 * Replace the executor running the queries started with {@link #queryAsync(String)}. By default a fixed pool of
+	 * {@value #ASYNC_THREADS} daemon threads is used.
+	 * @param executor Executor to run the queries on.
+	 */
+	public static synchronized void setAsyncExecutor(Executor executor) {
+		asyncExecutor = executor;
+	}
+
+	/**
+	 * Log the throughput of iterating over the {@link ResultSet}. The number of round trips is only estimated when
+	 * the fetch size is known, which it is not for the default fetch size of the driver or cached results.
+	 * @param rows Number of rows read.
+	 * @param seconds Time taken to read (and write) the rows.
+	 */
+	private void logFetchStatistics(long rows, double seconds) {
+		double rate = seconds > 0 ? rows / seconds : 0.0;
+		if (this.fetchSize > 0) {
+			long roundTrips = rows / this.fetchSize + 1;
+			this.logger.log(String.format("Fetched %,d rows in ~%,d round trips (%,.0f rows/sec)...", rows,
+					roundTrips, rate));
+		} else {
+			this.logger.log(String.format("Fetched %,d rows (%,.0f rows/sec)...", rows, rate));
+		}
+	}
+
+	public boolean saveExcel(String path) {
+		return this.saveExcel(path, false);
 	}
 	
 	public ResultSet getResultSet() {
 		return this.rs;
 	}
 
-	public void saveExcel(String path, boolean saveSql) {
+	public void setRowWindow(int rowWindow) {
+		this.rowWindow = rowWindow;
+	}
+
+	public void setExcelDates(ZoneId zone, ChronoUnit timestampPrecision) {
+		this.excelTimeZone = zone;
+		this.timestampPrecision = timestampPrecision;
+	}
+
+	public void setSheetRowLimit(int sheetRowLimit) {
+		this.sheetRowLimit = sheetRowLimit;
+	}
+
+	public void setCacheTtl(long seconds) {
+		this.cacheTtlSeconds = seconds;
+	}
+
+	public void setFormat(OutputFormat format) {
+		this.format = format;
+	}
+
+	public void setMetricsName(String name) {
+		this.metricsName = name;
+	}
+
+	public boolean save(String path, boolean saveSql) {
+		OutputFormat pathFormat = this.format != null ? this.format : OutputFormat.fromPath(path);
+		switch (pathFormat) {
+		case COLUMNAR:
+			return this.saveColumnar(path, saveSql);
+		case CSV:
+			return this.saveDelimited(path, DataExportDelimitedWriter.CSV);
+		case TSV:
+			return this.saveDelimited(path, DataExportDelimitedWriter.TSV);
+		default:
+			return this.saveExcel(path, saveSql);
+		}
+	}
+
+	private boolean saveColumnar(String path, boolean saveSql) {
+		this.logger.log("Saving to columnar file...");
+		DataExportColumnarWriter columnar = new DataExportColumnarWriter();
+		try {
+			long startTime = System.nanoTime();
+			long rows = columnar.saveColumnar(this.startPipeline(), path, saveSql ? this.sql : null);
+			long endTime = System.nanoTime();
+			this.observeExport(endTime - startTime, path);
+			double delta = (double) ((endTime - startTime)/1000000000.0);
+			this.logger.log(String.format("Columnar file written successfully in %,.3f seconds: %s",delta,path));
+			this.logFetchStatistics(rows, delta);
+			this.logPipelineStatistics();
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			this.logger.log("Unable to save file...");
+		} catch (SQLException e) {
+			e.printStackTrace();
+			this.logger.log("Unable to parse ResultSet...");
+		}
+		return false;
+	}
+
+	private boolean saveDelimited(String path, char delimiter) {
+		this.logger.log("Saving to delimited file...");
+		DataExportDelimitedWriter delimited = new DataExportDelimitedWriter(delimiter, StandardCharsets.UTF_8);
+		try {
+			long startTime = System.nanoTime();
+			long rows = delimited.saveDelimited(this.startPipeline(), path);
+			long endTime = System.nanoTime();
+			this.observeExport(endTime - startTime, path);
+			double delta = (double) ((endTime - startTime)/1000000000.0);
+			this.logger.log(String.format("Delimited file written successfully in %,.3f seconds: %s",delta,path));
+			this.logFetchStatistics(rows, delta);
+			this.logPipelineStatistics();
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			this.logger.log("Unable to save file...");
+		} catch (SQLException e) {
+			e.printStackTrace();
+			this.logger.log("Unable to parse ResultSet...");
+		}
+		return false;
+	}
+
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+
+	/**
+	 * Start fetching the rows on a separate thread if pipelining is enabled. A partitioned query already fetches on
+	 * separate threads, so is returned as is.
+	 * @return ResultSet Rows to write.
+	 */
+	private ResultSet startPipeline() throws SQLException {
+		if (!this.pipelined || this.partitionedQuery != null) {
+			return this.rs;
+		}
+		this.logger.log("Fetching rows on a separate thread while writing...");
+		this.pipeline = new FetchPipeline(this.rs);
+		return this.pipeline.start();
+	}
+
+	/**
+	 * Log how long the fetch thread and the writer waited on each other, which shows which of the two limits the
+	 * export.
+	 */
+	private void logPipelineStatistics() {
+		if (this.pipeline == null) {
+			return;
+		}
+		this.logger.log(String.format(
+				"Pipeline: %,d batches, queue depth mean %.1f max %d, fetch %,.3f seconds (stalled on writer %,.3f), writer stalled on fetch %,.3f seconds",
+				this.pipeline.getBatches(), this.pipeline.getMeanQueueDepth(), this.pipeline.getMaxQueueDepth(),
+				this.pipeline.getFetchNanos() / 1000000000.0, this.pipeline.getFetchStallNanos() / 1000000000.0,
+				this.pipeline.getWriteStallNanos() / 1000000000.0));
+	}
+
+	public void setPartitioning(String column, int partitions, PartitionedQuery.PartitionMode mode, boolean ordered) {
+		this.partitionColumn = column;
+		this.partitions = partitions;
+		this.partitionMode = mode;
+		this.orderedPartitions = ordered;
+	}
+
+	/**
+	 * Create an Excel writer with the row window, date settings and sheet row limit of the client.
+	 */
+	private DataExportExcelWriter newExcelWriter() {
+		DataExportExcelWriter excel = new DataExportExcelWriter(this.rowWindow);
+		if (this.excelTimeZone != null) {
+			excel.setTimeZone(this.excelTimeZone);
+		}
+		if (this.timestampPrecision != null) {
+			excel.setTimestampPrecision(this.timestampPrecision);
+		}
+		if (this.sheetRowLimit > 0) {
+			excel.setSheetRowLimit(this.sheetRowLimit);
+		}
+		if (this.rowWindow > 0) {
+			this.logger.log(String.format("Streaming Excel rows with a window of %,d rows...", this.rowWindow));
+		}
+		return excel;
+	}
+
+	public boolean saveExcel(String path, boolean saveSql) {
 		this.logger.log("Saving to Excel...");
-		DataExportExcelWriter excel = new DataExportExcelWriter();
+		DataExportExcelWriter excel = this.newExcelWriter();
 		try {
 			long startTime = System.nanoTime();
-			excel.saveExcel(rs, path, saveSql, this.sql);
+			long rows = excel.saveExcel(this.startPipeline(), path, saveSql, this.sql);
 			long endTime = System.nanoTime();
+			this.observeExport(endTime - startTime, path);
 			double delta = (double) ((endTime - startTime)/1000000000.0);
 			this.logger.log(String.format("Excel file written successfully in %,.3f seconds: %s",delta,path));
+			if (excel.getSheetCount() > 1) {
+				this.logger.log(String.format("Rows written over %d sheets...", excel.getSheetCount()));
+			}
+			this.logFetchStatistics(rows, delta);
+			this.logPipelineStatistics();
+			return true;
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 			this.logger.log("Unable to open file...");
-			System.exit(-1);
 		} catch (IOException e) {
 			e.printStackTrace();
 			this.logger.log("Unable to save file...");
-			System.exit(-1);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			this.logger.log("Unable to parse ResultSet...");
-			System.exit(-1);
 		}
+		return false;
+	}
+
+	public boolean saveWorkbook(String path, List<String> names, List<String> sqls, boolean saveSql) {
+		this.loadDriver();
+		this.logger.log("Saving queries to Excel...");
+		DataExportExcelWriter excel = this.newExcelWriter();
+		try {
+			long startTime = System.nanoTime();
+			WorkbookQuery workbookQuery = new WorkbookQuery(this.source, names, sqls, this.logger);
+			workbookQuery.setMetricsName(this.metricsName);
+			long rows = workbookQuery.save(excel, path, saveSql);
+			long endTime = System.nanoTime();
+			this.observeExport(endTime - startTime, path);
+			double delta = (double) ((endTime - startTime)/1000000000.0);
+			this.logger.log(String.format("Excel file of %d queries written successfully in %,.3f seconds: %s",
+					names.size(), delta, path));
+			this.logger.log(String.format("Wrote %,d rows over %d sheets (%,.0f rows/sec)...", rows,
+					excel.getSheetCount(), delta > 0 ? rows / delta : 0.0));
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			this.logger.log("Unable to save file...");
+		} catch (SQLException e) {
+			e.printStackTrace();
+			this.logger.log("Failed to run queries...");
+		} catch (IllegalArgumentException e) {
+			this.logger.log("Invalid queries: " + e.getMessage());
+		}
+		return false;
 	}
 
 	public void print() {
-		ResultSetUtil.printResultSet(this.rs, "\t");
+		ResultSet rows;
+		try {
+			rows = this.startPipeline();
+		} catch (SQLException e) {
+			e.printStackTrace();
+			this.logger.log("Unable to parse ResultSet...");
+			return;
+		}
+		long startTime = System.nanoTime();
+		long count = ResultSetUtil.printResultSet(rows, "\t");
+		long endTime = System.nanoTime();
+		this.observeExport(endTime - startTime, null);
+		this.logFetchStatistics(count, (endTime - startTime) / 1000000000.0);
+		this.logPipelineStatistics();
+	}
+
+	public void close() {
+		if (this.pipeline != null) {
+			// Must be done with the ResultSet before the statement is closed
+			this.pipeline.close();
+			if (this.pipeline.isFetching()) {
+				this.logger.log("Fetch thread still reading rows, closing the statement under it...");
+			}
+			this.pipeline = null;
+		}
+		try {
+			if (this.stmt != null) {
+				// Also closes the ResultSet, if still open
+				this.stmt.close();
+			}
+		} catch (SQLException e) {
+			this.logger.log("Unable to close statement: " + e.getMessage());
+		}
+		this.stmt = null;
+		if (this.partitionedQuery != null) {
+			this.partitionedQuery.close();
+			this.partitionedQuery = null;
+		}
+		this.rs = null;
+		if (this.connection != null) {
+			ConnectionPool.getInstance().release(this.connection);
+			this.connection = null;
+		}
+		if (QueryMetrics.getInstance().isEnabled()) {
+			// Keep the metrics file current after every query
+			try {
+				QueryMetrics.getInstance().write();
+			} catch (IOException e) {
+				this.logger.log("Unable to write metrics: " + e.getMessage());
+			}
+		}
 	}
 }
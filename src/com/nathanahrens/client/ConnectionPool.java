@@ -0,0 +1,405 @@
+package com.nathanahrens.client;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.nathanahrens.log.Logger;
+
+/**
+ * <p>Pool of JDBC connections shared by every {@link Client} in the JVM.</p>
+ * <p>Connections are pooled per {@link Source} (JDBC URL plus user name and prefetch settings), so any number of clients querying the same
+ * source re-use the same few physical connections instead of running a full connection handshake each time.
+ * Idle connections are validated before being handed out, evicted after {@link #setIdleTimeout(long)} and
+ * connections held for longer than {@link #setLeakThreshold(long)} are reported as possible leaks.</p>
+ * <p>Every connection obtained with {@link #borrow(Source, Logger)} must be given back with
+ * {@link #release(Connection)} (or {@link #invalidate(Connection)} if it is no longer usable).</p>
+ * @author nahrens
+ *
+ */
+public class ConnectionPool {
+	private static final ConnectionPool INSTANCE = new ConnectionPool();
+	private static final long HOUSEKEEPING_INTERVAL_MILLIS = 30000;
+
+	private final Map<String, Partition> partitions = new HashMap<String, Partition>();
+	private final Map<Connection, Partition> owners = new HashMap<Connection, Partition>();
+	private ScheduledExecutorService housekeeper;
+	private int peakInUse;
+	private Logger logger = new Logger();
+
+	private int minIdle = 0;
+	private int maxSize = 8;
+	private long idleTimeoutMillis = 300000;
+	private long maxWaitMillis = 60000;
+	private long leakThresholdMillis = 600000;
+	private int validationTimeoutSeconds = 5;
+
+	/**
+	 * Connection in the pool, along with the details of its current (or last) borrower.
+	 */
+	private static class PooledConnection {
+		private final Connection connection;
+		private long lastUsed;
+		private long borrowedAt;
+		private String borrower;
+		private boolean leakReported;
+
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+		}
+	}
+
+	/**
+	 * Connections and statistics for a single {@link Source}.
+	 */
+	private static class Partition {
+		private final String key;
+		private final Source source;
+		private final Deque<PooledConnection> idle = new ArrayDeque<PooledConnection>();
+		private final Map<Connection, PooledConnection> borrowed = new HashMap<Connection, PooledConnection>();
+		private int size;
+		private long hits;
+		private long misses;
+		private long waits;
+		private long waitNanos;
+
+		private Partition(String key, Source source) {
+			this.key = key;
+			this.source = source;
+		}
+	}
+
+	private ConnectionPool() {
+		Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+	}
+
+	/**
+	 *
+	 * @return The pool shared by the JVM.
+	 */
+	public static ConnectionPool getInstance() {
+		return INSTANCE;
+	}
+
+	private static String getKey(Source source) {
+		// Prefetch settings are connection properties, so connections with different settings are not shared
+		return source.getSourceURL() + "|" + source.getUser().getUserName() + "|" + source.getRowPrefetch() + "|"
+				+ source.getLobPrefetch();
+	}
+
+	private synchronized Partition getPartition(Source source) {
+		String key = getKey(source);
+		Partition partition = this.partitions.get(key);
+		if (partition == null) {
+			partition = new Partition(key, source);
+			this.partitions.put(key, partition);
+		}
+		if (this.housekeeper == null) {
+			this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "ConnectionPool-housekeeper");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.housekeeper.scheduleWithFixedDelay(this::houseKeep, HOUSEKEEPING_INTERVAL_MILLIS,
+					HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		return partition;
+	}
+
+	/**
+	 * Obtain a connection to the source, re-using an idle pooled connection if one is available. If the maximum
+	 * number of connections to the source are in use, waits up to {@link #setMaxWait(long)} for one to be released.
+	 * @param source Source to connect to.
+	 * @param logger Logger to write pool statistics to.
+	 * @return Connection Connection to the source. Must be given back with {@link #release(Connection)}.
+	 * @throws SQLException When unable to connect, or when timed out waiting for a connection.
+	 */
+	public Connection borrow(Source source, Logger logger) throws SQLException {
+		Partition partition = this.getPartition(source);
+		long startTime = System.nanoTime();
+		long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(this.maxWaitMillis);
+		boolean waited = false;
+		PooledConnection pooled = null;
+
+		while (pooled == null) {
+			PooledConnection candidate = null;
+			synchronized (partition) {
+				while (candidate == null) {
+					candidate = partition.idle.pollLast();
+					if (candidate != null) {
+						break;
+					} else if (partition.size < this.maxSize) {
+						// Reserve the slot, the connection is created outside of the lock
+						partition.size++;
+						partition.misses++;
+						break;
+					}
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						throw new SQLException(String.format("Timed out after %,d ms waiting for a connection to %s",
+								this.maxWaitMillis, source.getSourceURL()));
+					}
+					waited = true;
+					try {
+						TimeUnit.NANOSECONDS.timedWait(partition, remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a connection", e);
+					}
+				}
+			}
+
+			if (candidate == null) {
+				try {
+					pooled = new PooledConnection(
+							DriverManager.getConnection(source.getSourceURL(), source.getConnectionProperties()));
+				} catch (SQLException e) {
+					synchronized (partition) {
+						partition.size--;
+						partition.notifyAll();
+					}
+					throw e;
+				}
+			} else if (this.isValid(candidate.connection)) {
+				// Validated outside of the lock, as it may be a round trip to the source
+				pooled = candidate;
+				synchronized (partition) {
+					partition.hits++;
+				}
+			} else {
+				synchronized (partition) {
+					partition.size--;
+					partition.notifyAll();
+				}
+				this.discard(candidate.connection);
+			}
+		}
+
+		long waitNanos = System.nanoTime() - startTime;
+		synchronized (partition) {
+			if (waited) {
+				partition.waits++;
+				partition.waitNanos += waitNanos;
+			}
+			pooled.borrowedAt = System.currentTimeMillis();
+			pooled.borrower = Thread.currentThread().getName();
+			pooled.leakReported = false;
+			partition.borrowed.put(pooled.connection, pooled);
+			logger.log(String.format(
+					"Connection pool %s: hits %d, misses %d, waits %d (%,.3f ms total), in use %d of %d",
+					partition.source.getSourceURL(), partition.hits, partition.misses, partition.waits,
+					partition.waitNanos / 1000000.0, partition.borrowed.size(), this.maxSize));
+		}
+		synchronized (this) {
+			this.owners.put(pooled.connection, partition);
+			this.peakInUse = Math.max(this.peakInUse, this.owners.size());
+		}
+		return pooled.connection;
+	}
+
+	/**
+	 * Give a connection obtained from {@link #borrow(Source, Logger)} back to the pool.
+	 * @param connection Connection to give back.
+	 */
+	public void release(Connection connection) {
+		this.giveBack(connection, true);
+	}
+
+	/**
+	 * Give a connection obtained from {@link #borrow(Source, Logger)} back to the pool and close it, for instance
+	 * after an error left it in an unknown state.
+	 * @param connection Connection to close.
+	 */
+	public void invalidate(Connection connection) {
+		this.giveBack(connection, false);
+	}
+
+	private void giveBack(Connection connection, boolean reuse) {
+		Partition partition;
+		synchronized (this) {
+			partition = this.owners.remove(connection);
+		}
+		if (partition == null) {
+			// Not one of ours (or already given back)
+			return;
+		}
+		synchronized (partition) {
+			PooledConnection pooled = partition.borrowed.remove(connection);
+			if (pooled == null) {
+				return;
+			}
+			if (reuse && !this.isClosed(connection)) {
+				pooled.lastUsed = System.currentTimeMillis();
+				partition.idle.addLast(pooled);
+			} else {
+				partition.size--;
+				this.discard(connection);
+			}
+			partition.notifyAll();
+		}
+	}
+
+	private boolean isValid(Connection connection) {
+		try {
+			return connection.isValid(this.validationTimeoutSeconds);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private boolean isClosed(Connection connection) {
+		try {
+			return connection.isClosed();
+		} catch (SQLException e) {
+			return true;
+		}
+	}
+
+	private void discard(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			this.logger.log("Unable to close pooled connection: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Close connections that have been idle for too long and report connections that have been borrowed for
+	 * longer than the leak threshold.
+	 */
+	private void houseKeep() {
+		List<Partition> snapshot;
+		synchronized (this) {
+			snapshot = new ArrayList<Partition>(this.partitions.values());
+		}
+		long now = System.currentTimeMillis();
+		for (Partition partition : snapshot) {
+			synchronized (partition) {
+				for (Iterator<PooledConnection> it = partition.idle.iterator(); it.hasNext()
+						&& partition.size > this.minIdle;) {
+					PooledConnection pooled = it.next();
+					if (now - pooled.lastUsed > this.idleTimeoutMillis) {
+						it.remove();
+						partition.size--;
+						this.discard(pooled.connection);
+						this.logger.log("Connection pool " + partition.key + ": evicted idle connection");
+					}
+				}
+				for (PooledConnection pooled : partition.borrowed.values()) {
+					if (!pooled.leakReported && now - pooled.borrowedAt > this.leakThresholdMillis) {
+						pooled.leakReported = true;
+						this.logger.log(String.format(
+								"Connection pool %s: possible leak, connection held by %s for %,d seconds",
+								partition.source.getSourceURL(), pooled.borrower, (now - pooled.borrowedAt) / 1000));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Close all idle connections and stop the housekeeping thread. Borrowed connections are closed when they are
+	 * released.
+	 */
+	public void shutdown() {
+		List<Partition> snapshot;
+		synchronized (this) {
+			if (this.housekeeper != null) {
+				this.housekeeper.shutdownNow();
+				this.housekeeper = null;
+			}
+			snapshot = new ArrayList<Partition>(this.partitions.values());
+		}
+		for (Partition partition : snapshot) {
+			synchronized (partition) {
+				for (PooledConnection pooled : partition.idle) {
+					partition.size--;
+					this.discard(pooled.connection);
+				}
+				partition.idle.clear();
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return int Highest number of connections (to all sources) borrowed at the same time.
+	 */
+	public synchronized int getPeakInUse() {
+		return this.peakInUse;
+	}
+
+	/**
+	 *
+	 * @param logger Logger used for eviction and leak messages.
+	 */
+	public void setLogger(Logger logger) {
+		this.logger = logger;
+	}
+
+	/**
+	 *
+	 * @param minIdle Number of connections per source that idle eviction will keep open.
+	 */
+	public void setMinIdle(int minIdle) {
+		this.minIdle = minIdle;
+	}
+
+	/**
+	 *
+	 * @param maxSize Maximum number of connections per source (idle and in use).
+	 */
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 *
+	 * @return int Maximum number of connections per source (idle and in use).
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 *
+	 * @param idleTimeoutMillis Time after which an unused connection is closed.
+	 */
+	public void setIdleTimeout(long idleTimeoutMillis) {
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	/**
+	 *
+	 * @param maxWaitMillis Time to wait for a connection when all connections to a source are in use.
+	 */
+	public void setMaxWait(long maxWaitMillis) {
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	/**
+	 *
+	 * @param leakThresholdMillis Time after which a borrowed connection is reported as a possible leak.
+	 */
+	public void setLeakThreshold(long leakThresholdMillis) {
+		this.leakThresholdMillis = leakThresholdMillis;
+	}
+
+	/**
+	 *
+	 * @param validationTimeoutSeconds Time allowed for the driver to validate an idle connection before re-use.
+	 */
+	public void setValidationTimeout(int validationTimeoutSeconds) {
+		this.validationTimeoutSeconds = validationTimeoutSeconds;
+	}
+}
@@ -1,16 +1,21 @@
 package com.nathanahrens.client;
 
 import java.sql.ResultSet;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <p>Interface to encapsulate a source client (such as a client to a database).</p>
  * <p>It is expected that, once instantiated, a client must execute {@link #query(String)} prior to calling any other action (such as {@link #saveExcel(String)}).<p>
  * <p>Only one action should be called per instance of an {@link IClient} (that is, after {@link #query(String)} has been called). That is because
  * a {@link ResultSet} can only be iterated one time.</p>
+ * <p>Once the action is complete, {@link #close()} must be called to give the connection back to the {@link ConnectionPool}.</p>
  * @author nahrens
  *
  */
-public interface IClient {
+public interface IClient extends AutoCloseable {
 
 	/**
 	 * Send query to source to obtain {@link ResultSet} with data.
@@ -19,18 +24,121 @@ public interface IClient {
 	 */
 	public boolean query(String sql);
 	
+	/**
+	 * <p>Send query to source without waiting for it to execute. Each call runs on its own pooled connection, independent
+	 * of {@link #query(String)} and of other asynchronous queries, so several may be in flight at once.</p>
+	 * <p>Cancelling the returned future cancels the statement if it is still executing. The {@link QueryResult} must be
+	 * closed once its {@link ResultSet} has been consumed.</p>
+	 * @param sql SQL query to run in source.
+	 * @return CompletableFuture Completes with the executed query, or exceptionally if it failed.
+	 */
+	public CompletableFuture<QueryResult> queryAsync(String sql);
+	
+	/**
+	 * Send query to source without waiting for it to execute, see {@link #queryAsync(String)}. If the query has not
+	 * executed within the timeout, the statement is cancelled and the future completes with a
+	 * {@link java.util.concurrent.TimeoutException}.
+	 * @param sql SQL query to run in source.
+	 * @param timeoutMillis Time allowed for the query to execute, in milliseconds. If less than 1, there is no timeout.
+	 * @return CompletableFuture Completes with the executed query, or exceptionally if it failed or timed out.
+	 */
+	public CompletableFuture<QueryResult> queryAsync(String sql, long timeoutMillis);
+	
 	/**
 	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to an Excel file. 
 	 * @param filePath Path of the Excel file to write.
 	 * @param saveSql If true, adds a sheet to the Excel file with the query SQL.
+	 * @return boolean True if the file was written, else false.
 	 */
-	public void saveExcel(String filePath, boolean saveSql);
+	public boolean saveExcel(String filePath, boolean saveSql);
 	
 	/**
 	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to an Excel file. 
 	 * @param filePath Path of the Excel file to write.
+	 * @return boolean True if the file was written, else false.
+	 */
+	public boolean saveExcel(String filePath);
+	
+	/**
+	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to a file, in the format set with
+	 * {@link #setFormat(OutputFormat)}, or else the format matching the extension of the file.
+	 * @param filePath Path of the file to write.
+	 * @param saveSql If true, saves the query SQL with the results.
+	 * @return boolean True if the file was written, else false.
+	 */
+	public boolean save(String filePath, boolean saveSql);
+	
+	/**
+	 * <p>Run several queries at once, each on its own pooled connection, and write the results of each to its own
+	 * sheet of one Excel file (see {@link WorkbookQuery}). This is independent of {@link #query(String)}, and can be
+	 * called instead of it.</p>
+	 * <p>The row window, date settings and sheet row limit of the client apply to every sheet.</p>
+	 * @param filePath Path of the Excel file to write.
+	 * @param names Names of the queries, used as the names of their sheets. Must be unique.
+	 * @param sqls SQL queries to run, one per name.
+	 * @param saveSql If true, adds a sheet to the Excel file listing the sheets, their rows and queries.
+	 * @return boolean True if every query ran and the file was written, else false.
+	 */
+	public boolean saveWorkbook(String filePath, List<String> names, List<String> sqls, boolean saveSql);
+	
+	/**
+	 * Answer the next {@link #query(String)} from the {@link ResultCache} if the same query was run against the same
+	 * source within the time to live, and otherwise cache its result for that long.
+	 * @param seconds Time to live of the result, in seconds. If less than 1, the cache is not used.
+	 */
+	public void setCacheTtl(long seconds);
+	
+	/**
+	 * Set the name the queries of the client are recorded under in the {@link com.nathanahrens.metrics.QueryMetrics},
+	 * along with the source, such as the title of a QueryTest.
+	 * @param name Name of the queries, or null.
 	 */
-	public void saveExcel(String filePath);
+	public void setMetricsName(String name);
+	
+	/**
+	 * Set the format {@link #save(String, boolean)} writes.
+	 * @param format Format to write, or null to pick the format from the extension of the file.
+	 */
+	public void setFormat(OutputFormat format);
+	
+	/**
+	 * Set the number of rows kept in memory while writing an Excel file. Rows beyond this window are flushed
+	 * to a temporary file as the {@link ResultSet} is iterated, so memory use does not grow with the row count. 
+	 * @param rowWindow Number of rows to keep in memory. If less than 1, the whole workbook is built in memory.
+	 */
+	public void setRowWindow(int rowWindow);
+	
+	/**
+	 * Set how DATE, TIME and TIMESTAMP values are written to Excel files. Excel dates have no time zone, so values
+	 * are written as their local date and time in the given zone.
+	 * @param zone Time zone to write dates in, or null for the time zone of the JVM.
+	 * @param timestampPrecision Precision TIMESTAMP values are truncated to, or null for milliseconds.
+	 */
+	public void setExcelDates(ZoneId zone, ChronoUnit timestampPrecision);
+	
+	/**
+	 * Set the number of rows written to each sheet of an Excel file. Results with more rows continue on further
+	 * sheets, so results over the row limit of Excel can be written in one pass.
+	 * @param sheetRowLimit Number of data rows per sheet. If less than 1, sheets are filled to the row limit of Excel.
+	 */
+	public void setSheetRowLimit(int sheetRowLimit);
+	
+	/**
+	 * Fetch the rows of the {@link ResultSet} on a separate thread while they are written (see
+	 * {@link com.nathanahrens.resultset.FetchPipeline}), so round trips to the source overlap with writing the output.
+	 * @param pipelined If true, fetch and write on separate threads, else on the calling thread.
+	 */
+	public void setPipelined(boolean pipelined);
+	
+	/**
+	 * Run the next {@link #query(String)} as several slices at once, each on its own connection, split on the given
+	 * column. See {@link PartitionedQuery}.
+	 * @param column Column to split the query on, or null to run the query on a single connection.
+	 * @param partitions Number of slices to run at once.
+	 * @param mode How rows are assigned to slices.
+	 * @param ordered If true, the slices are returned one after another in slice order, otherwise as rows arrive.
+	 */
+	public void setPartitioning(String column, int partitions, PartitionedQuery.PartitionMode mode, boolean ordered);
 	
 	/**
 	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to stdout. 
@@ -42,4 +150,9 @@ public interface IClient {
 	 * @return ResultSet ResultSet of executed query.
 	 */
 	public ResultSet getResultSet();
+	
+	/**
+	 * Close the statement and give the connection back to the {@link ConnectionPool}. The {@link ResultSet} can no longer be used.
+	 */
+	public void close();
 }
@@ -0,0 +1,48 @@
+package com.nathanahrens.client;
+
+import com.nathanahrens.resultset.DataExportColumnarWriter;
+
+/**
+ * Format of the file the results of a query are saved to, see {@link IClient#save(String, boolean)}.
+ * @author nahrens
+ *
+ */
+public enum OutputFormat {
+	/** Excel workbook. */
+	XLSX(".xlsx"),
+	/** Columnar binary file, see {@link DataExportColumnarWriter}. */
+	COLUMNAR(DataExportColumnarWriter.EXTENSION),
+	/** Comma separated values. */
+	CSV(".csv"),
+	/** Tab separated values. */
+	TSV(".tsv");
+
+	private final String extension;
+
+	private OutputFormat(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 *
+	 * @return String File extension of the format (including the dot).
+	 */
+	public String getExtension() {
+		return this.extension;
+	}
+
+	/**
+	 * Pick the format from the extension of a file path.
+	 * @param filePath Path of the file to write.
+	 * @return OutputFormat Format matching the extension, or {@link #XLSX} if none does.
+	 */
+	public static OutputFormat fromPath(String filePath) {
+		String lower = filePath.toLowerCase();
+		for (OutputFormat format : values()) {
+			if (lower.endsWith(format.extension)) {
+				return format;
+			}
+		}
+		return XLSX;
+	}
+}
@@ -0,0 +1,449 @@
+package com.nathanahrens.client;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.nathanahrens.log.Logger;
+import com.nathanahrens.resultset.RowResultSet;
+import com.nathanahrens.resultset.RowResultSetMetaData;
+
+/**
+ * <p>Runs a query as several slices at once, each on its own connection, and merges the slices back into a single
+ * {@link ResultSet} that can be handed to the existing writers.</p>
+ * <p>The query is split on a partition column. {@link PartitionMode#RANGE} splits the range between the minimum and
+ * maximum value of the column (numeric or date) into equal slices. {@link PartitionMode#HASH} assigns rows to slices
+ * by a hash of the column (<code>ORA_HASH</code> on Oracle, <code>MOD</code> elsewhere), which also works for
+ * <code>ROWID</code> on Oracle.</p>
+ * <p>By default the query is wrapped as <code>SELECT * FROM (sql) WHERE predicate</code>. If the query contains
+ * {@link #PARTITION_TOKEN}, the slice predicate is substituted there instead, which allows {@link PartitionMode#HASH}
+ * to split on columns that are not part of the select list, such as <code>ROWID</code>. {@link PartitionMode#RANGE}
+ * finds the minimum and maximum over the results of the query, so needs the column in the select list.</p>
+ * @author nahrens
+ *
+ */
+public class PartitionedQuery {
+	/** Placeholder in the query for the slice predicate. */
+	public static final String PARTITION_TOKEN = "{partition}";
+
+	private static final int BATCH_SIZE = 500;
+	private static final int QUEUE_BATCHES = 16;
+	private static final List<Object[]> END_OF_SLICE = new ArrayList<Object[]>(0);
+
+	/**
+	 * Defines how rows are assigned to slices.
+	 */
+	public static enum PartitionMode {
+		RANGE, HASH
+	}
+
+	private final Source source;
+	private final String sql;
+	private final String column;
+	private final int slices;
+	private final PartitionMode mode;
+	private final boolean ordered;
+	private final Logger logger;
+	private final List<Slice> sliceList = new ArrayList<Slice>();
+	private ExecutorService executor;
+	private RowResultSetMetaData rsmd;
+	private boolean metaDataSet;
+
+	/**
+	 * A single slice of the query, run on its own connection by its own thread.
+	 */
+	private class Slice implements Runnable {
+		private final int number;
+		private final String predicate;
+		private final Object[] params;
+		private final BlockingQueue<List<Object[]>> queue;
+		private volatile PreparedStatement stmt;
+		private volatile SQLException error;
+		private volatile boolean cancelled;
+		private long rows;
+		private long executeNanos;
+		private long fetchNanos;
+
+		private Slice(int number, String predicate, Object[] params, BlockingQueue<List<Object[]>> queue) {
+			this.number = number;
+			this.predicate = predicate;
+			this.params = params;
+			this.queue = queue;
+		}
+
+		public void run() {
+			Connection conn = null;
+			try {
+				conn = ConnectionPool.getInstance().borrow(source, logger);
+				this.stmt = conn.prepareStatement(sliceSql(this.predicate));
+				if (source.getFetchSize() > 0) {
+					this.stmt.setFetchSize(source.getFetchSize());
+				}
+				for (int i = 0; i < this.params.length; i++) {
+					this.stmt.setObject(i + 1, this.params[i]);
+				}
+				long startTime = System.nanoTime();
+				ResultSet rs = this.stmt.executeQuery();
+				long executedTime = System.nanoTime();
+				this.executeNanos = executedTime - startTime;
+				setMetaData(RowResultSetMetaData.copyOf(rs.getMetaData()));
+				int colCount = rs.getMetaData().getColumnCount();
+				List<Object[]> batch = new ArrayList<Object[]>(BATCH_SIZE);
+				while (!this.cancelled && rs.next()) {
+					batch.add(RowResultSet.readRow(rs, colCount));
+					this.rows++;
+					if (batch.size() == BATCH_SIZE) {
+						this.queue.put(batch);
+						batch = new ArrayList<Object[]>(BATCH_SIZE);
+					}
+				}
+				if (!batch.isEmpty()) {
+					this.queue.put(batch);
+				}
+				this.fetchNanos = System.nanoTime() - executedTime;
+				rs.close();
+			} catch (SQLException e) {
+				this.error = e;
+				setMetaData(null);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				if (this.stmt != null) {
+					try {
+						this.stmt.close();
+					} catch (SQLException e) {
+						logger.log("Unable to close slice statement: " + e.getMessage());
+					}
+				}
+				if (conn != null) {
+					ConnectionPool.getInstance().release(conn);
+				}
+				try {
+					this.queue.put(END_OF_SLICE);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		private void cancel() {
+			this.cancelled = true;
+			PreparedStatement running = this.stmt;
+			if (running != null) {
+				try {
+					running.cancel();
+				} catch (SQLException e) {
+					// Statement already complete or closed
+				}
+			}
+			// Unblock the slice if it is waiting on a full queue
+			this.queue.clear();
+		}
+	}
+
+	/**
+	 *
+	 * @param source  Source to run the query against.
+	 * @param sql     SQL query to run.
+	 * @param column  Column (or expression) to split the query on.
+	 * @param slices  Number of slices to run at once, at most as many as the {@link ConnectionPool} allows
+	 *                connections to the source.
+	 * @param mode    How rows are assigned to slices.
+	 * @param ordered If true, slices are returned one after another in slice order (for {@link PartitionMode#RANGE},
+	 *                rows are ordered by the partition column). Otherwise rows are returned as soon as any slice
+	 *                fetches them.
+	 * @param logger  Logger to write slice timings to.
+	 */
+	public PartitionedQuery(Source source, String sql, String column, int slices, PartitionMode mode, boolean ordered,
+			Logger logger) {
+		this.source = source;
+		// The query is nested in others, where a trailing semicolon is a syntax error
+		this.sql = sql.trim().replaceAll(";+$", "").trim();
+		this.column = column;
+		int maxSize = ConnectionPool.getInstance().getMaxSize();
+		if (slices > maxSize) {
+			// Each slice holds a connection until all its rows are fetched, later slices would wait on the pool
+			logger.log(String.format("Running %d slices, as many as the connection pool allows, rather than %d...",
+					maxSize, slices));
+		}
+		this.slices = Math.max(1, Math.min(slices, maxSize));
+		this.mode = mode;
+		this.ordered = ordered;
+		this.logger = logger;
+	}
+
+	/**
+	 * Set the metadata of the merged rows from the first slice to execute, or fail the query (null) if a slice
+	 * failed before any slice executed.
+	 */
+	private synchronized void setMetaData(RowResultSetMetaData rsmd) {
+		if (!this.metaDataSet) {
+			this.rsmd = rsmd;
+			this.metaDataSet = true;
+			this.notifyAll();
+		}
+	}
+
+	private synchronized RowResultSetMetaData awaitMetaData() throws SQLException {
+		while (!this.metaDataSet) {
+			try {
+				this.wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for the query to execute", e);
+			}
+		}
+		if (this.rsmd == null) {
+			throw this.firstError();
+		}
+		return this.rsmd;
+	}
+
+	private SQLException firstError() {
+		for (Slice slice : this.sliceList) {
+			if (slice.error != null) {
+				return slice.error;
+			}
+		}
+		return new SQLException("Partitioned query failed");
+	}
+
+	private String sliceSql(String predicate) {
+		String sliceSql;
+		if (this.sql.contains(PARTITION_TOKEN)) {
+			sliceSql = this.sql.replace(PARTITION_TOKEN, "(" + predicate + ")");
+		} else {
+			sliceSql = "SELECT * FROM (" + this.sql + ") q WHERE " + predicate;
+		}
+		if (this.ordered && this.mode == PartitionMode.RANGE) {
+			// Wrapped, as the query may already end in an ORDER BY
+			sliceSql = "SELECT * FROM (" + sliceSql + ") s ORDER BY " + this.column;
+		}
+		return sliceSql;
+	}
+
+	/**
+	 * Run the slices and return the merged rows.
+	 * @return ResultSet Rows of all slices.
+	 * @throws SQLException When the query can not be split or any slice fails.
+	 */
+	public ResultSet execute() throws SQLException {
+		List<String> predicates = new ArrayList<String>();
+		List<Object[]> params = new ArrayList<Object[]>();
+		if (this.mode == PartitionMode.RANGE) {
+			this.splitRange(predicates, params);
+		} else {
+			this.splitHash(predicates, params);
+		}
+
+		BlockingQueue<List<Object[]>> shared = this.ordered ? null
+				: new ArrayBlockingQueue<List<Object[]>>(QUEUE_BATCHES * predicates.size());
+		for (int i = 0; i < predicates.size(); i++) {
+			BlockingQueue<List<Object[]>> queue = this.ordered ? new ArrayBlockingQueue<List<Object[]>>(QUEUE_BATCHES)
+					: shared;
+			this.sliceList.add(new Slice(i, predicates.get(i), params.get(i), queue));
+		}
+		this.logger.log(String.format("Running query as %d %s slices on %s...", this.sliceList.size(), this.mode,
+				this.column));
+
+		this.executor = Executors.newFixedThreadPool(this.sliceList.size(), runnable -> {
+			Thread thread = new Thread(runnable, "PartitionedQuery-slice");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (Slice slice : this.sliceList) {
+			this.executor.execute(slice);
+		}
+		this.executor.shutdown();
+
+		try {
+			return RowResultSet.create(this.awaitMetaData(), new MergedRows());
+		} catch (SQLException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Split the range between the minimum and maximum of the partition column into equal slices. Null values go to
+	 * the first slice. The minimum and maximum are found over the results of the query, so the column must be in its
+	 * select list.
+	 */
+	private void splitRange(List<String> predicates, List<Object[]> params) throws SQLException {
+		Object min;
+		Object max;
+		Connection conn = ConnectionPool.getInstance().borrow(this.source, this.logger);
+		try (PreparedStatement stmt = conn.prepareStatement(
+				"SELECT MIN(" + this.column + "), MAX(" + this.column + ") FROM (" + this.sql.replace(PARTITION_TOKEN, "1=1")
+						+ ") q");
+				ResultSet rs = stmt.executeQuery()) {
+			rs.next();
+			min = rs.getObject(1);
+			max = rs.getObject(2);
+		} catch (SQLException e) {
+			if (this.sql.contains(PARTITION_TOKEN)) {
+				// Most likely the column is only used where the predicate is substituted
+				throw new SQLException("Unable to find the range of " + this.column
+						+ ", RANGE partitioning needs the column in the select list, use HASH to split on other columns: "
+						+ e.getMessage(), e);
+			}
+			throw e;
+		} finally {
+			ConnectionPool.getInstance().release(conn);
+		}
+		if (min == null || max == null) {
+			// No rows (or only nulls), a single slice will do
+			predicates.add("1=1");
+			params.add(new Object[0]);
+			return;
+		}
+
+		List<Object> bounds = new ArrayList<Object>();
+		if (min instanceof Number && max instanceof Number) {
+			BigDecimal lo = new BigDecimal(min.toString());
+			BigDecimal step = new BigDecimal(max.toString()).subtract(lo).divide(BigDecimal.valueOf(this.slices), 10,
+					RoundingMode.CEILING);
+			for (int i = 1; i < this.slices; i++) {
+				bounds.add(lo.add(step.multiply(BigDecimal.valueOf(i))));
+			}
+		} else if (min instanceof java.util.Date && max instanceof java.util.Date) {
+			long lo = ((java.util.Date) min).getTime();
+			long step = (((java.util.Date) max).getTime() - lo) / this.slices;
+			for (int i = 1; i < this.slices; i++) {
+				bounds.add(new Timestamp(lo + step * i));
+			}
+		} else {
+			throw new SQLException("RANGE partitioning needs a numeric or date column, use HASH for " + this.column);
+		}
+
+		for (int i = 0; i < this.slices; i++) {
+			if (i == 0) {
+				predicates.add(this.column + " IS NULL OR " + this.column + " < ?");
+				params.add(new Object[] { bounds.isEmpty() ? max : bounds.get(0) });
+			} else if (i == this.slices - 1) {
+				predicates.add(this.column + " >= ?");
+				params.add(new Object[] { bounds.get(i - 1) });
+			} else {
+				predicates.add(this.column + " >= ? AND " + this.column + " < ?");
+				params.add(new Object[] { bounds.get(i - 1), bounds.get(i) });
+			}
+		}
+		if (this.slices == 1) {
+			predicates.set(0, "1=1");
+			params.set(0, new Object[0]);
+		}
+	}
+
+	/**
+	 * Assign rows to slices by a hash of the partition column. Null values go to the first slice, as they hash to
+	 * null. Elsewhere than Oracle the remainder is taken of the absolute value, as the remainder of a negative value
+	 * is negative on most databases.
+	 */
+	private void splitHash(List<String> predicates, List<Object[]> params) {
+		for (int i = 0; i < this.slices; i++) {
+			String predicate;
+			if (this.source.getSourceType() == Source.SourceType.ORACLE) {
+				predicate = "ORA_HASH(" + this.column + ", " + (this.slices - 1) + ") = " + i;
+			} else {
+				predicate = "MOD(ABS(" + this.column + "), " + this.slices + ") = " + i;
+			}
+			if (i == 0) {
+				predicate = this.column + " IS NULL OR " + predicate;
+			}
+			predicates.add(predicate);
+			params.add(new Object[0]);
+		}
+	}
+
+	/**
+	 * Hands out the rows fetched by the slices, either slice by slice (ordered) or as they arrive (unordered).
+	 */
+	private class MergedRows implements RowResultSet.RowSource {
+		private List<Object[]> batch;
+		private int position;
+		private int currentSlice;
+		private int finishedSlices;
+		private boolean reported;
+
+		public Object[] nextRow() throws SQLException {
+			while (this.batch == null || this.position >= this.batch.size()) {
+				if (this.finishedSlices >= sliceList.size()) {
+					this.report();
+					return null;
+				}
+				BlockingQueue<List<Object[]>> queue = sliceList.get(ordered ? this.currentSlice : 0).queue;
+				try {
+					this.batch = queue.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrupted while waiting for rows", e);
+				}
+				this.position = 0;
+				if (this.batch == END_OF_SLICE) {
+					this.finishedSlices++;
+					this.currentSlice++;
+					this.batch = null;
+					for (Slice slice : sliceList) {
+						if (slice.error != null) {
+							throw slice.error;
+						}
+					}
+				}
+			}
+			return this.batch.get(this.position++);
+		}
+
+		/**
+		 * Log the timings of each slice and how evenly the rows were spread.
+		 */
+		private void report() {
+			if (this.reported) {
+				return;
+			}
+			this.reported = true;
+			long totalRows = 0;
+			long maxRows = 0;
+			long totalNanos = 0;
+			long maxNanos = 0;
+			for (Slice slice : sliceList) {
+				long nanos = slice.executeNanos + slice.fetchNanos;
+				logger.log(String.format("Slice %d: %,d rows, executed in %,.3f seconds, fetched in %,.3f seconds",
+						slice.number, slice.rows, slice.executeNanos / 1000000000.0, slice.fetchNanos / 1000000000.0));
+				totalRows += slice.rows;
+				maxRows = Math.max(maxRows, slice.rows);
+				totalNanos += nanos;
+				maxNanos = Math.max(maxNanos, nanos);
+			}
+			int count = sliceList.size();
+			logger.log(String.format("Slice skew: rows %.2f, time %.2f (max / mean, 1.00 is perfectly even)",
+					totalRows == 0 ? 1.0 : maxRows / ((double) totalRows / count),
+					totalNanos == 0 ? 1.0 : maxNanos / ((double) totalNanos / count)));
+		}
+
+		public void close() {
+			PartitionedQuery.this.close();
+		}
+	}
+
+	/**
+	 * Cancel any slices that are still running.
+	 */
+	public void close() {
+		for (Slice slice : this.sliceList) {
+			slice.cancel();
+		}
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+		}
+	}
+}
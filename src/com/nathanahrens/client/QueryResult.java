@@ -0,0 +1,86 @@
+package com.nathanahrens.client;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * <p>Handle to a query started with {@link IClient#queryAsync(String)}. Holds the {@link ResultSet} along with the
+ * statement and pooled connection it was obtained from.</p>
+ * <p>Once the {@link ResultSet} has been consumed, {@link #close()} must be called to give the connection back to the
+ * {@link ConnectionPool}.</p>
+ * @author nahrens
+ *
+ */
+public class QueryResult implements AutoCloseable {
+	private final String sql;
+	private final Connection connection;
+	private final PreparedStatement stmt;
+	private ResultSet rs;
+	private double executeSeconds;
+	private boolean closed;
+
+	QueryResult(String sql, Connection connection, PreparedStatement stmt) {
+		this.sql = sql;
+		this.connection = connection;
+		this.stmt = stmt;
+	}
+
+	void setResultSet(ResultSet rs, double executeSeconds) {
+		this.rs = rs;
+		this.executeSeconds = executeSeconds;
+	}
+
+	/**
+	 *
+	 * @return String SQL of the query.
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 *
+	 * @return ResultSet ResultSet of the executed query.
+	 */
+	public ResultSet getResultSet() {
+		return this.rs;
+	}
+
+	/**
+	 *
+	 * @return double Time taken to execute the query (excluding fetching the rows), in seconds.
+	 */
+	public double getExecuteSeconds() {
+		return this.executeSeconds;
+	}
+
+	/**
+	 * Ask the source to stop executing the query (or fetching its rows).
+	 */
+	public void cancel() {
+		try {
+			this.stmt.cancel();
+		} catch (SQLException e) {
+			// Statement already complete or closed
+		}
+	}
+
+	/**
+	 * Close the statement and give the connection back to the {@link ConnectionPool}.
+	 */
+	public synchronized void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			// Also closes the ResultSet, if still open
+			this.stmt.close();
+			ConnectionPool.getInstance().release(this.connection);
+		} catch (SQLException e) {
+			ConnectionPool.getInstance().invalidate(this.connection);
+		}
+	}
+}
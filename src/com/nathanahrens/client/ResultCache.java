@@ -0,0 +1,600 @@
+package com.nathanahrens.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.nathanahrens.log.Logger;
+import com.nathanahrens.resultset.RowResultSet;
+import com.nathanahrens.resultset.RowResultSetMetaData;
+
+/**
+ * <p>Cache of query results shared by every {@link Client} in the JVM, so that a query repeated against the same
+ * {@link Source} within its time to live is answered without going to the source.</p>
+ * <p>Results are keyed by the SQL (with whitespace outside quotes collapsed), the JDBC URL, the user name, the row
+ * limit of the source and the partitioning of the query, as each of these changes the rows returned. They are stored
+ * deflated in a compact binary form, in a least recently used map bounded by {@link #setMaxBytes(long)}. If a
+ * directory is set with {@link #setDirectory(File)}, results are also written there, so they survive from one run to
+ * the next.</p>
+ * <p>The files are not encrypted: anyone able to read them can read the results. They are created readable by their
+ * owner only, but the directory should be private to the user running the queries all the same.</p>
+ * @author nahrens
+ *
+ */
+public class ResultCache {
+	private static final ResultCache INSTANCE = new ResultCache();
+	private static final int FILE_VERSION = 2;
+
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte INT = 2;
+	private static final byte LONG = 3;
+	private static final byte DOUBLE = 4;
+	private static final byte DECIMAL = 5;
+	private static final byte TIMESTAMP = 6;
+	private static final byte DATE = 7;
+	private static final byte TIME = 8;
+	private static final byte BOOLEAN = 9;
+	private static final byte BYTES = 10;
+
+	/**
+	 * Cached result of a query.
+	 */
+	private static class Entry {
+		private final String key;
+		private final long expires;
+		private final byte[] data;
+		private final int rows;
+
+		private Entry(String key, long expires, byte[] data, int rows) {
+			this.key = key;
+			this.expires = expires;
+			this.data = data;
+			this.rows = rows;
+		}
+	}
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long bytes;
+	private long maxBytes = 64L * 1024 * 1024;
+	private File directory;
+	private long hits;
+	private long misses;
+
+	private ResultCache() {
+	}
+
+	/**
+	 *
+	 * @return The cache shared by the JVM.
+	 */
+	public static ResultCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 *
+	 * @param maxBytes Maximum size of the (compressed) results kept in memory. Least recently used results are
+	 *                 dropped beyond this. Default 64 MB.
+	 */
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		this.evict();
+	}
+
+	/**
+	 *
+	 * @param directory Directory to also store results in, so they are available to later runs. Null (default) to
+	 *                  only keep results in memory. The results are written unencrypted, in files readable by their
+	 *                  owner only.
+	 */
+	public synchronized void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Key of the result of a query. The SQL is normalized so that queries differing only in whitespace or a trailing
+	 * semicolon share a result.
+	 */
+	private static String getKey(Source source, String sql, String partitioning) {
+		String normalized = normalize(sql.trim());
+		if (normalized.endsWith(";")) {
+			normalized = normalized.substring(0, normalized.length() - 1).trim();
+		}
+		return source.getSourceURL() + "|" + source.getUser().getUserName() + "|" + source.getMaxRows() + "|"
+				+ (partitioning == null ? "" : partitioning) + "|" + normalized;
+	}
+
+	/**
+	 * Collapse each run of whitespace to a single space, except within string literals and quoted identifiers, where
+	 * it is part of the value.
+	 */
+	private static String normalize(String sql) {
+		StringBuilder normalized = new StringBuilder(sql.length());
+		char quote = 0;
+		boolean space = false;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (quote == 0 && Character.isWhitespace(c)) {
+				space = true;
+				continue;
+			}
+			if (space) {
+				normalized.append(' ');
+				space = false;
+			}
+			if (quote == 0 && (c == '\'' || c == '"')) {
+				quote = c;
+			} else if (c == quote) {
+				// A doubled quote closes and reopens the literal
+				quote = 0;
+			}
+			normalized.append(c);
+		}
+		return normalized.toString();
+	}
+
+	/**
+	 * Look up the result of a query.
+	 * @param source       Source the query is run against.
+	 * @param sql          SQL of the query.
+	 * @param partitioning How the query is split into slices (see {@link PartitionedQuery}), or null if it is not.
+	 * @param logger       Logger to write the hit ratio to.
+	 * @return ResultSet Cached rows of the query, or null if there is no unexpired result.
+	 */
+	public ResultSet get(Source source, String sql, String partitioning, Logger logger) {
+		String key = getKey(source, sql, partitioning);
+		Entry entry;
+		synchronized (this) {
+			entry = this.entries.get(key);
+			if (entry != null && entry.expires <= System.currentTimeMillis()) {
+				this.remove(key);
+				entry = null;
+			}
+		}
+		if (entry == null) {
+			entry = this.readFile(key, logger);
+			if (entry != null) {
+				synchronized (this) {
+					this.add(entry);
+				}
+			}
+		}
+		synchronized (this) {
+			if (entry == null) {
+				this.misses++;
+			} else {
+				this.hits++;
+			}
+			logger.log(String.format("Result cache %s (%,d hits, %,d misses, %.0f%% hit ratio, %,d results in %,d bytes)",
+					entry == null ? "miss" : "hit", this.hits, this.misses,
+					100.0 * this.hits / (this.hits + this.misses), this.entries.size(), this.bytes));
+		}
+		if (entry == null) {
+			return null;
+		}
+		try {
+			return decode(entry.data);
+		} catch (IOException e) {
+			logger.log("Unable to read cached result: " + e.getMessage());
+			synchronized (this) {
+				this.remove(key);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Cache the rows of a query as they are read. The rows are passed on one at a time while each is encoded into the
+	 * (compressed) cached result, so the result is never held in memory decoded. The result is cached once the rows
+	 * have been read to the end, unless it grew larger than the maximum size of the cache, in which case the rest of
+	 * the rows are passed on without being cached.
+	 * @param source       Source the query was run against.
+	 * @param sql          SQL of the query.
+	 * @param partitioning How the query was split into slices (see {@link PartitionedQuery}), or null if it was not.
+	 * @param rs           Result of the query. Closed when the returned ResultSet is closed.
+	 * @param ttlMillis    Time the result may be used for, in milliseconds.
+	 * @param logger       Logger to write to.
+	 * @return ResultSet The rows read from <code>rs</code>.
+	 * @throws SQLException When unable to read the metadata of the rows.
+	 */
+	public ResultSet put(Source source, String sql, String partitioning, ResultSet rs, long ttlMillis, Logger logger)
+			throws SQLException {
+		RowResultSetMetaData rsmd = RowResultSetMetaData.copyOf(rs.getMetaData());
+		long limit;
+		synchronized (this) {
+			limit = this.maxBytes;
+		}
+		return RowResultSet.create(rsmd, new CachingRows(getKey(source, sql, partitioning), rsmd, rs, ttlMillis, limit, logger));
+	}
+
+	/**
+	 * Passes the rows of a query on as they are read, encoding each into the result to cache.
+	 */
+	private class CachingRows implements RowResultSet.RowSource {
+		private final String key;
+		private final ResultSet rs;
+		private final int colCount;
+		private final long ttlMillis;
+		private final long maxBytes;
+		private final Logger logger;
+		private ByteArrayOutputStream buffer;
+		private DataOutputStream out;
+		private int rows;
+		private boolean finished;
+
+		private CachingRows(String key, ResultSetMetaData rsmd, ResultSet rs, long ttlMillis, long maxBytes,
+				Logger logger) throws SQLException {
+			this.key = key;
+			this.rs = rs;
+			this.colCount = rsmd.getColumnCount();
+			this.ttlMillis = ttlMillis;
+			this.maxBytes = maxBytes;
+			this.logger = logger;
+			this.buffer = new ByteArrayOutputStream();
+			this.out = new DataOutputStream(new DeflaterOutputStream(this.buffer));
+			try {
+				writeHeader(this.out, rsmd);
+			} catch (IOException e) {
+				logger.log("Unable to cache result: " + e.getMessage());
+				this.discard();
+			}
+		}
+
+		public Object[] nextRow() throws SQLException {
+			if (this.finished) {
+				return null;
+			}
+			if (!this.rs.next()) {
+				this.finished = true;
+				this.store();
+				return null;
+			}
+			Object[] row = RowResultSet.readRow(this.rs, this.colCount);
+			this.rows++;
+			if (this.out != null) {
+				try {
+					this.out.writeBoolean(true);
+					for (Object value : row) {
+						writeValue(this.out, value);
+					}
+					if (this.buffer.size() > this.maxBytes) {
+						this.logger.log(String.format("Result of over %,d bytes is too large to cache", this.maxBytes));
+						this.discard();
+					}
+				} catch (IOException e) {
+					this.logger.log("Unable to cache result: " + e.getMessage());
+					this.discard();
+				}
+			}
+			return row;
+		}
+
+		/**
+		 * Cache the result, once all the rows have been read.
+		 */
+		private void store() {
+			if (this.out == null) {
+				return;
+			}
+			byte[] data;
+			try {
+				this.out.writeBoolean(false);
+				this.out.close();
+				data = this.buffer.toByteArray();
+			} catch (IOException e) {
+				this.logger.log("Unable to cache result: " + e.getMessage());
+				return;
+			} finally {
+				this.out = null;
+				this.buffer = null;
+			}
+			if (data.length > this.maxBytes) {
+				this.logger.log(String.format("Result of %,d bytes is too large to cache", data.length));
+				return;
+			}
+			Entry entry = new Entry(this.key, System.currentTimeMillis() + this.ttlMillis, data, this.rows);
+			synchronized (ResultCache.this) {
+				add(entry);
+			}
+			this.logger.log(String.format("Cached %,d rows in %,d bytes for %,d seconds", entry.rows,
+					entry.data.length, this.ttlMillis / 1000));
+			writeFile(entry, this.logger);
+		}
+
+		/**
+		 * Stop caching, releasing the deflater.
+		 */
+		private void discard() {
+			if (this.out != null) {
+				try {
+					this.out.close();
+				} catch (IOException e) {
+					// Only the cached copy is lost
+				}
+				this.out = null;
+				this.buffer = null;
+			}
+		}
+
+		public void close() {
+			// Rows that were not read to the end are not cached
+			this.discard();
+			try {
+				this.rs.close();
+			} catch (SQLException e) {
+				this.logger.log("Unable to close result: " + e.getMessage());
+			}
+		}
+	}
+
+	private void add(Entry entry) {
+		this.remove(entry.key);
+		this.entries.put(entry.key, entry);
+		this.bytes += entry.data.length;
+		this.evict();
+	}
+
+	private void remove(String key) {
+		Entry removed = this.entries.remove(key);
+		if (removed != null) {
+			this.bytes -= removed.data.length;
+		}
+	}
+
+	private void evict() {
+		Iterator<Entry> it = this.entries.values().iterator();
+		while (this.bytes > this.maxBytes && it.hasNext()) {
+			this.bytes -= it.next().data.length;
+			it.remove();
+		}
+	}
+
+	private File getFile(String key) {
+		File dir;
+		synchronized (this) {
+			dir = this.directory;
+		}
+		if (dir == null) {
+			return null;
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder();
+			for (int i = 0; i < 16; i++) {
+				name.append(String.format("%02x", digest[i]));
+			}
+			return new File(dir, name.append(".cache").toString());
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	private void writeFile(Entry entry, Logger logger) {
+		File file = this.getFile(entry.key);
+		if (file == null) {
+			return;
+		}
+		try {
+			Path temp = createPrivateFile(file.getParentFile().toPath());
+			try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+				out.writeInt(FILE_VERSION);
+				out.writeUTF(entry.key);
+				out.writeLong(entry.expires);
+				out.writeInt(entry.rows);
+				out.writeInt(entry.data.length);
+				out.write(entry.data);
+			}
+			// Readers in other processes never see a partly written file
+			Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.log("Unable to write cached result to " + file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Create a temporary file in a directory, readable and writable by its owner only, as the results are written to
+	 * it in the clear.
+	 */
+	private static Path createPrivateFile(Path dir) throws IOException {
+		if (dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			return Files.createTempFile(dir, "result", ".tmp",
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		}
+		// Such as Windows, where the file inherits the access control list of the directory
+		return Files.createTempFile(dir, "result", ".tmp");
+	}
+
+	private Entry readFile(String key, Logger logger) {
+		File file = this.getFile(key);
+		if (file == null || !file.isFile()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+			if (in.readInt() != FILE_VERSION || !in.readUTF().equals(key)) {
+				return null;
+			}
+			long expires = in.readLong();
+			int rows = in.readInt();
+			if (expires <= System.currentTimeMillis()) {
+				in.close();
+				file.delete();
+				return null;
+			}
+			byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			return new Entry(key, expires, data, rows);
+		} catch (IOException e) {
+			logger.log("Unable to read cached result from " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Write the columns of a result. Each row follows as <code>true</code> and its values, and the rows end with
+	 * <code>false</code>, so rows can be written before their number is known.
+	 */
+	private static void writeHeader(DataOutputStream out, ResultSetMetaData rsmd) throws IOException, SQLException {
+		int colCount = rsmd.getColumnCount();
+		out.writeInt(colCount);
+		for (int i = 1; i <= colCount; i++) {
+			out.writeUTF(rsmd.getColumnName(i));
+			out.writeUTF(rsmd.getColumnLabel(i));
+			out.writeInt(rsmd.getColumnType(i));
+			out.writeUTF(rsmd.getColumnTypeName(i));
+		}
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			out.writeByte(INT);
+			out.writeInt(((Number) value).intValue());
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Double || value instanceof Float) {
+			out.writeByte(DOUBLE);
+			out.writeDouble(((Number) value).doubleValue());
+		} else if (value instanceof BigDecimal || value instanceof BigInteger) {
+			out.writeByte(DECIMAL);
+			writeString(out, value instanceof BigDecimal ? ((BigDecimal) value).toString() : value.toString());
+		} else if (value instanceof Timestamp) {
+			out.writeByte(TIMESTAMP);
+			out.writeLong(((Timestamp) value).getTime());
+			out.writeInt(((Timestamp) value).getNanos());
+		} else if (value instanceof java.sql.Date) {
+			out.writeByte(DATE);
+			out.writeLong(((java.sql.Date) value).getTime());
+		} else if (value instanceof Time) {
+			out.writeByte(TIME);
+			out.writeLong(((Time) value).getTime());
+		} else if (value instanceof java.util.Date) {
+			out.writeByte(TIMESTAMP);
+			out.writeLong(((java.util.Date) value).getTime());
+			out.writeInt(0);
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof byte[]) {
+			out.writeByte(BYTES);
+			out.writeInt(((byte[]) value).length);
+			out.write((byte[]) value);
+		} else {
+			// Driver specific types are cached as text
+			out.writeByte(STRING);
+			writeString(out, value.toString());
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static ResultSet decode(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)));
+		int colCount = in.readInt();
+		String[] names = new String[colCount];
+		String[] labels = new String[colCount];
+		int[] types = new int[colCount];
+		String[] typeNames = new String[colCount];
+		for (int i = 0; i < colCount; i++) {
+			names[i] = in.readUTF();
+			labels[i] = in.readUTF();
+			types[i] = in.readInt();
+			typeNames[i] = in.readUTF();
+		}
+		// Rows are decoded as they are read, so a large result is never held decoded in full
+		return RowResultSet.create(new RowResultSetMetaData(names, labels, types, typeNames),
+				new RowResultSet.RowSource() {
+					public Object[] nextRow() throws SQLException {
+						Object[] values = new Object[colCount];
+						try {
+							if (!in.readBoolean()) {
+								return null;
+							}
+							for (int i = 0; i < colCount; i++) {
+								values[i] = readValue(in);
+							}
+						} catch (IOException e) {
+							throw new SQLException("Unable to read cached row", e);
+						}
+						return values;
+					}
+
+					public void close() {
+						// Releases the native inflater
+						try {
+							in.close();
+						} catch (IOException e) {
+							// Nothing to release
+						}
+					}
+				});
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case INT:
+			return in.readInt();
+		case LONG:
+			return in.readLong();
+		case DOUBLE:
+			return in.readDouble();
+		case DECIMAL:
+			return new BigDecimal(readString(in));
+		case TIMESTAMP:
+			Timestamp timestamp = new Timestamp(in.readLong());
+			timestamp.setNanos(in.readInt());
+			return timestamp;
+		case DATE:
+			return new java.sql.Date(in.readLong());
+		case TIME:
+			return new Time(in.readLong());
+		case BOOLEAN:
+			return in.readBoolean();
+		case BYTES:
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return bytes;
+		case STRING:
+			return readString(in);
+		default:
+			throw new IOException("Unknown value tag " + tag);
+		}
+	}
+}
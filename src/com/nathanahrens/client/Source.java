@@ -1,5 +1,7 @@
 package com.nathanahrens.client;
 
+import java.util.Properties;
+
 /**
  * Class defining a source (such as source of database). 
  * @author nahrens
@@ -9,6 +11,11 @@ public class Source {
 	private User user;
 	private String sourceURL;
 	private SourceType type;
+	private int fetchSize;
+	private int maxRows;
+	private int rowPrefetch;
+	private int lobPrefetch = -1;
+	private boolean adaptiveFetch;
 
 	/**
 	 * Defines the driver to use when connecting to the source.
@@ -69,4 +76,107 @@ public class Source {
 		}
 	}
 
+	/**
+	 * 
+	 * @return Return the number of rows to fetch per round trip, or 0 to use the driver default.
+	 */
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+
+	/**
+	 * 
+	 * @param fetchSize Number of rows to fetch per round trip, or 0 to use the driver default.
+	 */
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * 
+	 * @return Return the maximum number of rows a query may return, or 0 for no limit.
+	 */
+	public int getMaxRows() {
+		return this.maxRows;
+	}
+
+	/**
+	 * 
+	 * @param maxRows Maximum number of rows a query may return, or 0 for no limit.
+	 */
+	public void setMaxRows(int maxRows) {
+		this.maxRows = maxRows;
+	}
+
+	/**
+	 * 
+	 * @return Return the default row prefetch of the connection (Oracle only), or 0 to use the driver default.
+	 */
+	public int getRowPrefetch() {
+		return this.rowPrefetch;
+	}
+
+	/**
+	 * 
+	 * @param rowPrefetch Default row prefetch of the connection (Oracle only), or 0 to use the driver default.
+	 */
+	public void setRowPrefetch(int rowPrefetch) {
+		this.rowPrefetch = rowPrefetch;
+	}
+
+	/**
+	 * 
+	 * @return Return the number of LOB bytes prefetched with each row (Oracle only), or -1 to use the driver
+	 *         default.
+	 */
+	public int getLobPrefetch() {
+		return this.lobPrefetch;
+	}
+
+	/**
+	 * 
+	 * @param lobPrefetch Number of LOB bytes prefetched with each row (Oracle only), or -1 to use the driver
+	 *                    default.
+	 */
+	public void setLobPrefetch(int lobPrefetch) {
+		this.lobPrefetch = lobPrefetch;
+	}
+
+	/**
+	 * 
+	 * @return Return true if the fetch size is picked from the width of the rows returned by each query.
+	 */
+	public boolean isAdaptiveFetch() {
+		return this.adaptiveFetch;
+	}
+
+	/**
+	 * 
+	 * @param adaptiveFetch If true, the fetch size is picked from the width of the rows returned by each query,
+	 *                      rather than using {@link #getFetchSize()}.
+	 */
+	public void setAdaptiveFetch(boolean adaptiveFetch) {
+		this.adaptiveFetch = adaptiveFetch;
+	}
+
+	/**
+	 * 
+	 * @return Return the properties to use when connecting to the source, including the user and any driver
+	 *         specific prefetch settings.
+	 */
+	public Properties getConnectionProperties() {
+		Properties props = new Properties();
+		props.setProperty("user", this.user.getUserName());
+		props.setProperty("password", this.user.getPassword());
+		if (this.type == SourceType.ORACLE) {
+			if (this.rowPrefetch > 0) {
+				props.setProperty("defaultRowPrefetch", Integer.toString(this.rowPrefetch));
+			}
+			if (this.lobPrefetch >= 0) {
+				props.setProperty("oracle.jdbc.defaultLobPrefetchSize", Integer.toString(this.lobPrefetch));
+			}
+		}
+		return props;
+	}
+
 }
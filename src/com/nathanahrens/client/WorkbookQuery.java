@@ -0,0 +1,318 @@
+package com.nathanahrens.client;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.poi.ss.util.WorkbookUtil;
+
+import com.nathanahrens.log.Logger;
+import com.nathanahrens.metrics.QueryMetrics;
+import com.nathanahrens.resultset.DataExportExcelWriter;
+import com.nathanahrens.resultset.RowResultSet;
+import com.nathanahrens.resultset.RowResultSetMetaData;
+
+/**
+ * <p>Runs several named queries at once, each on its own connection, and writes the results of each query to its own
+ * sheet of a single Excel workbook, which is written to the file once every query is done.</p>
+ * <p>The queries fetch their rows on their own threads into a shared queue of batches. POI workbooks are not thread
+ * safe, so the calling thread writes each batch to the sheet of its query as the batches arrive. The export takes
+ * about as long as the slowest query (or as writing all the rows, if that takes longer) rather than the sum of the
+ * queries. At most as many queries run at once as the {@link ConnectionPool} allows connections to the source, the
+ * others start as the first ones finish.</p>
+ * @author nahrens
+ *
+ */
+public class WorkbookQuery {
+	private static final int BATCH_SIZE = 500;
+	private static final int QUEUE_BATCHES = 16;
+
+	private final Source source;
+	private final Logger logger;
+	private final List<NamedQuery> queries = new ArrayList<NamedQuery>();
+	private final BlockingQueue<Batch> queue;
+	private ExecutorService executor;
+	private String metricsName;
+
+	/**
+	 * Rows fetched by a query, or the end of its rows if <code>rows</code> is null.
+	 */
+	private static class Batch {
+		private final NamedQuery query;
+		private final List<Object[]> rows;
+
+		private Batch(NamedQuery query, List<Object[]> rows) {
+			this.query = query;
+			this.rows = rows;
+		}
+	}
+
+	/**
+	 * A single query of the workbook, run on its own connection by its own thread.
+	 */
+	private class NamedQuery implements Runnable {
+		private final String name;
+		private final String sql;
+		private volatile PreparedStatement stmt;
+		private volatile RowResultSetMetaData rsmd;
+		private volatile SQLException error;
+		private volatile boolean cancelled;
+		private long rows;
+		private long executeNanos;
+		private long fetchNanos;
+		// Only used by the thread writing the workbook
+		private DataExportExcelWriter.SheetWriter writer;
+
+		private NamedQuery(String name, String sql) {
+			this.name = name;
+			this.sql = sql;
+		}
+
+		public void run() {
+			QueryMetrics metrics = QueryMetrics.getInstance();
+			String url = source.getSourceURL();
+			String metricsQuery = metricsName == null ? this.name : metricsName + "/" + this.name;
+			Connection conn = null;
+			try {
+				long connectTime = System.nanoTime();
+				conn = ConnectionPool.getInstance().borrow(source, logger);
+				long prepareTime = System.nanoTime();
+				metrics.observe(url, metricsQuery, QueryMetrics.Phase.CONNECT, prepareTime - connectTime);
+				this.stmt = conn.prepareStatement(this.sql);
+				if (source.getFetchSize() > 0) {
+					this.stmt.setFetchSize(source.getFetchSize());
+				}
+				if (source.getMaxRows() > 0) {
+					this.stmt.setMaxRows(source.getMaxRows());
+				}
+				long startTime = System.nanoTime();
+				metrics.observe(url, metricsQuery, QueryMetrics.Phase.PREPARE, startTime - prepareTime);
+				ResultSet rs = this.stmt.executeQuery();
+				long executedTime = System.nanoTime();
+				this.executeNanos = executedTime - startTime;
+				metrics.observe(url, metricsQuery, QueryMetrics.Phase.EXECUTE, this.executeNanos);
+				rs = metrics.meter(rs, url, metricsQuery);
+				this.rsmd = RowResultSetMetaData.copyOf(rs.getMetaData());
+				int colCount = this.rsmd.getColumnCount();
+				List<Object[]> batch = new ArrayList<Object[]>(BATCH_SIZE);
+				while (!this.cancelled && rs.next()) {
+					batch.add(RowResultSet.readRow(rs, colCount));
+					this.rows++;
+					if (batch.size() == BATCH_SIZE) {
+						queue.put(new Batch(this, batch));
+						batch = new ArrayList<Object[]>(BATCH_SIZE);
+					}
+				}
+				if (!batch.isEmpty()) {
+					queue.put(new Batch(this, batch));
+				}
+				this.fetchNanos = System.nanoTime() - executedTime;
+				rs.close();
+			} catch (SQLException e) {
+				this.error = e;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				if (this.stmt != null) {
+					try {
+						this.stmt.close();
+					} catch (SQLException e) {
+						logger.log("Unable to close statement of " + this.name + ": " + e.getMessage());
+					}
+				}
+				if (conn != null) {
+					ConnectionPool.getInstance().release(conn);
+				}
+				try {
+					queue.put(new Batch(this, null));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		private void cancel() {
+			this.cancelled = true;
+			PreparedStatement running = this.stmt;
+			if (running != null) {
+				try {
+					running.cancel();
+				} catch (SQLException e) {
+					// Statement already complete or closed
+				}
+			}
+		}
+	}
+
+	/**
+	 * Serves the rows of a single batch to a {@link DataExportExcelWriter.SheetWriter}.
+	 */
+	private static class BatchRows implements RowResultSet.RowSource {
+		private final List<Object[]> rows;
+		private int position;
+
+		private BatchRows(List<Object[]> rows) {
+			this.rows = rows;
+		}
+
+		public Object[] nextRow() {
+			return this.position < this.rows.size() ? this.rows.get(this.position++) : null;
+		}
+
+		public void close() {
+		}
+	}
+
+	/**
+	 *
+	 * @param source  Source to run the queries against.
+	 * @param names   Names of the queries, used as the names of their sheets. Must be unique, ignoring case, once
+	 *                shortened to the 31 characters Excel allows.
+	 * @param sqls    SQL queries to run, one per name.
+	 * @param logger  Logger to write query timings to.
+	 */
+	public WorkbookQuery(Source source, List<String> names, List<String> sqls, Logger logger) {
+		if (names.size() != sqls.size()) {
+			throw new IllegalArgumentException("Every query needs a name");
+		}
+		this.source = source;
+		this.logger = logger;
+		Set<String> sheetNames = new HashSet<String>();
+		for (int i = 0; i < names.size(); i++) {
+			String name = names.get(i);
+			if (name == null) {
+				throw new IllegalArgumentException("Every query needs a name");
+			}
+			// Compare the names of the sheets, which may be shortened, the way Excel does, ignoring case
+			if (!sheetNames.add(WorkbookUtil.createSafeSheetName(name).toLowerCase(Locale.ROOT))) {
+				throw new IllegalArgumentException("Duplicate sheet name for query: " + name);
+			}
+			this.queries.add(new NamedQuery(name, sqls.get(i)));
+		}
+		this.queue = new ArrayBlockingQueue<Batch>(QUEUE_BATCHES * Math.max(1, this.queries.size()));
+	}
+
+	/**
+	 * Set the name the queries are recorded under in the {@link QueryMetrics}. Each query is recorded as the name
+	 * followed by a slash and the name of the query.
+	 * @param metricsName Name of the queries, or null to record each query under its own name only.
+	 */
+	public void setMetricsName(String metricsName) {
+		this.metricsName = metricsName;
+	}
+
+	/**
+	 * Run the queries and save their results to an Excel file, each to its own sheet in the order the queries were
+	 * given. If any query fails, the others are cancelled and no file is written.
+	 * @param excel    Writer to build the workbook with.
+	 * @param filePath File path to save Excel file to.
+	 * @param saveSql  If true, adds a sheet listing the sheets, their rows and queries.
+	 * @return long Number of data rows written, over all queries.
+	 * @throws IOException  When unable to write the Excel file.
+	 * @throws SQLException When any query fails.
+	 */
+	public long save(DataExportExcelWriter excel, String filePath, boolean saveSql) throws IOException, SQLException {
+		int threads = Math.min(this.queries.size(), ConnectionPool.getInstance().getMaxSize());
+		this.logger.log(String.format("Running %d queries, %d at a time...", this.queries.size(), threads));
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			Thread thread = new Thread(runnable, "WorkbookQuery");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (NamedQuery query : this.queries) {
+			// Rollover sheets of other queries must not take the name before the first rows of the query arrive
+			excel.reserveSheetName(query.name);
+			this.executor.execute(query);
+		}
+		this.executor.shutdown();
+
+		boolean written = false;
+		try {
+			this.writeSheets(excel);
+			written = true;
+		} finally {
+			if (!written) {
+				// Failed for any reason, stop the other queries rather than leave them fetching
+				this.close();
+			}
+		}
+		this.report();
+
+		List<DataExportExcelWriter.SheetWriter> writers = new ArrayList<DataExportExcelWriter.SheetWriter>();
+		long rows = 0;
+		for (NamedQuery query : this.queries) {
+			writers.add(query.writer);
+			rows += query.writer.getRows();
+		}
+		excel.saveWorkbook(filePath, writers, saveSql);
+		return rows;
+	}
+
+	/**
+	 * Write the batches to the sheets of their queries as they arrive, until every query is done.
+	 */
+	private void writeSheets(DataExportExcelWriter excel) throws SQLException {
+		int finished = 0;
+		while (finished < this.queries.size()) {
+			Batch batch;
+			try {
+				batch = this.queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for rows", e);
+			}
+			NamedQuery query = batch.query;
+			if (batch.rows == null) {
+				finished++;
+				if (query.error != null) {
+					throw query.error;
+				}
+				if (query.rsmd == null) {
+					throw new SQLException("Query " + query.name + " did not complete");
+				}
+			}
+			if (query.writer == null) {
+				// The first rows (or the end of an empty result) of the query
+				query.writer = excel.createSheetWriter(query.name, query.sql, query.rsmd);
+			}
+			if (batch.rows != null) {
+				query.writer.write(RowResultSet.create(query.rsmd, new BatchRows(batch.rows)));
+			}
+		}
+	}
+
+	/**
+	 * Log the timings of each query.
+	 */
+	private void report() {
+		for (NamedQuery query : this.queries) {
+			this.logger.log(String.format("%s: %,d rows, executed in %,.3f seconds, fetched in %,.3f seconds",
+					query.name, query.rows, query.executeNanos / 1000000000.0, query.fetchNanos / 1000000000.0));
+		}
+	}
+
+	/**
+	 * Cancel any queries that are still running.
+	 */
+	public void close() {
+		for (NamedQuery query : this.queries) {
+			query.cancel();
+		}
+		// Unblock any query waiting on a full queue
+		this.queue.clear();
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+		}
+	}
+}
@@ -6,6 +6,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.LinkedList;
 
 import org.kohsuke.args4j.CmdLineException;
@@ -14,11 +17,16 @@ import org.kohsuke.args4j.Option;
 
 import com.nathanahrens.client.Client;
 import com.nathanahrens.client.IClient;
+import com.nathanahrens.client.OutputFormat;
+import com.nathanahrens.client.PartitionedQuery;
+import com.nathanahrens.client.ResultCache;
 import com.nathanahrens.client.Source;
 import com.nathanahrens.client.User;
 import com.nathanahrens.log.Logger;
+import com.nathanahrens.metrics.QueryMetrics;
 import com.nathanahrens.pwsafe.Credential;
 import com.nathanahrens.pwsafe.SafeWrapper;
+import com.nathanahrens.resultset.DataExportExcelWriter;
 
 public class DbCliClient {
 
@@ -35,10 +43,34 @@ public class DbCliClient {
 	private String vaultTitle;
 	private Credential sourceCred;
 	private String outputFile;
+	private OutputFormat format;
+	private int rowWindow;
+	private ZoneId timeZone;
+	private ChronoUnit timestampPrecision;
+	private int sheetRowLimit;
+	private boolean pipelined;
+	private long cacheTtl;
+	private int fetchSize;
+	private int maxRows;
+	private int rowPrefetch;
+	private int lobPrefetch = -1;
+	private boolean adaptiveFetch;
+	private String partitionColumn;
+	private int partitions;
+	private PartitionedQuery.PartitionMode partitionMode = PartitionedQuery.PartitionMode.RANGE;
+	private boolean orderedPartitions;
+	private String cacheDir;
+	private String metricsFile;
 	private boolean showStatus;
+	private boolean showResults;
+	private int concurrency;
+	private int perSourceLimit;
+	private boolean virtualThreads;
 	private Logger logger;
 	private String logFile;
 	private boolean help;
+	// Set while parsing, for the setters to report invalid values with
+	private CmdLineParser parser;
 	
 	public DbCliClient() {
 		this.logger = new Logger();
@@ -57,9 +89,29 @@ public class DbCliClient {
 	private void runClient(Source.SourceType type,String jdbcUrl) {
 		Source source = new Source(jdbcUrl, new User(this.sourceCred.getUsername(), this.sourceCred.getPassword()),
 				type);
+		source.setFetchSize(this.fetchSize);
+		source.setMaxRows(this.maxRows);
+		source.setRowPrefetch(this.rowPrefetch);
+		source.setLobPrefetch(this.lobPrefetch);
+		source.setAdaptiveFetch(this.adaptiveFetch);
 		IClient cli = new Client(source,this.logger);
-		cli.query(getSqlFromFile(this.sqlFile));
-		cli.saveExcel(this.outputFile, true);
+		cli.setMetricsName(new File(this.sqlFile).getName());
+		cli.setFormat(this.format);
+		cli.setRowWindow(this.rowWindow);
+		cli.setExcelDates(this.timeZone, this.timestampPrecision);
+		cli.setSheetRowLimit(this.sheetRowLimit);
+		cli.setPipelined(this.pipelined);
+		cli.setCacheTtl(this.cacheTtl);
+		cli.setPartitioning(this.partitionColumn, this.partitions, this.partitionMode, this.orderedPartitions);
+		if (!cli.query(getSqlFromFile(this.sqlFile))) {
+			cli.close();
+			System.exit(-1);
+		}
+		boolean saved = cli.save(this.outputFile, true);
+		cli.close();
+		if (!saved) {
+			System.exit(-1);
+		}
 	}
 
 	public void driveOracle() {
@@ -85,26 +137,51 @@ public class DbCliClient {
 	}
 
 	public void parseArgs(String[] args) {
-		CmdLineParser parser = new CmdLineParser(this);
+		this.parser = new CmdLineParser(this);
 		
 		try {
-			parser.parseArgument(args);
+			this.parser.parseArgument(args);
+			if (this.cacheDir != null) {
+				File dir = new File(this.cacheDir);
+				if (dir.isDirectory() || dir.mkdirs()) {
+					ResultCache.getInstance().setDirectory(dir);
+				} else {
+					this.logger.log(this.cacheDir + " is not a directory, results are only cached in memory.");
+				}
+			}
+			if (this.metricsFile != null) {
+				QueryMetrics.getInstance().setFile(new File(this.metricsFile));
+			}
 			if (this.help) {
 				this.logger.log("This app provides 2 different modes to operate from: CLI and QueryTest.");
 				this.logger.log("CLI mode means you must provide all the details of the query to run (and output) as command line arguments.");
 				this.logger.log("QueryTest mode means the details of the query to run and the output are described in .json files in the local directory.");
 				this.logger.log("Usage:");
-				parser.printUsage(this.logger.getPrintStream());
-			} else if (args.length < 1 || this.showStatus) {
+				this.parser.printUsage(this.logger.getPrintStream());
+			} else if (args.length < 1 || this.showStatus || this.sqlFile == null) {
 				// Run QueryTest version
 				LinkedList<String> arr = new LinkedList<String>();
 				if (this.showStatus) {
 					arr.add("--showStatus");
 				}
+				if (this.showResults) {
+					arr.add("--showResults");
+				}
 				if (this.logFile != null) {
 					arr.add("--log");
 					arr.add(this.logFile);
 				}
+				if (this.concurrency > 0) {
+					arr.add("--concurrency");
+					arr.add(Integer.toString(this.concurrency));
+				}
+				if (this.perSourceLimit > 0) {
+					arr.add("--perSourceLimit");
+					arr.add(Integer.toString(this.perSourceLimit));
+				}
+				if (this.virtualThreads) {
+					arr.add("--virtualThreads");
+				}
 				QueryTestDriver.main(arr.toArray(new String[arr.size()]));
 			} else {
 				// Run CLI version
@@ -116,7 +193,7 @@ public class DbCliClient {
 		} catch (CmdLineException e) {
 			this.logger.log("ERROR: Unable to parse command line options: " + e);
 			this.logger.log("Usage:");
-			parser.printUsage(this.logger.getPrintStream());
+			this.parser.printUsage(this.logger.getPrintStream());
 		} catch (FileNotFoundException e) {
 			this.logger.log("ERROR: Unable to set the log file!");
 			e.printStackTrace(this.logger.getPrintStream());
@@ -202,16 +279,134 @@ public class DbCliClient {
 		this.vaultTitle = vaultTitle;
 	}
 
-	@Option(name = "--outputFile", depends= {"--sqlFile","--vaultFile","--vaultPassword","--vaultPassword","--vaultTitle","--host"}, usage = "Required: Set the output file XLSX to write the SQL results to (.xlsx).")
+	@Option(name = "--outputFile", depends= {"--sqlFile","--vaultFile","--vaultPassword","--vaultPassword","--vaultTitle","--host"}, usage = "Required: Set the output file to write the SQL results to (.xlsx, or see --format).")
 	public void setOutputFile(String filePath) {
 		this.outputFile = filePath;
 	}
 	
+	@Option(name = "--format", usage = "Optional: Set the format of the output file, XLSX, COLUMNAR, CSV or TSV. Default is picked from the extension of the output file (.xlsx, .dbxc, .csv, .tsv).")
+	public void setFormat(OutputFormat format) {
+		this.format = format;
+	}
+	
+	@Option(name = "--rowWindow", usage = "Optional: Stream the Excel output, keeping only this many rows in memory at a time. Use for large extracts.")
+	public void setRowWindow(int rowWindow) {
+		this.rowWindow = rowWindow;
+	}
+	
+	@Option(name = "--sheetRows", usage = "Optional: Continue the Excel output on a new sheet after this many rows. Default is the row limit of Excel (1,048,575 rows after the header).")
+	public void setSheetRowLimit(int sheetRowLimit) {
+		this.sheetRowLimit = sheetRowLimit;
+	}
+	
+	@Option(name = "--timeZone", usage = "Optional: Write dates to Excel as the local time in this time zone (i.e., UTC, America/Chicago). Default is the time zone of the machine.")
+	public void setTimeZone(String timeZone) throws CmdLineException {
+		try {
+			this.timeZone = ZoneId.of(timeZone);
+		} catch (DateTimeException e) {
+			throw new CmdLineException(this.parser, "Unknown time zone for --timeZone: " + timeZone, e);
+		}
+	}
+	
+	@Option(name = "--timestampPrecision", usage = "Optional: Truncate TIMESTAMP values written to Excel to SECONDS, MILLIS, MICROS or NANOS. Default MILLIS.")
+	public void setTimestampPrecision(ChronoUnit timestampPrecision) throws CmdLineException {
+		if (!DataExportExcelWriter.TIMESTAMP_PRECISIONS.contains(timestampPrecision)) {
+			throw new CmdLineException(this.parser, "Unsupported --timestampPrecision " + timestampPrecision
+					+ ", use SECONDS, MILLIS, MICROS or NANOS");
+		}
+		this.timestampPrecision = timestampPrecision;
+	}
+	
+	@Option(name = "--pipeline", usage = "Optional: Fetch rows from the source on a separate thread while the output is written.")
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+	
+	@Option(name = "--cacheTtl", usage = "Optional: Re-use the result of the same query against the same source for this many seconds (see --cacheDir). QueryTests set \"cacheTtl\" in their .json file.")
+	public void setCacheTtl(long cacheTtl) {
+		this.cacheTtl = cacheTtl;
+	}
+	
+	@Option(name = "--cacheDir", usage = "Optional: Keep cached query results in this directory, so later runs can re-use them. Otherwise results are only cached in memory. The results are written unencrypted, in files readable by their owner only: use a directory private to the user running the queries.")
+	public void setCacheDir(String cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+	
+	@Option(name = "--metricsFile", usage = "Optional: Record the time of each phase of the queries (connect, prepare, execute, first row, fetch, export), the rows and the bytes written, per source and query (the QueryTest title, or the name of the SQL file), and write them to this file in the Prometheus text format after each query.")
+	public void setMetricsFile(String metricsFile) {
+		this.metricsFile = metricsFile;
+	}
+	
+	@Option(name = "--fetchSize", usage = "Optional: Set the number of rows fetched from the source per round trip.")
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+	
+	@Option(name = "--maxRows", usage = "Optional: Set the maximum number of rows the query may return.")
+	public void setMaxRows(int maxRows) {
+		this.maxRows = maxRows;
+	}
+	
+	@Option(name = "--rowPrefetch", usage = "Oracle: Set the default row prefetch of the connection.")
+	public void setRowPrefetch(int rowPrefetch) {
+		this.rowPrefetch = rowPrefetch;
+	}
+	
+	@Option(name = "--lobPrefetch", usage = "Oracle: Set the number of LOB bytes prefetched with each row.")
+	public void setLobPrefetch(int lobPrefetch) {
+		this.lobPrefetch = lobPrefetch;
+	}
+	
+	@Option(name = "--adaptiveFetch", forbids = { "--fetchSize" }, usage = "Optional: Pick the fetch size from the width of the rows returned by the query.")
+	public void setAdaptiveFetch(boolean adaptiveFetch) {
+		this.adaptiveFetch = adaptiveFetch;
+	}
+	
+	@Option(name = "--partitionColumn", depends = { "--partitions" }, usage = "Optional: Run the query as several slices at once, split on this column (use {partition} in the SQL to place the split predicate yourself).")
+	public void setPartitionColumn(String partitionColumn) {
+		this.partitionColumn = partitionColumn;
+	}
+	
+	@Option(name = "--partitions", depends = { "--partitionColumn" }, usage = "Optional: Set the number of slices to run at once, each on its own connection.")
+	public void setPartitions(int partitions) {
+		this.partitions = partitions;
+	}
+	
+	@Option(name = "--partitionMode", depends = { "--partitionColumn" }, usage = "Optional: Split the partition column into equal value RANGEs (numeric or date columns in the select list), or by HASH (any column, including ROWID on Oracle). Default RANGE.")
+	public void setPartitionMode(PartitionedQuery.PartitionMode partitionMode) {
+		this.partitionMode = partitionMode;
+	}
+	
+	@Option(name = "--orderedPartitions", depends = { "--partitionColumn" }, usage = "Optional: Write the slices one after another in order (RANGE slices are ordered by the partition column), rather than as rows arrive.")
+	public void setOrderedPartitions(boolean orderedPartitions) {
+		this.orderedPartitions = orderedPartitions;
+	}
+	
 	@Option(name = "--showStatus",usage="Show a status message when app starts to show that it is running. Only used when executing in QueryTest mode (using .json files).")
 	public void setShowStatus(boolean status) {
 		this.showStatus = status;
 	}
 	
+	@Option(name = "--showResults", usage = "Show the results of each QueryTest in a dialog once it has run, for interactive use. Results are always logged. Only used when executing in QueryTest mode (using .json files).")
+	public void setShowResults(boolean showResults) {
+		this.showResults = showResults;
+	}
+	
+	@Option(name = "--concurrency", usage = "Set the maximum number of QueryTests to run at once. Only used when executing in QueryTest mode (using .json files).")
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+	
+	@Option(name = "--perSourceLimit", usage = "Set the maximum number of QueryTests to run at once against the same database. Only used when executing in QueryTest mode (using .json files).")
+	public void setPerSourceLimit(int perSourceLimit) {
+		this.perSourceLimit = perSourceLimit;
+	}
+	
+	@Option(name = "--virtualThreads", usage = "Run QueryTests on virtual threads (Java 21 or later). Only used when executing in QueryTest mode (using .json files).")
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+	
 	@Option(name = "--log",usage="Set log file. For CLI mode, this should be a file (i.e., dbclient.log). For QueryTest mode, this should be a directory to write logs to.")
 	public void setLogFile(String filePath) {
 		this.logFile = filePath;
@@ -31,6 +31,7 @@ public class JavaClient {
 	private String vaultGroup;
 	private String vaultTitle;
 	private Credential sourceCred;
+	private IClient cli;
 	private ResultSet rs;
 
 	private void evaluateResultSet() {
@@ -66,9 +67,9 @@ public class JavaClient {
 	private void runClient(Source.SourceType type, String jdbcUrl) {
 		Source source = new Source(jdbcUrl, new User(this.sourceCred.getUsername(), this.sourceCred.getPassword()),
 				type);
-		IClient cli = new Client(source,new Logger());
-		cli.query(this.sql);
-		this.rs = cli.getResultSet();
+		this.cli = new Client(source,new Logger());
+		this.cli.query(this.sql);
+		this.rs = this.cli.getResultSet();
 	}
 
 	public void driveOracle() {
@@ -127,6 +128,7 @@ public class JavaClient {
 			this.driveOracle();
 		}
 		this.evaluateResultSet();
+		this.cli.close();
 	}
 
 	public static void main(String[] args) {
@@ -7,23 +7,35 @@ import java.io.IOException;
 import java.io.Reader;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
+import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import com.nathanahrens.client.Client;
 import com.nathanahrens.client.IClient;
+import com.nathanahrens.client.OutputFormat;
+import com.nathanahrens.client.PartitionedQuery;
 import com.nathanahrens.client.Source;
 import com.nathanahrens.client.User;
 import com.nathanahrens.log.Logger;
 import com.nathanahrens.pwsafe.Credential;
 import com.nathanahrens.pwsafe.SafeWrapper;
+import com.nathanahrens.resultset.DataExportExcelWriter;
 
 public class QueryTest {
 	private String sql;
+	private List<String> queryNames;
+	private List<String> querySqls;
 	private String host;
 	private String ldapServer;
 	private String ldapContext;
@@ -36,47 +48,145 @@ public class QueryTest {
 	private String vaultTitle;
 	private String title;
 	private String outputFile;
+	private OutputFormat format;
+	private int rowWindow;
+	private ZoneId timeZone;
+	private ChronoUnit timestampPrecision;
+	private int sheetRowLimit;
+	private boolean pipelined;
+	private long cacheTtl;
+	private int fetchSize;
+	private int maxRows;
+	private int rowPrefetch;
+	private int lobPrefetch = -1;
+	private boolean adaptiveFetch;
+	private boolean showResults;
+	// Results of the last run, for the summary and the results dialog
+	private final List<String> results = new ArrayList<String>();
+	private String partitionColumn;
+	private int partitions;
+	private PartitionedQuery.PartitionMode partitionMode = PartitionedQuery.PartitionMode.RANGE;
+	private boolean orderedPartitions;
 	
 	private Credential sourceCred;
+	private IClient cli;
 	private ResultSet rs;
 	private Logger logger;
 
+	/**
+	 * Load a QueryTest from a .json file. The test is not run until {@link #run()} is called.
+	 * @param jsonFile File describing the query to run and where to write the results.
+	 * @param logger Logger to write progress to.
+	 */
 	public QueryTest(File jsonFile, Logger logger) {
 		super();
 		this.logger = logger;
 		// Load parameters
 		this.readJsonFile(jsonFile);
+	}
 
+	/**
+	 * Run the query and evaluate (or save) the results.
+	 * @return boolean True if the query ran and its results were evaluated or saved, else false.
+	 */
+	public boolean run() {
+		boolean success;
+		this.results.clear();
 		// Run client
 		this.setCredential(this.vaultGroup, this.vaultTitle);
 		if (this.ldapServer == null && this.domain == null) {
 			this.logger.log("Must provide details for either Oracle source or Composite source.");
-			System.exit(-1);
+			return false;
+		}
+		if (this.queryNames != null && this.outputFile == null) {
+			this.logger.log("Must provide an outputFile to write the queries to.");
+			return false;
 		}
 		if (this.domain != null) {
-			this.driveComposite();
+			success = this.driveComposite();
 		} else {
-			this.driveOracle();
+			success = this.driveOracle();
+		}
+		if (!success) {
+			this.cli.close();
+			return false;
 		}
 
+		// Evaluate results
 		if (this.outputFile == null) {
-			this.evaluateResultSet();
+			success = this.evaluateResultSet();
+			this.cli.close();
 		} else {
-			JOptionPane.showMessageDialog(
-					null, String.format("%s\n-----------\nHost: %s\n-----------\n" + "File written to %s",
-							this.title, this.host, this.outputFile),
-					"QueryTest Results", JOptionPane.INFORMATION_MESSAGE);
+			this.results.add("File written to " + this.outputFile);
 		}
-		// Evaluate results
+		if (this.showResults) {
+			this.showResults();
+		}
+		return success;
+	}
+
+	/**
+	 * Show the results in a dialog, once the connection has been given back. The dialog is shown on the event
+	 * dispatch thread, so the worker running the test does not wait for it to be closed.
+	 */
+	private void showResults() {
+		final String message = String.format("%s\n-----------\nHost: %s\n-----------\n%s", this.title, this.host,
+				String.join("\n", this.results));
+		SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, message, "QueryTest Results",
+				JOptionPane.INFORMATION_MESSAGE));
+	}
+
+	/**
+	 * Show the results of the test in a dialog once it has run. Off by default, so unattended runs are never held
+	 * up waiting for a dialog.
+	 * @param showResults If true, show a dialog of the results.
+	 */
+	public void setShowResults(boolean showResults) {
+		this.showResults = showResults;
+	}
+
+	/**
+	 * 
+	 * @return List Results of the last run: the value of each row evaluated, or the file written.
+	 */
+	public List<String> getResults() {
+		return this.results;
+	}
+
+	/**
+	 * 
+	 * @return String Title of the QueryTest (the name of the .json file if no title is given).
+	 */
+	public String getTitle() {
+		return this.title;
 	}
 
-	private void evaluateResultSet() {
+	/**
+	 * 
+	 * @return String Key identifying the database the QueryTest queries.
+	 */
+	public String getSourceKey() {
+		if (this.domain != null) {
+			return this.host + ":" + this.port + "/" + this.domain + "/" + this.dataSource;
+		}
+		return this.host;
+	}
+
+	/**
+	 * 
+	 * @param logger Logger to write progress to.
+	 */
+	public void setLogger(Logger logger) {
+		this.logger = logger;
+	}
+
+	private boolean evaluateResultSet() {
 		int colCount;
 		try {
 			colCount = this.rs.getMetaData().getColumnCount();
 			if (colCount != 1) {
 				this.logger.log("Invalid query - must return 1 column of type number!");
-				return;
+				return false;
 			}
 			for (int r = 1; this.rs.next(); r++) {
 
@@ -88,47 +198,68 @@ public class QueryTest {
 				 */
 
 				int result = this.rs.getInt(1);
-				this.logger.log(String.format("Row %d results: %d", r, result));
-				
-				JOptionPane.showMessageDialog(
-						null, String.format("%s\n-----------\nHost: %s\n-----------\n" + "Row %d results: %d",
-								this.title, this.host, r, result),
-						"QueryTest Results", JOptionPane.INFORMATION_MESSAGE);
-
+				String line = String.format("Row %d results: %d", r, result);
+				this.logger.log(line);
+				this.results.add(line);
 			}
 		} catch (SQLException e) {
 			e.printStackTrace(this.logger.getPrintStream());
+			return false;
 		}
-
+		return true;
 	}
 
-	private void runClient(Source.SourceType type, String jdbcUrl) {
+	private boolean runClient(Source.SourceType type, String jdbcUrl) {
 		Source source = new Source(jdbcUrl, new User(this.sourceCred.getUsername(), this.sourceCred.getPassword()),
 				type);
-		IClient cli = new Client(source, this.logger);
-		cli.query(this.sql);
+		source.setFetchSize(this.fetchSize);
+		source.setMaxRows(this.maxRows);
+		source.setRowPrefetch(this.rowPrefetch);
+		source.setLobPrefetch(this.lobPrefetch);
+		source.setAdaptiveFetch(this.adaptiveFetch);
+		this.cli = new Client(source, this.logger);
+		this.cli.setMetricsName(this.title);
+		this.cli.setFormat(this.format);
+		this.cli.setRowWindow(this.rowWindow);
+		this.cli.setExcelDates(this.timeZone, this.timestampPrecision);
+		this.cli.setSheetRowLimit(this.sheetRowLimit);
+		this.cli.setPipelined(this.pipelined);
+		this.cli.setCacheTtl(this.cacheTtl);
+		this.cli.setPartitioning(this.partitionColumn, this.partitions, this.partitionMode, this.orderedPartitions);
+		if (this.queryNames != null) {
+			// Each query is written to its own sheet of the output file
+			boolean saved = this.cli.saveWorkbook(this.outputFile, this.queryNames, this.querySqls, true);
+			this.cli.close();
+			return saved;
+		}
+		if (!this.cli.query(this.sql)) {
+			return false;
+		}
 		if (this.outputFile == null) {
-			this.rs = cli.getResultSet();
+			this.rs = this.cli.getResultSet();
 		} else {
-			cli.saveExcel(this.outputFile, true);
+			boolean saved = this.cli.save(this.outputFile, true);
+			this.cli.close();
+			return saved;
 		}
+		return true;
 	}
 
-	private void driveOracle() {
+	private boolean driveOracle() {
 		this.logger.log("Oracle source...");
 		String jdbcUrl = "jdbc:oracle:thin:@ldap://" + this.ldapServer + "/" + this.host + "," + this.ldapContext;
 		this.logger.log("JDBC URL: " + jdbcUrl);
 
-		this.runClient(Source.SourceType.ORACLE, jdbcUrl);
+		return this.runClient(Source.SourceType.ORACLE, jdbcUrl);
 	}
 
-	private void driveComposite() {
+	private boolean driveComposite() {
 		this.logger.log("Composite source...");
 		String jdbcUrl = "jdbc:compositesw:dbapi@" + this.host + ":" + this.port + "?domain=" + this.domain
 				+ "&dataSource=" + this.dataSource;
 		this.logger.log("JDBC URL: " + jdbcUrl);
 
-		this.runClient(Source.SourceType.COMPOSITE, jdbcUrl);
+		return this.runClient(Source.SourceType.COMPOSITE, jdbcUrl);
 	}
 
 	private void setCredential(String group, String title) {
@@ -140,6 +271,16 @@ public class QueryTest {
 	private void writeJsonFile(File file) {
 		JSONObject obj = new JSONObject();
 		obj.put("sql", this.sql);
+		if (this.queryNames != null) {
+			JSONArray queries = new JSONArray();
+			for (int i = 0; i < this.queryNames.size(); i++) {
+				JSONObject query = new JSONObject();
+				query.put("name", this.queryNames.get(i));
+				query.put("sql", this.querySqls.get(i));
+				queries.add(query);
+			}
+			obj.put("queries", queries);
+		}
 		obj.put("host", this.host);
 		obj.put("ldapServer", this.ldapServer);
 		obj.put("ldapContext", this.ldapContext);
@@ -150,6 +291,22 @@ public class QueryTest {
 		obj.put("vaultGroup", this.vaultGroup);
 		obj.put("vaultTitle", this.vaultTitle);
 		obj.put("outputFile", this.outputFile);
+		obj.put("format", this.format == null ? null : this.format.toString());
+		obj.put("rowWindow", this.rowWindow);
+		obj.put("sheetRows", this.sheetRowLimit);
+		obj.put("timeZone", this.timeZone == null ? null : this.timeZone.getId());
+		obj.put("timestampPrecision", this.timestampPrecision == null ? null : this.timestampPrecision.name());
+		obj.put("pipeline", this.pipelined);
+		obj.put("cacheTtl", this.cacheTtl);
+		obj.put("fetchSize", this.fetchSize);
+		obj.put("maxRows", this.maxRows);
+		obj.put("rowPrefetch", this.rowPrefetch);
+		obj.put("lobPrefetch", this.lobPrefetch);
+		obj.put("adaptiveFetch", this.adaptiveFetch);
+		obj.put("partitionColumn", this.partitionColumn);
+		obj.put("partitions", this.partitions);
+		obj.put("partitionMode", this.partitionMode.toString());
+		obj.put("orderedPartitions", this.orderedPartitions);
 		obj.put("title", this.title);
 
 		try (FileWriter writer = new FileWriter(file)) {
@@ -165,6 +322,14 @@ public class QueryTest {
 		try (Reader reader = new FileReader(file)) {
 			JSONObject jsonObject = (JSONObject) parser.parse(reader);
 			this.sql = (String) jsonObject.get("sql");
+			if (jsonObject.get("queries") != null) {
+				this.queryNames = new ArrayList<String>();
+				this.querySqls = new ArrayList<String>();
+				for (Object query : (JSONArray) jsonObject.get("queries")) {
+					this.queryNames.add((String) ((JSONObject) query).get("name"));
+					this.querySqls.add((String) ((JSONObject) query).get("sql"));
+				}
+			}
 			this.host = (String) jsonObject.get("host");
 			this.ldapServer = (String) jsonObject.get("ldapServer");
 			this.ldapContext = (String) jsonObject.get("ldapContext");
@@ -177,6 +342,64 @@ public class QueryTest {
 			this.vaultTitle = (String) jsonObject.get("vaultTitle");
 			this.title = (String) jsonObject.get("title");
 			this.outputFile = (String) jsonObject.get("outputFile");
+			if (jsonObject.get("format") != null) {
+				this.format = OutputFormat.valueOf(((String) jsonObject.get("format")).toUpperCase());
+			}
+			if (jsonObject.get("rowWindow") != null) {
+				this.rowWindow = ((Long) jsonObject.get("rowWindow")).intValue();
+			}
+			if (jsonObject.get("sheetRows") != null) {
+				this.sheetRowLimit = ((Long) jsonObject.get("sheetRows")).intValue();
+			}
+			if (jsonObject.get("timeZone") != null) {
+				String zone = (String) jsonObject.get("timeZone");
+				try {
+					this.timeZone = ZoneId.of(zone);
+				} catch (DateTimeException e) {
+					throw new IllegalArgumentException("Unknown timeZone: " + zone, e);
+				}
+			}
+			if (jsonObject.get("timestampPrecision") != null) {
+				this.timestampPrecision = ChronoUnit
+						.valueOf(((String) jsonObject.get("timestampPrecision")).toUpperCase());
+				if (!DataExportExcelWriter.TIMESTAMP_PRECISIONS.contains(this.timestampPrecision)) {
+					// Rejected now rather than once the query has run
+					throw new IllegalArgumentException("Unsupported timestampPrecision " + this.timestampPrecision
+							+ ", use SECONDS, MILLIS, MICROS or NANOS");
+				}
+			}
+			if (jsonObject.get("pipeline") != null) {
+				this.pipelined = (Boolean) jsonObject.get("pipeline");
+			}
+			if (jsonObject.get("cacheTtl") != null) {
+				this.cacheTtl = (Long) jsonObject.get("cacheTtl");
+			}
+			if (jsonObject.get("fetchSize") != null) {
+				this.fetchSize = ((Long) jsonObject.get("fetchSize")).intValue();
+			}
+			if (jsonObject.get("maxRows") != null) {
+				this.maxRows = ((Long) jsonObject.get("maxRows")).intValue();
+			}
+			if (jsonObject.get("rowPrefetch") != null) {
+				this.rowPrefetch = ((Long) jsonObject.get("rowPrefetch")).intValue();
+			}
+			if (jsonObject.get("lobPrefetch") != null) {
+				this.lobPrefetch = ((Long) jsonObject.get("lobPrefetch")).intValue();
+			}
+			if (jsonObject.get("adaptiveFetch") != null) {
+				this.adaptiveFetch = (Boolean) jsonObject.get("adaptiveFetch");
+			}
+			this.partitionColumn = (String) jsonObject.get("partitionColumn");
+			if (jsonObject.get("partitions") != null) {
+				this.partitions = ((Long) jsonObject.get("partitions")).intValue();
+			}
+			if (jsonObject.get("partitionMode") != null) {
+				this.partitionMode = PartitionedQuery.PartitionMode
+						.valueOf(((String) jsonObject.get("partitionMode")).toUpperCase());
+			}
+			if (jsonObject.get("orderedPartitions") != null) {
+				this.orderedPartitions = (Boolean) jsonObject.get("orderedPartitions");
+			}
 			if (this.title == null) {
 				this.title = file.getName();
 			}
@@ -5,12 +5,16 @@ import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.function.Function;
 
 import javax.swing.JOptionPane;
 
 import com.nathanahrens.log.Logger;
 
 public class QueryTestDriver {
+	private static final int DEFAULT_CONCURRENCY = 4;
+	private static final int DEFAULT_PER_SOURCE_LIMIT = 2;
+	private static final long SHUTDOWN_GRACE_MILLIS = 30000;
 	private static File logDir;
 	private static String getLogFileTimestamp() {
 		return new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date(System.currentTimeMillis()));
@@ -20,23 +24,39 @@ public class QueryTestDriver {
 	 * 
 	 * @param args --showStatus will show a status window when this first starts.
 	 *             --log VAL will write log files to the VAL directory.
+	 *             --concurrency VAL will run at most VAL QueryTests at once (default 4).
+	 *             --perSourceLimit VAL will run at most VAL QueryTests at once against the same database (default 2).
+	 *             --virtualThreads will run QueryTests on virtual threads (Java 21 or later).
+	 *             --showResults will show the results of each QueryTest in a dialog (results are always logged).
 	 */
 	public static void main(String[] args) {
 		Logger logger = new Logger();
+		int concurrency = DEFAULT_CONCURRENCY;
+		int perSourceLimit = DEFAULT_PER_SOURCE_LIMIT;
+		boolean virtualThreads = false;
+		boolean showResults = false;
 		for (int i = 0; i < args.length; i++) {
-			if (args[i] == "--showStatus") {
+			if (args[i].equals("--showStatus")) {
 				Thread thread = new Thread(new Runnable() {
 					public void run() {
 						JOptionPane.showMessageDialog(null, "The QueryTest has started.");
 					}
 				});
 				thread.start();
-			} else if (args[i] == "--log" && i + 1 < args.length) {
+			} else if (args[i].equals("--log") && i + 1 < args.length) {
 				logDir = new File(args[i + 1]);
 				if (!logDir.isDirectory()) {
 					logDir = null;
-					logger.log(logDir.toString() + " is not a directory, could not set log files to that directory.");
+					logger.log(args[i + 1] + " is not a directory, could not set log files to that directory.");
 				}
+			} else if (args[i].equals("--concurrency") && i + 1 < args.length) {
+				concurrency = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("--perSourceLimit") && i + 1 < args.length) {
+				perSourceLimit = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("--virtualThreads")) {
+				virtualThreads = true;
+			} else if (args[i].equals("--showResults")) {
+				showResults = true;
 			}
 		}
 		// Set log file if the argument was passed in and is valid.
@@ -60,6 +80,35 @@ public class QueryTestDriver {
 			}
 		};
 
+		/* Logger for each QueryTest, writing to its own file if a log directory was given. */
+		Function<File, Logger> loggerFactory = new Function<File, Logger>() {
+			public Logger apply(File child) {
+				Logger childLogger = new Logger();
+				if (logDir != null) {
+					try {
+						String logFile = "QueryTest_" + child.getName() + "_" + getLogFileTimestamp() + ".log";
+						logger.log("Set logger file for " + child.toString() + " to " + logFile);
+						childLogger.setLogFile(new File(logDir, logFile));
+					} catch (FileNotFoundException e) {
+						e.printStackTrace(logger.getPrintStream());
+					}
+				}
+				return childLogger;
+			}
+		};
+
+		QueryTestScheduler scheduler = new QueryTestScheduler(concurrency, perSourceLimit, virtualThreads,
+				loggerFactory, logger);
+		scheduler.setShowResults(showResults);
+		/* On Ctrl+C (or any other shutdown), let running QueryTests finish and report what ran. */
+		Thread shutdownHook = new Thread(new Runnable() {
+			public void run() {
+				scheduler.shutdown(SHUTDOWN_GRACE_MILLIS);
+				scheduler.logSummary();
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+
 		/* get .json file listing in current directory */
 		File dir = new File(".");
 		File[] listing = dir.listFiles(jsonFileFilter);
@@ -67,26 +116,18 @@ public class QueryTestDriver {
 			for (File child : listing) {
 				System.out.println(child);
 				if (child.isFile()) {
-					/* start new thread to run the QueryTest represented by the json file. */
-					Thread thread = new Thread(new Runnable() {
-						public void run() {
-							Logger childLogger = new Logger();
-							if (logDir != null) {
-								try {
-									String logFile = "QueryTest_" + child.getName() + "_" + getLogFileTimestamp() + ".log";
-									logger.log("Set logger file for " + child.toString() + " to " + logFile);
-									childLogger.setLogFile(new File(logDir,logFile));
-								} catch (FileNotFoundException e) {
-									e.printStackTrace(logger.getPrintStream());
-								}
-							}
-							new QueryTest(child, childLogger);
-						}
-					});
-					thread.start();
+					/* queue the QueryTest represented by the json file. */
+					scheduler.submit(child);
 				}
 			}
 		}
+
+		try {
+			scheduler.awaitCompletion();
+		} catch (InterruptedException e) {
+			scheduler.shutdown(SHUTDOWN_GRACE_MILLIS);
+		}
+		scheduler.logSummary();
 	}
 
 }
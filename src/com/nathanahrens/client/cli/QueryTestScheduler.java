@@ -0,0 +1,255 @@
+package com.nathanahrens.client.cli;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.nathanahrens.client.ConnectionPool;
+import com.nathanahrens.log.Logger;
+
+/**
+ * <p>Runs {@link QueryTest}s on a bounded set of workers.</p>
+ * <p>At most <code>concurrency</code> tests run at once, and at most <code>perSourceLimit</code> of those may query
+ * the same database. Tests are started in the order they are submitted, skipping over tests whose database is
+ * already at its limit, so a worker is never blocked waiting for a database.</p>
+ * @author nahrens
+ *
+ */
+public class QueryTestScheduler {
+
+	/**
+	 * State of a submitted {@link QueryTest}.
+	 */
+	public static enum Status {
+		PENDING, RUNNING, PASSED, FAILED, SKIPPED
+	}
+
+	/**
+	 * A submitted {@link QueryTest} and its outcome.
+	 */
+	private static class Job {
+		private final File file;
+		private QueryTest test;
+		private String title;
+		private String sourceKey;
+		private Status status = Status.PENDING;
+		private long startNanos;
+		private long endNanos;
+
+		private Job(File file) {
+			this.file = file;
+			this.title = file.getName();
+		}
+	}
+
+	private final int concurrency;
+	private final int perSourceLimit;
+	private final ExecutorService executor;
+	private final Function<File, Logger> loggerFactory;
+	private final Logger logger;
+	private final List<Job> jobs = new ArrayList<Job>();
+	private final Deque<Job> pending = new ArrayDeque<Job>();
+	private final Map<String, Integer> runningPerSource = new HashMap<String, Integer>();
+	private final long startNanos = System.nanoTime();
+	private int running;
+	private int peakRunning;
+	private boolean shutdown;
+	private boolean summaryLogged;
+	private volatile boolean showResults;
+
+	/**
+	 *
+	 * @param concurrency    Maximum number of QueryTests to run at once.
+	 * @param perSourceLimit Maximum number of QueryTests to run at once against the same database.
+	 * @param virtualThreads If true, run each QueryTest on a virtual thread (Java 21 or later), otherwise on a fixed
+	 *                       pool of platform threads.
+	 * @param loggerFactory  Creates the logger for each QueryTest.
+	 * @param logger         Logger for the scheduler itself.
+	 */
+	public QueryTestScheduler(int concurrency, int perSourceLimit, boolean virtualThreads,
+			Function<File, Logger> loggerFactory, Logger logger) {
+		this.concurrency = Math.max(concurrency, 1);
+		this.perSourceLimit = Math.max(perSourceLimit, 1);
+		this.loggerFactory = loggerFactory;
+		this.logger = logger;
+		this.executor = newExecutor(this.concurrency, virtualThreads, logger);
+	}
+
+	private static ExecutorService newExecutor(int concurrency, boolean virtualThreads, Logger logger) {
+		if (virtualThreads) {
+			try {
+				// Looked up reflectively so the client still runs on Java versions without virtual threads
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				logger.log("Virtual threads need Java 21 or later, using platform threads...");
+			}
+		}
+		AtomicInteger threadNumber = new AtomicInteger();
+		return Executors.newFixedThreadPool(concurrency,
+				runnable -> new Thread(runnable, "QueryTest-" + threadNumber.incrementAndGet()));
+	}
+
+	/**
+	 * Show the results of each QueryTest in a dialog once it has run, see {@link QueryTest#setShowResults(boolean)}.
+	 * Only for interactive runs, the results are logged in the summary either way.
+	 * @param showResults If true, show a dialog of the results of each QueryTest.
+	 */
+	public void setShowResults(boolean showResults) {
+		this.showResults = showResults;
+	}
+
+	/**
+	 * Load the QueryTest described by the .json file and run it once a worker (and its database) is free.
+	 * @param jsonFile File describing the QueryTest.
+	 */
+	public synchronized void submit(File jsonFile) {
+		Job job = new Job(jsonFile);
+		this.jobs.add(job);
+		if (this.shutdown) {
+			job.status = Status.SKIPPED;
+			return;
+		}
+		try {
+			job.test = new QueryTest(jsonFile, this.logger);
+			if (job.test.getTitle() != null) {
+				job.title = job.test.getTitle();
+			}
+			job.sourceKey = job.test.getSourceKey();
+		} catch (RuntimeException e) {
+			this.logger.log("Unable to load QueryTest " + jsonFile + ": " + e);
+			job.status = Status.FAILED;
+			return;
+		}
+		this.pending.addLast(job);
+		this.dispatch();
+	}
+
+	/**
+	 * Start as many pending QueryTests as the limits allow.
+	 */
+	private synchronized void dispatch() {
+		for (Iterator<Job> it = this.pending.iterator(); it.hasNext() && this.running < this.concurrency;) {
+			Job job = it.next();
+			int sourceRunning = this.runningPerSource.getOrDefault(job.sourceKey, 0);
+			if (sourceRunning >= this.perSourceLimit) {
+				continue;
+			}
+			it.remove();
+			this.runningPerSource.put(job.sourceKey, sourceRunning + 1);
+			this.running++;
+			this.peakRunning = Math.max(this.peakRunning, this.running);
+			job.status = Status.RUNNING;
+			job.startNanos = System.nanoTime();
+			this.executor.execute(() -> this.runJob(job));
+		}
+	}
+
+	private void runJob(Job job) {
+		boolean passed = false;
+		try {
+			job.test.setLogger(this.loggerFactory.apply(job.file));
+			job.test.setShowResults(this.showResults);
+			passed = job.test.run();
+		} catch (RuntimeException e) {
+			this.logger.log("QueryTest " + job.title + " failed: " + e);
+			e.printStackTrace(this.logger.getPrintStream());
+		} finally {
+			synchronized (this) {
+				job.endNanos = System.nanoTime();
+				job.status = passed ? Status.PASSED : Status.FAILED;
+				this.running--;
+				this.runningPerSource.merge(job.sourceKey, -1, Integer::sum);
+				if (!this.shutdown) {
+					this.dispatch();
+				}
+				this.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Wait for all submitted QueryTests to complete.
+	 * @throws InterruptedException
+	 */
+	public synchronized void awaitCompletion() throws InterruptedException {
+		while (this.running > 0 || (!this.shutdown && !this.pending.isEmpty())) {
+			this.wait();
+		}
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Stop starting new QueryTests and give the running ones time to complete.
+	 * @param graceMillis Time to wait for running QueryTests before interrupting them.
+	 */
+	public void shutdown(long graceMillis) {
+		synchronized (this) {
+			if (!this.shutdown) {
+				this.shutdown = true;
+				for (Job job : this.pending) {
+					job.status = Status.SKIPPED;
+				}
+				this.pending.clear();
+			}
+		}
+		this.executor.shutdown();
+		try {
+			if (!this.executor.awaitTermination(graceMillis, TimeUnit.MILLISECONDS)) {
+				this.logger.log("QueryTests still running after " + graceMillis + " ms, interrupting...");
+				this.executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			this.executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Log the outcome and duration of every QueryTest, followed by the totals, wall-clock time and peak concurrency.
+	 */
+	public synchronized void logSummary() {
+		if (this.summaryLogged) {
+			return;
+		}
+		this.summaryLogged = true;
+		int passed = 0;
+		int failed = 0;
+		int skipped = 0;
+		this.logger.log("QueryTest summary:");
+		for (Job job : this.jobs) {
+			double seconds = job.endNanos > 0 ? (job.endNanos - job.startNanos) / 1000000000.0 : 0.0;
+			this.logger.log(String.format("  %-8s %,10.3f s  %s", job.status, seconds, job.title));
+			if (job.test != null && job.status != Status.RUNNING) {
+				for (String result : job.test.getResults()) {
+					this.logger.log("             " + result);
+				}
+			}
+			switch (job.status) {
+			case PASSED:
+				passed++;
+				break;
+			case FAILED:
+				failed++;
+				break;
+			default:
+				skipped++;
+			}
+		}
+		this.logger.log(String.format("Passed %d, failed %d, not run %d of %d QueryTests", passed, failed, skipped,
+				this.jobs.size()));
+		this.logger.log(String.format(
+				"Wall clock %,.3f seconds, peak %d of %d QueryTests running, peak %d connections in use",
+				(System.nanoTime() - this.startNanos) / 1000000000.0, this.peakRunning, this.concurrency,
+				ConnectionPool.getInstance().getPeakInUse()));
+	}
+}
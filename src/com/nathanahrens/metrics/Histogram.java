@@ -0,0 +1,74 @@
+package com.nathanahrens.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Histogram of durations with fixed buckets, from a millisecond to ten minutes, that can be updated from any
+ * thread without locking.</p>
+ * <p>Each observation is counted in the first bucket whose upper bound it does not exceed, or in the overflow bucket
+ * past the last bound. Counts are kept per bucket and made cumulative when exported, as Prometheus expects.</p>
+ * @author nahrens
+ *
+ */
+public class Histogram {
+	/** Upper bounds of the buckets, in seconds. */
+	static final double[] BOUNDS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60,
+			120, 300, 600 };
+
+	private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+	static {
+		for (int i = 0; i < BOUNDS.length; i++) {
+			BOUNDS_NANOS[i] = Math.round(BOUNDS[i] * 1000000000.0);
+		}
+	}
+
+	// One more than the bounds, for observations past the last bound
+	private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+	private final AtomicLong sumNanos = new AtomicLong();
+
+	/**
+	 * Count a duration.
+	 * @param nanos Duration in nanoseconds.
+	 */
+	public void observe(long nanos) {
+		int bucket = Arrays.binarySearch(BOUNDS_NANOS, nanos);
+		if (bucket < 0) {
+			// Insertion point, the first bound above the duration
+			bucket = -bucket - 1;
+		}
+		this.counts.incrementAndGet(bucket);
+		this.sumNanos.addAndGet(nanos);
+	}
+
+	/**
+	 *
+	 * @param bucket Index of the bucket, {@link #BOUNDS}<code>.length</code> for the overflow bucket.
+	 * @return long Number of durations counted in the bucket (not including lower buckets).
+	 */
+	long getBucketCount(int bucket) {
+		return this.counts.get(bucket);
+	}
+
+	/**
+	 *
+	 * @return long Number of durations counted.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < this.counts.length(); i++) {
+			count += this.counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 *
+	 * @return long Sum of the durations counted, in nanoseconds.
+	 */
+	public long getSumNanos() {
+		return this.sumNanos.get();
+	}
+}
@@ -0,0 +1,248 @@
+package com.nathanahrens.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Metrics of the queries run in the JVM, shared by every client: a latency histogram for each {@link Phase} of a
+ * query, and counters of the rows fetched and the bytes written, kept per source (JDBC URL) and per query name (the
+ * title of a QueryTest).</p>
+ * <p>Nothing is recorded until a file is set with {@link #setFile(File)}. The metrics are then written to that file by
+ * {@link #write()} in the Prometheus text format, so the file can be scraped (such as by the textfile collector of the
+ * node exporter) to find the phase that makes a query slow. The file is replaced atomically, so it is never read
+ * partly written.</p>
+ * @author nahrens
+ *
+ */
+public class QueryMetrics {
+	private static final QueryMetrics INSTANCE = new QueryMetrics();
+	private static final String PREFIX = "dbclient_query_";
+
+	/**
+	 * Phases of running a query and exporting its results.
+	 */
+	public static enum Phase {
+		/** Obtaining a connection from the pool, including opening it if none is idle. */
+		CONNECT,
+		/** Preparing the statement. */
+		PREPARE,
+		/** Executing the statement, until the source returns a result set. */
+		EXECUTE,
+		/** Reading the first row of the result set (or finding it empty). */
+		FIRST_ROW,
+		/** Reading all the rows of the result set, including the first. */
+		FETCH,
+		/** Writing the results, including the fetch of any rows read while writing. */
+		EXPORT;
+
+		private final String label = this.name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Metrics of the queries of one name against one source.
+	 */
+	private static class Series {
+		private final String source;
+		private final String query;
+		private final Histogram[] phases = new Histogram[Phase.values().length];
+		private final AtomicLong rows = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+
+		private Series(String source, String query) {
+			this.source = source;
+			this.query = query;
+			for (int i = 0; i < this.phases.length; i++) {
+				this.phases[i] = new Histogram();
+			}
+		}
+
+		private String labels() {
+			return "source=\"" + escape(this.source) + "\",query=\"" + escape(this.query) + "\"";
+		}
+	}
+
+	private final ConcurrentHashMap<List<String>, Series> series = new ConcurrentHashMap<List<String>, Series>();
+	private volatile File file;
+
+	private QueryMetrics() {
+	}
+
+	/**
+	 *
+	 * @return QueryMetrics The metrics shared by every client in the JVM.
+	 */
+	public static QueryMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Start recording metrics, to be written to the given file.
+	 * @param file File to write the metrics to, or null to stop recording.
+	 */
+	public void setFile(File file) {
+		this.file = file;
+	}
+
+	/**
+	 *
+	 * @return boolean True if metrics are recorded, that is if a file to write them to is set.
+	 */
+	public boolean isEnabled() {
+		return this.file != null;
+	}
+
+	private Series getSeries(String source, String query) {
+		List<String> key = List.of(source, query == null ? "" : query);
+		Series s = this.series.get(key);
+		if (s == null) {
+			s = this.series.computeIfAbsent(key, k -> new Series(k.get(0), k.get(1)));
+		}
+		return s;
+	}
+
+	/**
+	 * Record the duration of a phase of a query.
+	 * @param source JDBC URL of the source queried.
+	 * @param query Name of the query, or null.
+	 * @param phase Phase of the query.
+	 * @param nanos Duration of the phase in nanoseconds.
+	 */
+	public void observe(String source, String query, Phase phase, long nanos) {
+		if (this.isEnabled()) {
+			this.getSeries(source, query).phases[phase.ordinal()].observe(nanos);
+		}
+	}
+
+	/**
+	 * Count rows fetched from the source.
+	 * @param source JDBC URL of the source queried.
+	 * @param query Name of the query, or null.
+	 * @param rows Number of rows fetched.
+	 */
+	public void addRows(String source, String query, long rows) {
+		if (this.isEnabled()) {
+			this.getSeries(source, query).rows.addAndGet(rows);
+		}
+	}
+
+	/**
+	 * Count bytes written to an output file.
+	 * @param source JDBC URL of the source queried.
+	 * @param query Name of the query, or null.
+	 * @param bytes Number of bytes written.
+	 */
+	public void addBytes(String source, String query, long bytes) {
+		if (this.isEnabled()) {
+			this.getSeries(source, query).bytes.addAndGet(bytes);
+		}
+	}
+
+	/**
+	 * Time the {@link Phase#FIRST_ROW} and {@link Phase#FETCH} phases of a result set and count its rows, see
+	 * {@link MeteredResultSet}.
+	 * @param rs Result set just returned by the source.
+	 * @param source JDBC URL of the source queried.
+	 * @param query Name of the query, or null.
+	 * @return ResultSet The result set to read the rows from, which is <code>rs</code> itself if metrics are not
+	 *         recorded.
+	 */
+	public ResultSet meter(ResultSet rs, String source, String query) {
+		if (!this.isEnabled()) {
+			return rs;
+		}
+		return MeteredResultSet.create(rs, this, source, query);
+	}
+
+	/**
+	 * Write the metrics to the file set with {@link #setFile(File)}, replacing it. Does nothing if no file is set.
+	 * @throws IOException When unable to write the file.
+	 */
+	public synchronized void write() throws IOException {
+		File target = this.file;
+		if (target == null) {
+			return;
+		}
+		File dir = target.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile("metrics", ".tmp", dir);
+		try {
+			try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+				this.writeTo(writer);
+			}
+			// Scrapers never see a partly written file
+			Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Write the metrics in the Prometheus text format.
+	 * @param writer Writer to write the metrics to.
+	 * @throws IOException When unable to write.
+	 */
+	public void writeTo(Writer writer) throws IOException {
+		List<Series> sorted = new ArrayList<Series>(this.series.values());
+		sorted.sort((a, b) -> a.source.equals(b.source) ? a.query.compareTo(b.query) : a.source.compareTo(b.source));
+
+		String histogram = PREFIX + "phase_seconds";
+		writer.write("# HELP " + histogram + " Time spent in each phase of a query.\n");
+		writer.write("# TYPE " + histogram + " histogram\n");
+		for (Series s : sorted) {
+			for (Phase phase : Phase.values()) {
+				Histogram h = s.phases[phase.ordinal()];
+				if (h.getCount() == 0) {
+					continue;
+				}
+				String labels = s.labels() + ",phase=\"" + phase.label + "\"";
+				long cumulative = 0;
+				for (int i = 0; i < Histogram.BOUNDS.length; i++) {
+					cumulative += h.getBucketCount(i);
+					writer.write(histogram + "_bucket{" + labels + ",le=\""
+							+ BigDecimal.valueOf(Histogram.BOUNDS[i]).toPlainString() + "\"} " + cumulative + "\n");
+				}
+				// Counted from the same reads as the buckets, so it is never below them while observations are added
+				long count = cumulative + h.getBucketCount(Histogram.BOUNDS.length);
+				writer.write(histogram + "_bucket{" + labels + ",le=\"+Inf\"} " + count + "\n");
+				writer.write(histogram + "_sum{" + labels + "} " + h.getSumNanos() / 1000000000.0 + "\n");
+				writer.write(histogram + "_count{" + labels + "} " + count + "\n");
+			}
+		}
+
+		String rows = PREFIX + "rows_total";
+		writer.write("# HELP " + rows + " Rows fetched from the source.\n");
+		writer.write("# TYPE " + rows + " counter\n");
+		for (Series s : sorted) {
+			writer.write(rows + "{" + s.labels() + "} " + s.rows.get() + "\n");
+		}
+
+		String bytes = PREFIX + "output_bytes_total";
+		writer.write("# HELP " + bytes + " Bytes written to output files.\n");
+		writer.write("# TYPE " + bytes + " counter\n");
+		for (Series s : sorted) {
+			writer.write(bytes + "{" + s.labels() + "} " + s.bytes.get() + "\n");
+		}
+	}
+
+	/**
+	 * Discard the metrics recorded so far.
+	 */
+	public void clear() {
+		this.series.clear();
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
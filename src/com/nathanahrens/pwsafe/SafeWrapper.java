@@ -7,10 +7,8 @@ import java.security.NoSuchAlgorithmException;
 import org.pwsafe.lib.exception.EndOfFileException;
 import org.pwsafe.lib.exception.InvalidPassphraseException;
 import org.pwsafe.lib.exception.UnsupportedFileVersionException;
-import org.pwsafe.lib.file.PwsField;
 import org.pwsafe.lib.file.PwsFieldTypeV3;
 import org.pwsafe.lib.file.PwsFile;
-import org.pwsafe.lib.file.PwsFileFactory;
 import org.pwsafe.lib.file.PwsRecord;
 
 public class SafeWrapper {
@@ -25,9 +23,15 @@ public class SafeWrapper {
 		}
 	}
 
+	/**
+	 * Load the vault, re-using it if it was already unlocked by this JVM (see {@link VaultCache}).
+	 * @param file Path of the vault file.
+	 * @param passphrase Passphrase of the vault.
+	 * @return boolean True if the vault was loaded, else false.
+	 */
 	public boolean load(String file, StringBuilder passphrase) {
 		try {
-			this.safe = PwsFileFactory.loadFile(file, passphrase);
+			this.safe = VaultCache.getInstance().open(file, passphrase);
 			return true;
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
@@ -50,34 +54,22 @@ public class SafeWrapper {
 		}
 	}
 
+	/**
+	 * Look up the credential of a record.
+	 * @param group Group of the record, or null for a record that is not in a group.
+	 * @param title Title of the record.
+	 * @return Credential The username and password of the first matching record, or null if there is none.
+	 */
 	public Credential getCredential(String group, String title) {
 		if (title == null) {
 			System.out.println("Must provide a title.");
 			return null;
 		}
-		int recordCount = this.safe.getRecordCount();
-		PwsRecord rec;
-		for (int i = 0; i < recordCount; i++) {
-			rec = this.safe.getRecord(i);
-			PwsField recGroup = rec.getField(PwsFieldTypeV3.GROUP);
-			PwsField recTitle = rec.getField(PwsFieldTypeV3.TITLE);
-			if (group == null) {
-				// We want records without GROUP type fields
-				if (recGroup == null && recTitle != null && recTitle.toString().equals(title)) {
-					// Fields where recTitle = title.
-					return new Credential(rec.getField(PwsFieldTypeV3.USERNAME).toString(),
-							rec.getField(PwsFieldTypeV3.PASSWORD).toString());
-				}
-			} else {
-				// Records in a GROUP
-				if (recGroup != null && recGroup.toString().equals(group) && recTitle != null
-						&& recTitle.toString().equals(title)) {
-					// Title and group match
-					return new Credential(rec.getField(PwsFieldTypeV3.USERNAME).toString(),
-							rec.getField(PwsFieldTypeV3.PASSWORD).toString());
-				}
-			}
-
+		// Records are indexed by group and title, so only the matching record is decrypted
+		PwsRecord rec = this.safe.getRecord(group, title);
+		if (rec != null) {
+			return new Credential(rec.getField(PwsFieldTypeV3.USERNAME).toString(),
+					rec.getField(PwsFieldTypeV3.PASSWORD).toString());
 		}
 		// If this point is reached, group or title does not exist.
 		return null;
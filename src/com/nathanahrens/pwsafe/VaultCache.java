@@ -0,0 +1,160 @@
+package com.nathanahrens.pwsafe;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.pwsafe.lib.exception.EndOfFileException;
+import org.pwsafe.lib.exception.InvalidPassphraseException;
+import org.pwsafe.lib.exception.UnsupportedFileVersionException;
+import org.pwsafe.lib.file.PwsFile;
+import org.pwsafe.lib.file.PwsFileFactory;
+
+/**
+ * <p>Vaults unlocked by the JVM, so that each vault file is only unlocked (key stretched and decrypted) once, however
+ * many {@link SafeWrapper}s are created for it.</p>
+ * <p>The unlocked {@link PwsFile} keeps its records sealed with its in-memory key. A cached vault is only handed out
+ * to callers presenting the same passphrase, checked against a keyed hash of the passphrase (the passphrase itself is
+ * not kept). If the modified date or size of the file changes, the vault is unlocked again.</p>
+ * @author nahrens
+ *
+ */
+public class VaultCache {
+	private static final VaultCache INSTANCE = new VaultCache();
+
+	/**
+	 * A vault unlocked from a file, along with the state of the file when it was unlocked.
+	 */
+	private static class Session {
+		private final PwsFile safe;
+		private final long lastModified;
+		private final long length;
+		private final byte[] passphraseMac;
+
+		private Session(PwsFile safe, long lastModified, long length, byte[] passphraseMac) {
+			this.safe = safe;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.passphraseMac = passphraseMac;
+		}
+	}
+
+	private final Map<String, Session> sessions = new HashMap<String, Session>();
+	private final Map<String, Object> locks = new ConcurrentHashMap<String, Object>();
+	private final byte[] macKey = new byte[32];
+	private int unlocks;
+	private int hits;
+
+	private VaultCache() {
+		new SecureRandom().nextBytes(this.macKey);
+		Runtime.getRuntime().addShutdownHook(new Thread(this::clear));
+	}
+
+	/**
+	 *
+	 * @return The cache shared by the JVM.
+	 */
+	public static VaultCache getInstance() {
+		return INSTANCE;
+	}
+
+	private byte[] mac(StringBuilder passphrase) throws NoSuchAlgorithmException {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(this.macKey, "HmacSHA256"));
+			return mac.doFinal(passphrase.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (InvalidKeyException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Return the unlocked vault, unlocking it if it has not been unlocked yet, the file has changed since, or a
+	 * different passphrase is given.
+	 *
+	 * @param file       Path of the vault file.
+	 * @param passphrase Passphrase of the vault.
+	 * @return PwsFile The unlocked vault. Shared, so must not be modified or disposed.
+	 * @see PwsFileFactory#loadFileLazily(String, StringBuilder)
+	 */
+	public PwsFile open(String file, StringBuilder passphrase) throws EndOfFileException, FileNotFoundException,
+			InvalidPassphraseException, IOException, UnsupportedFileVersionException, NoSuchAlgorithmException {
+		File vault = new File(file);
+		String key = vault.getCanonicalPath();
+		byte[] passphraseMac = this.mac(passphrase);
+		// Callers for the same vault wait for the first to unlock it, rather than all unlocking it at once
+		synchronized (this.locks.computeIfAbsent(key, k -> new Object())) {
+			long lastModified = vault.lastModified();
+			long length = vault.length();
+			synchronized (this) {
+				Session session = this.sessions.get(key);
+				if (session != null && session.lastModified == lastModified && session.length == length
+						&& MessageDigest.isEqual(session.passphraseMac, passphraseMac)) {
+					this.hits++;
+					return session.safe;
+				}
+			}
+
+			PwsFile safe = PwsFileFactory.loadFileLazily(file, passphrase);
+			safe.setReadOnly(true);
+			synchronized (this) {
+				// A replaced vault is not disposed, since other callers may still be reading it
+				this.sessions.put(key, new Session(safe, lastModified, length, passphraseMac));
+				this.unlocks++;
+			}
+			return safe;
+		}
+	}
+
+	/**
+	 * Forget the unlocked vault, so it is unlocked again on the next {@link #open(String, StringBuilder)}.
+	 * @param file Path of the vault file.
+	 */
+	public void invalidate(String file) {
+		try {
+			String key = new File(file).getCanonicalPath();
+			synchronized (this) {
+				this.sessions.remove(key);
+			}
+		} catch (IOException e) {
+			// Not cached under an unresolvable path
+		}
+	}
+
+	/**
+	 * Forget all unlocked vaults and wipe their keys from memory. Vaults already handed out can no longer be read.
+	 */
+	public synchronized void clear() {
+		for (Session session : this.sessions.values()) {
+			session.safe.dispose();
+		}
+		this.sessions.clear();
+	}
+
+	/**
+	 *
+	 * @return int Number of times a vault was unlocked.
+	 */
+	public synchronized int getUnlocks() {
+		return this.unlocks;
+	}
+
+	/**
+	 *
+	 * @return int Number of times an already unlocked vault was handed out.
+	 */
+	public synchronized int getHits() {
+		return this.hits;
+	}
+}
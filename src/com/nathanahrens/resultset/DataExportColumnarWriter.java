@@ -0,0 +1,433 @@
+package com.nathanahrens.resultset;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * <p>Writes a {@link ResultSet} to a columnar binary file, which analytics tools can read far faster than an Excel
+ * file, since each column is stored as a typed vector rather than as text in cells.</p>
+ * <p>Rows are read in row groups of a fixed number of rows. Within a row group each column is encoded as a chunk:
+ * a null bitmap followed by the non-null values. Each chunk is deflated if that makes it smaller, and its minimum and
+ * maximum value are recorded so readers can skip row groups.</p>
+ * <p>Layout (all numbers big-endian, strings length-prefixed UTF-8):</p>
+ * <pre>
+ * "DBXC" version(byte)
+ * row group 0: chunk column 0, chunk column 1, ...
+ * row group 1: ...
+ * footer:
+ *   column count(int), per column: name, label, JDBC type(int), vector type(byte)
+ *   metadata count(int), per entry: key, value
+ *   row group count(int), per row group: row count(int), per column:
+ *     offset(long), codec(byte), stored length(int), encoded length(int), null count(int),
+ *     has stats(byte), [min value, max value]
+ * footer length(int) "DBXC"
+ * </pre>
+ * <p>Values are encoded by vector type: BOOLEAN as a byte, INT as int, LONG as long, DOUBLE as double, DECIMAL and
+ * STRING as strings, DATE as epoch day (int), TIMESTAMP as epoch milliseconds (long), BINARY as length-prefixed
+ * bytes.</p>
+ * @author nahrens
+ *
+ */
+public class DataExportColumnarWriter {
+	/** File extension of columnar files. */
+	public static final String EXTENSION = ".dbxc";
+	/** Default number of rows per row group. */
+	public static final int DEFAULT_ROW_GROUP_SIZE = 65536;
+
+	private static final byte[] MAGIC = "DBXC".getBytes(StandardCharsets.US_ASCII);
+	private static final byte VERSION = 1;
+	private static final byte CODEC_NONE = 0;
+	private static final byte CODEC_DEFLATE = 1;
+
+	/**
+	 * Type of the values of a column vector.
+	 */
+	public static enum VectorType {
+		BOOLEAN, INT, LONG, DOUBLE, DECIMAL, STRING, DATE, TIMESTAMP, BINARY;
+
+		/**
+		 *
+		 * @param rsmd   Metadata of the {@link ResultSet}.
+		 * @param column Column index (starting at 1).
+		 * @return VectorType Vector type to store the column as.
+		 * @throws SQLException
+		 */
+		public static VectorType of(ResultSetMetaData rsmd, int column) throws SQLException {
+			switch (rsmd.getColumnType(column)) {
+			case Types.BIT:
+			case Types.BOOLEAN:
+				return BOOLEAN;
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				return INT;
+			case Types.BIGINT:
+				return LONG;
+			case Types.FLOAT:
+			case Types.DOUBLE:
+			case Types.REAL:
+				return DOUBLE;
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				// Whole numbers that fit in a long (Oracle NUMBER(p) with p <= 18)
+				int precision = rsmd.getPrecision(column);
+				if (rsmd.getScale(column) == 0 && precision > 0 && precision <= 18) {
+					return LONG;
+				}
+				return DECIMAL;
+			case Types.DATE:
+				return DATE;
+			case Types.TIME:
+			case Types.TIMESTAMP:
+			case Types.TIMESTAMP_WITH_TIMEZONE:
+				return TIMESTAMP;
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+			case Types.BLOB:
+				return BINARY;
+			default:
+				return STRING;
+			}
+		}
+	}
+
+	/**
+	 * Values of one column for the current row group, with their statistics.
+	 */
+	private static class ColumnVector {
+		private final VectorType type;
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private final DataOutputStream values = new DataOutputStream(this.buffer);
+		private byte[] nulls = new byte[64];
+		private int rows;
+		private int nullCount;
+		private Comparable<Object> min;
+		private Comparable<Object> max;
+
+		private ColumnVector(VectorType type) {
+			this.type = type;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void add(Object value) throws IOException {
+			if (this.rows / 8 >= this.nulls.length) {
+				this.nulls = Arrays.copyOf(this.nulls, this.nulls.length * 2);
+			}
+			if (value == null) {
+				this.nulls[this.rows / 8] |= 1 << (this.rows % 8);
+				this.nullCount++;
+			} else {
+				writeValue(this.values, this.type, value);
+				if (this.type != VectorType.BINARY) {
+					Comparable<Object> comparable = (Comparable<Object>) value;
+					if (this.min == null || comparable.compareTo(this.min) < 0) {
+						this.min = comparable;
+					}
+					if (this.max == null || comparable.compareTo(this.max) > 0) {
+						this.max = comparable;
+					}
+				}
+			}
+			this.rows++;
+		}
+
+		private void reset() {
+			this.buffer.reset();
+			Arrays.fill(this.nulls, (byte) 0);
+			this.rows = 0;
+			this.nullCount = 0;
+			this.min = null;
+			this.max = null;
+		}
+	}
+
+	/**
+	 * Location and statistics of a column chunk, written to the footer.
+	 */
+	private static class ChunkInfo {
+		private long offset;
+		private byte codec;
+		private int storedLength;
+		private int encodedLength;
+		private int nullCount;
+		private Object min;
+		private Object max;
+	}
+
+	private final int rowGroupSize;
+
+	/**
+	 * Creates a writer with row groups of {@link #DEFAULT_ROW_GROUP_SIZE} rows.
+	 */
+	public DataExportColumnarWriter() {
+		this(DEFAULT_ROW_GROUP_SIZE);
+	}
+
+	/**
+	 *
+	 * @param rowGroupSize Number of rows per row group. Memory use grows with this, compression and statistics improve.
+	 */
+	public DataExportColumnarWriter(int rowGroupSize) {
+		this.rowGroupSize = Math.max(rowGroupSize, 1);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void writeValue(DataOutputStream out, VectorType type, Object value) throws IOException {
+		switch (type) {
+		case BOOLEAN:
+			out.writeByte(((Boolean) value) ? 1 : 0);
+			break;
+		case INT:
+			out.writeInt((Integer) value);
+			break;
+		case LONG:
+		case TIMESTAMP:
+			out.writeLong((Long) value);
+			break;
+		case DOUBLE:
+			out.writeDouble((Double) value);
+			break;
+		case DATE:
+			out.writeInt(((Long) value).intValue());
+			break;
+		case DECIMAL:
+			writeString(out, ((BigDecimal) value).toPlainString());
+			break;
+		case BINARY:
+			byte[] bytes = (byte[]) value;
+			out.writeInt(bytes.length);
+			out.write(bytes);
+			break;
+		default:
+			writeString(out, (String) value);
+		}
+	}
+
+	/**
+	 * Read the value of a column with the accessor matching its vector type.
+	 * @return Object Value (Long for DATE and TIMESTAMP), or null.
+	 */
+	private static Object readValue(ResultSet rs, int column, VectorType type) throws SQLException {
+		Object value;
+		switch (type) {
+		case BOOLEAN:
+			value = rs.getBoolean(column);
+			break;
+		case INT:
+			value = rs.getInt(column);
+			break;
+		case LONG:
+			value = rs.getLong(column);
+			break;
+		case DOUBLE:
+			value = rs.getDouble(column);
+			break;
+		case DECIMAL:
+			value = rs.getBigDecimal(column);
+			break;
+		case DATE:
+			java.sql.Date date = rs.getDate(column);
+			value = date == null ? null : date.toLocalDate().toEpochDay();
+			break;
+		case TIMESTAMP:
+			Timestamp timestamp = rs.getTimestamp(column);
+			value = timestamp == null ? null : timestamp.getTime();
+			break;
+		case BINARY:
+			value = rs.getBytes(column);
+			break;
+		default:
+			value = rs.getString(column);
+		}
+		return rs.wasNull() ? null : value;
+	}
+
+	/**
+	 * Saves a {@link ResultSet} to a columnar file.
+	 *
+	 * @param rs       Result set to save.
+	 * @param filePath File path to save to.
+	 * @param sql      Query the rows came from, stored in the footer metadata. May be null.
+	 * @return long Number of rows written.
+	 * @throws IOException  When unable to write the file.
+	 * @throws SQLException When unable to read or close the ResultSet.
+	 */
+	public long saveColumnar(ResultSet rs, String filePath, String sql) throws IOException, SQLException {
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int colCount = rsmd.getColumnCount();
+		ColumnVector[] columns = new ColumnVector[colCount];
+		for (int i = 0; i < colCount; i++) {
+			columns[i] = new ColumnVector(VectorType.of(rsmd, i + 1));
+		}
+
+		long rows = 0;
+		List<Integer> groupRows = new ArrayList<Integer>();
+		List<ChunkInfo[]> groupChunks = new ArrayList<ChunkInfo[]>();
+		// One per file, ended once the file is written, so the writer can save any number of files
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+		try (CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(filePath));
+				DataOutputStream out = new DataOutputStream(counter)) {
+			out.write(MAGIC);
+			out.writeByte(VERSION);
+
+			int groupSize = 0;
+			while (rs.next()) {
+				for (int i = 0; i < colCount; i++) {
+					columns[i].add(readValue(rs, i + 1, columns[i].type));
+				}
+				rows++;
+				if (++groupSize == this.rowGroupSize) {
+					groupChunks.add(this.writeRowGroup(out, counter, deflater, columns));
+					groupRows.add(groupSize);
+					groupSize = 0;
+				}
+			}
+			if (groupSize > 0 || groupChunks.isEmpty()) {
+				groupChunks.add(this.writeRowGroup(out, counter, deflater, columns));
+				groupRows.add(groupSize);
+			}
+
+			// Footer
+			out.flush();
+			long footerStart = counter.count;
+			out.writeInt(colCount);
+			for (int i = 0; i < colCount; i++) {
+				writeString(out, rsmd.getColumnName(i + 1));
+				writeString(out, rsmd.getColumnLabel(i + 1));
+				out.writeInt(rsmd.getColumnType(i + 1));
+				out.writeByte(columns[i].type.ordinal());
+			}
+			out.writeInt(sql == null ? 0 : 1);
+			if (sql != null) {
+				writeString(out, "sql");
+				writeString(out, sql);
+			}
+			out.writeInt(groupChunks.size());
+			for (int g = 0; g < groupChunks.size(); g++) {
+				out.writeInt(groupRows.get(g));
+				ChunkInfo[] chunks = groupChunks.get(g);
+				for (int i = 0; i < colCount; i++) {
+					ChunkInfo chunk = chunks[i];
+					out.writeLong(chunk.offset);
+					out.writeByte(chunk.codec);
+					out.writeInt(chunk.storedLength);
+					out.writeInt(chunk.encodedLength);
+					out.writeInt(chunk.nullCount);
+					out.writeByte(chunk.min == null ? 0 : 1);
+					if (chunk.min != null) {
+						writeValue(out, columns[i].type, chunk.min);
+						writeValue(out, columns[i].type, chunk.max);
+					}
+				}
+			}
+			out.flush();
+			out.writeInt((int) (counter.count - footerStart));
+			out.write(MAGIC);
+		} finally {
+			deflater.end();
+		}
+		rs.close();
+		return rows;
+	}
+
+	/**
+	 * Encode, compress and write the current row group of each column, then reset the columns for the next row group.
+	 */
+	private ChunkInfo[] writeRowGroup(DataOutputStream out, CountingOutputStream counter, Deflater deflater,
+			ColumnVector[] columns) throws IOException {
+		ChunkInfo[] chunks = new ChunkInfo[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			ColumnVector column = columns[i];
+			column.values.flush();
+			int bitmapLength = (column.rows + 7) / 8;
+			byte[] encoded = new byte[bitmapLength + column.buffer.size()];
+			System.arraycopy(column.nulls, 0, encoded, 0, bitmapLength);
+			byte[] values = column.buffer.toByteArray();
+			System.arraycopy(values, 0, encoded, bitmapLength, values.length);
+
+			ChunkInfo chunk = new ChunkInfo();
+			out.flush();
+			chunk.offset = counter.count;
+			chunk.encodedLength = encoded.length;
+			chunk.nullCount = column.nullCount;
+			chunk.min = column.min;
+			chunk.max = column.max;
+			byte[] compressed = deflate(deflater, encoded);
+			if (compressed != null) {
+				chunk.codec = CODEC_DEFLATE;
+				chunk.storedLength = compressed.length;
+				out.write(compressed);
+			} else {
+				chunk.codec = CODEC_NONE;
+				chunk.storedLength = encoded.length;
+				out.write(encoded);
+			}
+			chunks[i] = chunk;
+			column.reset();
+		}
+		return chunks;
+	}
+
+	/**
+	 *
+	 * @return byte[] Deflated bytes, or null if deflating does not make the chunk smaller.
+	 */
+	private static byte[] deflate(Deflater deflater, byte[] encoded) {
+		deflater.reset();
+		deflater.setInput(encoded);
+		deflater.finish();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(encoded.length / 2 + 16);
+		byte[] buffer = new byte[8192];
+		while (!deflater.finished()) {
+			int length = deflater.deflate(buffer);
+			compressed.write(buffer, 0, length);
+			if (compressed.size() >= encoded.length) {
+				return null;
+			}
+		}
+		return compressed.toByteArray();
+	}
+
+	/**
+	 * Buffered output stream that counts the bytes written, to record the offsets of the chunks.
+	 */
+	private static class CountingOutputStream extends BufferedOutputStream {
+		private long count;
+
+		private CountingOutputStream(FileOutputStream out) {
+			super(out, 1 << 16);
+		}
+
+		@Override
+		public synchronized void write(int b) throws IOException {
+			super.write(b);
+			this.count++;
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			super.write(b, off, len);
+			this.count += len;
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package com.nathanahrens.resultset;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * <p>Writes a {@link ResultSet} as delimited text (CSV, TSV), quoting values as described in RFC 4180: values
+ * containing the delimiter, a quote or a line break are enclosed in quotes, with quotes doubled.</p>
+ * <p>Rows are built up in a reused character buffer and encoded into a large byte buffer that is written to a channel
+ * when full, so there is no per-cell synchronization or flushing. Numeric columns are read with the primitive
+ * accessors ({@link ResultSet#getInt(int)}, {@link ResultSet#getLong(int)}, ...) and appended without creating
+ * strings.</p>
+ * @author nahrens
+ *
+ */
+public class DataExportDelimitedWriter {
+	/** Comma, for CSV. */
+	public static final char CSV = ',';
+	/** Tab, for TSV. */
+	public static final char TSV = '\t';
+
+	private static final int CHAR_BUFFER_SIZE = 64 * 1024;
+	private static final int BYTE_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * How the value of a column is read and appended.
+	 */
+	private static enum ColumnKind {
+		INT, LONG, DOUBLE, BOOLEAN, NUMBER, TEXT
+	}
+
+	private final char delimiter;
+	private final CharsetEncoder encoder;
+	private final StringBuilder chars = new StringBuilder(CHAR_BUFFER_SIZE + 1024);
+	private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+	private String lineSeparator = "\r\n";
+	private boolean header = true;
+
+	/**
+	 * Creates a CSV writer encoding UTF-8.
+	 */
+	public DataExportDelimitedWriter() {
+		this(CSV, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 *
+	 * @param delimiter Character separating the values of a row, such as {@link #CSV} or {@link #TSV}.
+	 * @param charset   Encoding of the text.
+	 */
+	public DataExportDelimitedWriter(char delimiter, Charset charset) {
+		this.delimiter = delimiter;
+		// Characters the charset can not represent are replaced (with '?') rather than failing the export
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 *
+	 * @param lineSeparator Characters ending each row. Default is CRLF, as in RFC 4180.
+	 */
+	public void setLineSeparator(String lineSeparator) {
+		this.lineSeparator = lineSeparator;
+	}
+
+	/**
+	 *
+	 * @param header If true (default), the column names are written as the first row.
+	 */
+	public void setHeader(boolean header) {
+		this.header = header;
+	}
+
+	private static ColumnKind kindOf(ResultSetMetaData rsmd, int column) throws SQLException {
+		switch (rsmd.getColumnType(column)) {
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+			return ColumnKind.INT;
+		case Types.BIGINT:
+			return ColumnKind.LONG;
+		case Types.FLOAT:
+		case Types.DOUBLE:
+		case Types.REAL:
+			return ColumnKind.DOUBLE;
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return ColumnKind.BOOLEAN;
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			// Whole numbers that fit in a long are appended without a string, the rest as text
+			int precision = rsmd.getPrecision(column);
+			if (rsmd.getScale(column) == 0 && precision > 0 && precision <= 18) {
+				return ColumnKind.LONG;
+			}
+			return ColumnKind.NUMBER;
+		default:
+			return ColumnKind.TEXT;
+		}
+	}
+
+	/**
+	 * Saves a {@link ResultSet} to a delimited text file.
+	 *
+	 * @param rs       Result set to save.
+	 * @param filePath File path to save to.
+	 * @return long Number of data rows written.
+	 * @throws IOException  When unable to write the file.
+	 * @throws SQLException When unable to read or close the ResultSet.
+	 */
+	public long saveDelimited(ResultSet rs, String filePath) throws IOException, SQLException {
+		long rows;
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			rows = this.write(rs, channel);
+		}
+		rs.close();
+		return rows;
+	}
+
+	/**
+	 * Writes a {@link ResultSet} to stdout, bypassing {@link System#out} (which is flushed first).
+	 *
+	 * @param rs Result set to write.
+	 * @return long Number of data rows written.
+	 * @throws IOException  When unable to write to stdout.
+	 * @throws SQLException When unable to read the ResultSet.
+	 */
+	public long print(ResultSet rs) throws IOException, SQLException {
+		System.out.flush();
+		// Not closed, as that would close stdout
+		WritableByteChannel stdout = Channels.newChannel(new FileOutputStream(FileDescriptor.out));
+		return this.write(rs, stdout);
+	}
+
+	/**
+	 * Writes a {@link ResultSet} to a channel. The channel is left open.
+	 *
+	 * @param rs      Result set to write.
+	 * @param channel Channel to write to.
+	 * @return long Number of data rows written.
+	 * @throws IOException  When unable to write to the channel.
+	 * @throws SQLException When unable to read the ResultSet.
+	 */
+	public long write(ResultSet rs, WritableByteChannel channel) throws IOException, SQLException {
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int colCount = rsmd.getColumnCount();
+		ColumnKind[] kinds = new ColumnKind[colCount];
+		for (int i = 0; i < colCount; i++) {
+			kinds[i] = kindOf(rsmd, i + 1);
+		}
+		this.chars.setLength(0);
+		this.bytes.clear();
+		this.encoder.reset();
+
+		if (this.header) {
+			for (int i = 1; i <= colCount; i++) {
+				if (i > 1) {
+					this.chars.append(this.delimiter);
+				}
+				this.appendText(rsmd.getColumnName(i));
+			}
+			this.chars.append(this.lineSeparator);
+		}
+
+		long rows = 0;
+		while (rs.next()) {
+			for (int i = 0; i < colCount; i++) {
+				if (i > 0) {
+					this.chars.append(this.delimiter);
+				}
+				this.appendValue(rs, i + 1, kinds[i]);
+			}
+			this.chars.append(this.lineSeparator);
+			rows++;
+			if (this.chars.length() >= CHAR_BUFFER_SIZE) {
+				this.encode(channel, false);
+			}
+		}
+		this.encode(channel, true);
+		return rows;
+	}
+
+	private void appendValue(ResultSet rs, int column, ColumnKind kind) throws SQLException {
+		switch (kind) {
+		case INT:
+			int intValue = rs.getInt(column);
+			if (!rs.wasNull()) {
+				this.chars.append(intValue);
+			}
+			break;
+		case LONG:
+			long longValue = rs.getLong(column);
+			if (!rs.wasNull()) {
+				this.chars.append(longValue);
+			}
+			break;
+		case DOUBLE:
+			double doubleValue = rs.getDouble(column);
+			if (!rs.wasNull()) {
+				this.chars.append(doubleValue);
+			}
+			break;
+		case BOOLEAN:
+			boolean booleanValue = rs.getBoolean(column);
+			if (!rs.wasNull()) {
+				this.chars.append(booleanValue);
+			}
+			break;
+		case NUMBER:
+			// Numbers never need quoting
+			String number = rs.getString(column);
+			if (number != null) {
+				this.chars.append(number);
+			}
+			break;
+		default:
+			String text = rs.getString(column);
+			if (text != null) {
+				this.appendText(text);
+			}
+		}
+	}
+
+	/**
+	 * Append a value, quoting it if it contains the delimiter, a quote or a line break.
+	 */
+	private void appendText(String text) {
+		int length = text.length();
+		boolean quote = false;
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == this.delimiter || c == '"' || c == '\n' || c == '\r') {
+				quote = true;
+				break;
+			}
+		}
+		if (!quote) {
+			this.chars.append(text);
+			return;
+		}
+		this.chars.append('"');
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				this.chars.append('"');
+			}
+			this.chars.append(c);
+		}
+		this.chars.append('"');
+	}
+
+	/**
+	 * Encode the buffered characters and write them to the channel whenever the byte buffer fills up.
+	 * @param endOfInput If true, also flush the encoder and write out the byte buffer.
+	 */
+	private void encode(WritableByteChannel channel, boolean endOfInput) throws IOException {
+		CharBuffer in = CharBuffer.wrap(this.chars);
+		while (true) {
+			CoderResult result = this.encoder.encode(in, this.bytes, endOfInput);
+			if (result.isOverflow()) {
+				this.drain(channel);
+			} else if (result.isUnderflow()) {
+				break;
+			} else {
+				result.throwException();
+			}
+		}
+		// Keep any unencoded characters (half of a surrogate pair) for the next call
+		this.chars.delete(0, in.position());
+		if (endOfInput) {
+			while (this.encoder.flush(this.bytes).isOverflow()) {
+				this.drain(channel);
+			}
+			this.drain(channel);
+		}
+	}
+
+	private void drain(WritableByteChannel channel) throws IOException {
+		this.bytes.flip();
+		while (this.bytes.hasRemaining()) {
+			channel.write(this.bytes);
+		}
+		this.bytes.clear();
+	}
+}
@@ -7,48 +7,505 @@ import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneRules;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
 
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.WorkbookUtil;
-import org.apache.poi.xssf.usermodel.XSSFCell;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFCreationHelper;
-import org.apache.poi.xssf.usermodel.XSSFRow;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 public class DataExportExcelWriter {
-	private HashMap<String, XSSFCellStyle> formatCache = null;
-	private XSSFWorkbook workbook = new XSSFWorkbook();
+	/**
+	 * How the value of a column is read and written to its cell.
+	 */
+	private static enum ColumnKind {
+		BOOLEAN, INT, SHORT, LONG, DOUBLE, DATE, TIMESTAMP, TIME, TEXT
+	}
+
+	/** Most data rows a sheet can hold: the row limit of Excel (1,048,576), less the header row. */
+	public static final int MAX_SHEET_ROWS = 1048575;
+
+	/** Units TIMESTAMP values can be truncated to, see {@link #setTimestampPrecision(ChronoUnit)}. */
+	public static final Set<ChronoUnit> TIMESTAMP_PRECISIONS = Collections.unmodifiableSet(
+			EnumSet.of(ChronoUnit.NANOS, ChronoUnit.MICROS, ChronoUnit.MILLIS, ChronoUnit.SECONDS));
+
+	private static final long MILLIS_PER_DAY = 86400000L;
+	private static final long NANOS_PER_MILLI = 1000000L;
+	private static final long NANOS_PER_DAY = MILLIS_PER_DAY * NANOS_PER_MILLI;
+	/** 1970-01-01 as an Excel date number. */
+	private static final long EXCEL_EPOCH_DAY = 25569;
+	/** 1900-03-01, the first day after Excel's non-existent 1900-02-29, as days since 1970-01-01. */
+	private static final long FIRST_EXCEL_DAY = -25508;
+
+	private HashMap<String, CellStyle> formatCache = null;
+	private final Workbook workbook;
+	private ZoneId zone = ZoneId.systemDefault();
+	private ZoneRules zoneRules = this.zone.getRules();
+	private long timestampPrecisionNanos = NANOS_PER_MILLI;
+	private int sheetRowLimit = MAX_SHEET_ROWS;
+	private int sheetCount;
+	// Names of the sheets created or reserved, in lower case as Excel compares sheet names ignoring case
+	private final Set<String> takenSheetNames = new HashSet<String>();
+
+	/**
+	 * Creates a writer that builds the whole workbook in memory before saving it.
+	 */
+	public DataExportExcelWriter() {
+		this(0);
+	}
+
+	/**
+	 * Creates a writer that keeps at most <code>rowWindow</code> rows of the sheet
+	 * in memory. Older rows are flushed to a (compressed) temporary file as the
+	 * {@link ResultSet} is iterated, so heap use stays flat regardless of the number
+	 * of rows exported.
+	 * 
+	 * @param rowWindow Number of rows to keep in memory. If less than 1, the whole
+	 *                  workbook is kept in memory.
+	 */
+	public DataExportExcelWriter(int rowWindow) {
+		if (rowWindow > 0) {
+			SXSSFWorkbook streamingWorkbook = new SXSSFWorkbook(rowWindow);
+			streamingWorkbook.setCompressTempFiles(true);
+			this.workbook = streamingWorkbook;
+		} else {
+			this.workbook = new XSSFWorkbook();
+		}
+	}
+
+	/**
+	 * Set the number of data rows written to a sheet before continuing on a new sheet (Sheet2, Sheet3, ...), each
+	 * with its own header row. When the SQL is saved, the SQL sheet lists the rows each sheet holds.
+	 * 
+	 * @param sheetRowLimit Number of data rows per sheet, at most {@link #MAX_SHEET_ROWS} (the default).
+	 */
+	public void setSheetRowLimit(int sheetRowLimit) {
+		if (sheetRowLimit < 1 || sheetRowLimit > MAX_SHEET_ROWS) {
+			throw new IllegalArgumentException("Rows per sheet must be from 1 to " + MAX_SHEET_ROWS + ": "
+					+ sheetRowLimit);
+		}
+		this.sheetRowLimit = sheetRowLimit;
+	}
+
+	/**
+	 * 
+	 * @return int Number of sheets the last {@link #saveExcel(ResultSet, String, boolean, String)} or
+	 *         {@link #saveWorkbook(String, List, boolean)} wrote data rows to.
+	 */
+	public int getSheetCount() {
+		return this.sheetCount;
+	}
+
+	/**
+	 * Set the time zone DATE, TIME and TIMESTAMP values are shown in. Excel dates have no time zone, so each value is
+	 * written as the local date and time in this zone.
+	 * 
+	 * @param zone Time zone to write dates in. Default is the time zone of the JVM.
+	 */
+	public void setTimeZone(ZoneId zone) {
+		this.zone = zone;
+		this.zoneRules = zone.getRules();
+	}
+
+	/**
+	 * Set the precision TIMESTAMP values are written with. Finer parts of the value are truncated. Excel keeps dates
+	 * as a number of days, which holds about a microsecond for current dates, so finer precisions are rounded by
+	 * Excel.
+	 * 
+	 * @param precision Precision to keep, one of {@link #TIMESTAMP_PRECISIONS}. Default is {@link ChronoUnit#MILLIS}.
+	 */
+	public void setTimestampPrecision(ChronoUnit precision) {
+		if (!TIMESTAMP_PRECISIONS.contains(precision)) {
+			throw new IllegalArgumentException("Unsupported timestamp precision: " + precision);
+		}
+		this.timestampPrecisionNanos = precision.getDuration().toNanos();
+	}
 
 	/*
 	 * note POI which we use for the excel export has a limit of 4000 styles
 	 * therefore formatCache has been introduced to re-use styles across cells.
 	 */
-	private void makeTemporalCell(XSSFCell retVal, Date cellObj, String format) {
-		XSSFCreationHelper creationHelper = workbook.getCreationHelper();
-		XSSFCellStyle cellStyle;
+	private CellStyle getCellStyle(String format) {
 		if (formatCache == null) {
+			formatCache = new HashMap<String, CellStyle>();
+		}
+		CellStyle cellStyle = formatCache.get(format);
+		if (cellStyle == null) {
+			CreationHelper creationHelper = workbook.getCreationHelper();
 			cellStyle = workbook.createCellStyle();
 			cellStyle.setDataFormat(creationHelper.createDataFormat().getFormat(format));
-			formatCache = new HashMap<String, XSSFCellStyle>();
 			formatCache.put(format, cellStyle);
-		} else {
-			cellStyle = formatCache.get(format);
-			if (cellStyle == null) {
-				cellStyle = workbook.createCellStyle();
-				cellStyle.setDataFormat(creationHelper.createDataFormat().getFormat(format));
-				formatCache.put(format, cellStyle);
+		}
+		return cellStyle;
+	}
+
+	/**
+	 * Writes a date as an Excel date number (days since 1899-12-30) computed from its local time in {@link #zone},
+	 * which gives the same number as POI does from a {@link Calendar} without creating one per cell.
+	 * 
+	 * @param nanosOfMilli Nanoseconds beyond the milliseconds of <code>value</code>.
+	 * @param precisionNanos Nanoseconds to truncate the time of day to.
+	 */
+	private void makeTemporalCell(Cell cell, Date value, int nanosOfMilli, long precisionNanos, CellStyle style) {
+		cell.setCellStyle(style);
+		long millis = value.getTime();
+		long localMillis = millis + this.getOffsetMillis(millis);
+		long day = Math.floorDiv(localMillis, MILLIS_PER_DAY);
+		if (day < FIRST_EXCEL_DAY) {
+			// Excel counts 1900 as a leap year, leave the numbering of early dates to POI
+			Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone(this.zone));
+			calendar.setTime(value);
+			cell.setCellValue(calendar);
+			return;
+		}
+		long nanoOfDay = Math.floorMod(localMillis, MILLIS_PER_DAY) * NANOS_PER_MILLI + nanosOfMilli;
+		nanoOfDay -= nanoOfDay % precisionNanos;
+		// Added in the same order as POI, which skips 1900-02-29 last, so the numbers are identical
+		double excelDate = (day + EXCEL_EPOCH_DAY - 1) + nanoOfDay / (double) NANOS_PER_DAY;
+		cell.setCellValue(excelDate + 1);
+	}
+
+	private long getOffsetMillis(long millis) {
+		if (this.zoneRules.isFixedOffset()) {
+			return this.zoneRules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L;
+		}
+		return this.zoneRules.getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+	}
+
+	/**
+	 * Writes the value of a column to its cell, reading it with the primitive accessor for the kind of column so it
+	 * is not boxed. Null values are written as empty strings.
+	 */
+	private void writeCell(ResultSet rs, int column, ColumnKind kind, CellStyle style, Cell cell)
+			throws SQLException {
+		switch (kind) {
+		case BOOLEAN:
+			boolean booleanValue = rs.getBoolean(column);
+			if (rs.wasNull()) {
+				cell.setCellValue("");
+			} else {
+				cell.setCellValue(booleanValue);
+			}
+			break;
+		case INT:
+			int intValue = rs.getInt(column);
+			if (rs.wasNull()) {
+				cell.setCellValue("");
+			} else {
+				cell.setCellValue(intValue);
+			}
+			break;
+		case SHORT:
+			short shortValue = rs.getShort(column);
+			if (rs.wasNull()) {
+				cell.setCellValue("");
+			} else {
+				cell.setCellValue(shortValue);
+			}
+			break;
+		case LONG:
+			long longValue = rs.getLong(column);
+			if (rs.wasNull()) {
+				cell.setCellValue("");
+			} else {
+				cell.setCellValue(longValue);
+			}
+			break;
+		case DOUBLE:
+			double doubleValue = rs.getDouble(column);
+			if (rs.wasNull()) {
+				cell.setCellValue("");
+			} else {
+				cell.setCellValue(doubleValue);
+			}
+			break;
+		case DATE:
+			Timestamp date = rs.getTimestamp(column);
+			if (date == null) {
+				cell.setCellValue("");
+			} else {
+				this.makeTemporalCell(cell, date, 0, NANOS_PER_MILLI, style);
+			}
+			break;
+		case TIMESTAMP:
+			Timestamp timestamp = rs.getTimestamp(column);
+			if (timestamp == null) {
+				cell.setCellValue("");
+			} else {
+				this.makeTemporalCell(cell, timestamp, timestamp.getNanos() % (int) NANOS_PER_MILLI,
+						this.timestampPrecisionNanos, style);
+			}
+			break;
+		case TIME:
+			Time time = rs.getTime(column);
+			if (time == null) {
+				cell.setCellValue("");
+			} else {
+				this.makeTemporalCell(cell, time, 0, NANOS_PER_MILLI, style);
+			}
+			break;
+		default:
+			cell.setCellValue(getDataXLSAsString(rs.getString(column)));
+		}
+	}
+
+	private static ColumnKind kindOf(ResultSetMetaData rsmd, int column) throws SQLException {
+		switch (rsmd.getColumnType(column)) {
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return ColumnKind.BOOLEAN;
+		case Types.INTEGER:
+			return ColumnKind.INT;
+		case Types.SMALLINT:
+		case Types.TINYINT:
+			return ColumnKind.SHORT;
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+		case Types.REAL:
+			return ColumnKind.DOUBLE;
+		case Types.BIGINT:
+			return ColumnKind.LONG;
+		case Types.DATE:
+			return ColumnKind.DATE;
+		case Types.TIMESTAMP:
+			return ColumnKind.TIMESTAMP;
+		case Types.TIME:
+			return ColumnKind.TIME;
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+		default:
+			return ColumnKind.TEXT;
+		}
+	}
+
+	private CellStyle getColumnStyle(ColumnKind kind) {
+		switch (kind) {
+		case DATE:
+			return this.getCellStyle("m/d/yy");
+		case TIMESTAMP:
+			return this.getCellStyle("m/d/yy h:mm");
+		case TIME:
+			return this.getCellStyle("h:mm");
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Creates a sheet for data rows, with a header row of the column names.
+	 */
+	private Sheet createDataSheet(String name, ResultSetMetaData rsmd) throws SQLException {
+		String safeName = WorkbookUtil.createSafeSheetName(name);
+		Sheet spreadsheet = workbook.createSheet(safeName);
+		this.takenSheetNames.add(safeName.toLowerCase(Locale.ROOT));
+		Row row = spreadsheet.createRow(0);
+		int colCount = rsmd.getColumnCount();
+		for (int i = 1; i <= colCount; i++) {
+			row.createCell(i - 1).setCellValue(rsmd.getColumnName(i));
+		}
+		return spreadsheet;
+	}
+
+	/**
+	 * Reserves the name of a sheet that is created later, so that no further sheet of another result is given that
+	 * name in the meantime.
+	 * 
+	 * @param name Name of the sheet, as passed to {@link #createSheetWriter(String, String, ResultSetMetaData)}.
+	 */
+	public void reserveSheetName(String name) {
+		this.takenSheetNames.add(WorkbookUtil.createSafeSheetName(name).toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Writes the rows of one result to a sheet of the workbook, continuing on further sheets at the sheet row limit.
+	 * Rows may be written over several calls to {@link #write(ResultSet)}, so the results of several queries can each
+	 * be written to their own sheet as their rows arrive.
+	 * @see DataExportExcelWriter#createSheetWriter(String, String, ResultSetMetaData)
+	 */
+	public class SheetWriter {
+		private final String name;
+		private final String sql;
+		private final ColumnKind[] kinds;
+		private final CellStyle[] styles;
+		private final ResultSetMetaData rsmd;
+		// Sheet names and the first data row of each sheet
+		private final List<String> sheetNames = new ArrayList<String>();
+		private final List<Long> firstRows = new ArrayList<Long>();
+		private Sheet sheet;
+		private int sheetNumber;
+		private int sheetRow;
+		private long rows;
+
+		private SheetWriter(String name, String sql, ResultSetMetaData rsmd) throws SQLException {
+			this.name = name;
+			this.sql = sql;
+			this.rsmd = rsmd;
+
+			// Decide how each column is read and written once, rather than per cell
+			int colCount = rsmd.getColumnCount();
+			this.kinds = new ColumnKind[colCount];
+			this.styles = new CellStyle[colCount];
+			for (int i = 0; i < colCount; i++) {
+				this.kinds[i] = kindOf(rsmd, i + 1);
+				this.styles[i] = getColumnStyle(this.kinds[i]);
+			}
+			this.nextSheet();
+		}
+
+		private void nextSheet() throws SQLException {
+			String sheetName;
+			do {
+				sheetName = this.sheetName(++this.sheetNumber);
+				// The first sheet of a named result has the name it may have reserved, later ones skip taken names
+			} while ((this.name == null || this.sheetNumber > 1)
+					&& takenSheetNames.contains(sheetName.toLowerCase(Locale.ROOT)));
+			this.sheet = createDataSheet(sheetName, this.rsmd);
+			this.sheetNames.add(this.sheet.getSheetName());
+			this.firstRows.add(this.rows + 1);
+			this.sheetRow = 0;
+		}
+
+		/**
+		 * Sheets of an unnamed result are numbered Sheet1, Sheet2, ... Further sheets of a named result are numbered
+		 * after the name, such as "Orders (2)", shortening the name if needed to fit the 31 characters Excel allows.
+		 * Numbers whose name is already taken by another sheet are skipped.
+		 */
+		private String sheetName(int number) {
+			if (this.name == null) {
+				return "Sheet" + number;
+			}
+			String safeName = WorkbookUtil.createSafeSheetName(this.name);
+			if (number == 1) {
+				return safeName;
+			}
+			String suffix = " (" + number + ")";
+			return safeName.substring(0, Math.min(safeName.length(), 31 - suffix.length())) + suffix;
+		}
+
+		/**
+		 * Writes the remaining rows of a {@link ResultSet} after the rows already written. The {@link ResultSet} is
+		 * not closed.
+		 * 
+		 * @param rs Rows to write, with the columns the writer was created for.
+		 * @return long Number of rows written by this call.
+		 * @throws SQLException When unable to read the ResultSet.
+		 */
+		public long write(ResultSet rs) throws SQLException {
+			int colCount = this.kinds.length;
+			long written = 0;
+			while (rs.next()) {
+				if (this.sheetRow == sheetRowLimit) {
+					// Continue on a new sheet rather than fail at the row limit of Excel
+					this.nextSheet();
+				}
+				this.sheetRow++;
+				this.rows++;
+				written++;
+				// Create new row in sheet
+				Row dataRow = this.sheet.createRow(this.sheetRow);
+
+				// Create each column in the row
+				for (int i = 0; i < colCount; i++) {
+					writeCell(rs, i + 1, this.kinds[i], this.styles[i], dataRow.createCell(i));
+				}
+			}
+			return written;
+		}
+
+		/**
+		 * 
+		 * @return long Number of data rows written so far.
+		 */
+		public long getRows() {
+			return this.rows;
+		}
+
+		/**
+		 * 
+		 * @return List Names of the sheets written so far, in order.
+		 */
+		public List<String> getSheetNames() {
+			return this.sheetNames;
+		}
+	}
+
+	/**
+	 * Creates a sheet for the rows of a result, with a header row of its column names. Sheets are added to the
+	 * workbook in the order they are created, see {@link #saveWorkbook(String, List, boolean)} to reorder them.
+	 * 
+	 * @param name Name of the sheet, or null to name the sheets Sheet1, Sheet2, ...
+	 * @param sql  Query of the result, written to the "SQL Statement" sheet if the SQL is saved.
+	 * @param rsmd Columns of the result.
+	 * @return SheetWriter Writer of the rows of the result.
+	 * @throws SQLException When unable to read the metadata.
+	 */
+	public SheetWriter createSheetWriter(String name, String sql, ResultSetMetaData rsmd) throws SQLException {
+		return new SheetWriter(name, sql, rsmd);
+	}
+
+	/**
+	 * Lists the sheets, and the rows each holds, on an "SQL Statement" sheet from the given row, with the query of
+	 * each result on its first sheet if <code>withSql</code> is set.
+	 */
+	private void writeSheetRanges(Sheet spreadsheet, int rowNumber, List<SheetWriter> writers, boolean withSql) {
+		Row row = spreadsheet.createRow(rowNumber);
+		row.createCell(0).setCellValue("Sheet");
+		row.createCell(1).setCellValue("First row");
+		row.createCell(2).setCellValue("Last row");
+		if (withSql) {
+			row.createCell(3).setCellValue("SQL");
+		}
+		for (SheetWriter writer : writers) {
+			for (int i = 0; i < writer.sheetNames.size(); i++) {
+				long lastRow = i + 1 < writer.sheetNames.size() ? writer.firstRows.get(i + 1) - 1 : writer.rows;
+				row = spreadsheet.createRow(++rowNumber);
+				row.createCell(0).setCellValue(writer.sheetNames.get(i));
+				row.createCell(1).setCellValue(writer.firstRows.get(i));
+				row.createCell(2).setCellValue(lastRow);
+				if (withSql && i == 0 && writer.sql != null) {
+					row.createCell(3).setCellValue(writer.sql);
+				}
 			}
 		}
-		retVal.setCellStyle(cellStyle);
-		if (null != cellObj) {
-			Calendar calendar = Calendar.getInstance();
-			calendar.setTime((Date) cellObj);
-			retVal.setCellValue(calendar);
+	}
+
+	/**
+	 * Writes the workbook to a file and releases it.
+	 */
+	private void write(String filePath) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(new File(filePath))) {
+			workbook.write(out);
+		} finally {
+			if (workbook instanceof SXSSFWorkbook) {
+				// Remove the temporary files backing the flushed rows
+				((SXSSFWorkbook) workbook).dispose();
+			}
+			workbook.close();
 		}
 	}
 
@@ -68,6 +525,7 @@ public class DataExportExcelWriter {
 	 * @param saveSql  If true, will add a sheet and write the SQL query to it.
 	 * @param sql      If saveSql is true, will use this as the query to add to the
 	 *                 new sheet "SQL Statment".
+	 * @return long Number of data rows written.
 	 * @throws FileNotFoundException When unable to open Excel file to write to.
 	 * @throws IOException           When unable to write to Excel file or save
 	 *                               file.
@@ -75,105 +533,50 @@ public class DataExportExcelWriter {
 	 *                               ResultSet.
 	 * @see net.sourceforge.squirrel_sql.fw.gui.action.fileexport.DataExportExcelWriter
 	 */
-	public void saveExcel(ResultSet rs, String filePath, boolean saveSql, String sql) throws IOException, SQLException {
-
-		XSSFSheet spreadsheet = workbook.createSheet(WorkbookUtil.createSafeSheetName("Sheet1"));
-		XSSFRow row = spreadsheet.createRow(0);
-		XSSFCell cell;
-
-		try {
-			ResultSetMetaData rsmd = rs.getMetaData();
-			int colCount = rsmd.getColumnCount();
+	public long saveExcel(ResultSet rs, String filePath, boolean saveSql, String sql) throws IOException, SQLException {
+		SheetWriter data = this.createSheetWriter(null, sql, rs.getMetaData());
+		long rows = data.write(rs);
 
-			// write header row
-			for (int i = 1; i <= colCount; i++) {
-				cell = row.createCell(i - 1);
-				cell.setCellValue(rsmd.getColumnName(i));
+		if (saveSql) {
+			Sheet spreadsheet = workbook.createSheet(WorkbookUtil.createSafeSheetName("SQL Statement"));
+			Row row = spreadsheet.createRow(0);
+			Cell cell = row.createCell(0);
+			cell.setCellValue(sql);
+			if (data.sheetNames.size() > 1) {
+				// Record which sheet holds which rows
+				this.writeSheetRanges(spreadsheet, 2, Collections.singletonList(data), false);
 			}
+		}
+		this.sheetCount = data.sheetNames.size();
 
-			// write data rows
-			for (int r = 1; rs.next(); r++) {
-				// Create new row in sheet
-				XSSFRow dataRow = spreadsheet.createRow(r);
-
-				// Create each column in the row
-				for (int i = 0; i < colCount; i++) {
-
-					Object cellObj = rs.getObject(i + 1);
-					cell = dataRow.createCell(i);
-
-					// If cellObj is null, set to empty string "", otherwise methods will fail
-					// ("intValue()","shortValue()", etc...)
-					if (cellObj == null) {
-						cell.setCellValue(getDataXLSAsString(cellObj));
-						continue;
-					}
-
-					// cellObj not null, set appropriate data type for Excel.
-					switch (rsmd.getColumnType(i + 1)) {
-					case Types.BIT:
-					case Types.BOOLEAN:
-						cell.setCellValue((Boolean) cellObj);
-						break;
-					case Types.INTEGER:
-						cell.setCellValue(((Number) cellObj).intValue());
-						break;
-					case Types.SMALLINT:
-					case Types.TINYINT:
-						cell.setCellValue(((Number) cellObj).shortValue());
-						break;
-					case Types.NUMERIC:
-					case Types.DECIMAL:
-					case Types.FLOAT:
-					case Types.DOUBLE:
-					case Types.REAL:
-						cell.setCellValue(((Number) cellObj).doubleValue());
-						break;
-					case Types.BIGINT:
-						cell.setCellValue(Long.parseLong(cellObj.toString()));
-						break;
-					case Types.DATE:
-						makeTemporalCell(cell, (Date) cellObj, "m/d/yy");
-						break;
-					case Types.TIMESTAMP:
-						makeTemporalCell(cell, (Date) cellObj, "m/d/yy h:mm");
-						break;
-					case Types.TIME:
-						makeTemporalCell(cell, (Date) cellObj, "h:mm");
-						break;
-					case Types.CHAR:
-					case Types.VARCHAR:
-					case Types.LONGVARCHAR:
-					default:
-						cell.setCellValue(getDataXLSAsString(cellObj));
-					}
-				}
-			}
+		this.write(filePath);
+		rs.close();
+		return rows;
+	}
 
-			if (saveSql) {
-				spreadsheet = workbook.createSheet(WorkbookUtil.createSafeSheetName("SQL Statement"));
-				row = spreadsheet.createRow(0);
-				cell = row.createCell(0);
-				cell.setCellValue(sql);
+	/**
+	 * Saves the sheets written by several {@link SheetWriter}s to an Excel file in one write. The sheets are ordered
+	 * as the writers are listed, whatever order they were created in.
+	 * 
+	 * @param filePath File path to save Excel file to.
+	 * @param writers  Writers of the sheets, in the order the sheets should appear.
+	 * @param saveSql  If true, will add an "SQL Statement" sheet listing the sheets, the rows each holds and the query
+	 *                 of each result.
+	 * @throws FileNotFoundException When unable to open Excel file to write to.
+	 * @throws IOException           When unable to write to Excel file or save file.
+	 */
+	public void saveWorkbook(String filePath, List<SheetWriter> writers, boolean saveSql) throws IOException {
+		int position = 0;
+		for (SheetWriter writer : writers) {
+			for (String sheetName : writer.sheetNames) {
+				workbook.setSheetOrder(sheetName, position++);
 			}
-		} catch (SQLException e) {
-			throw e;
 		}
-
-		FileOutputStream out;
-		try {
-			out = new FileOutputStream(new File(filePath));
-			workbook.write(out);
-			workbook.close();
-			out.close();
-			rs.close();
-		} catch (FileNotFoundException e) {
-			throw e;
-		} catch (IOException e) {
-			throw e;
-		} catch (SQLException e) {
-			throw e;
+		if (saveSql) {
+			this.writeSheetRanges(workbook.createSheet(WorkbookUtil.createSafeSheetName("SQL Statement")), 0, writers,
+					true);
 		}
-
+		this.sheetCount = position;
+		this.write(filePath);
 	}
 }
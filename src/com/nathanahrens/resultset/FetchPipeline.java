@@ -0,0 +1,262 @@
+package com.nathanahrens.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <p>Fetches the rows of a {@link ResultSet} on a separate thread, so that the round trips to the source overlap with
+ * the writing of the rows (such as encoding cells in {@link DataExportExcelWriter}).</p>
+ * <p>The fetch thread reads the rows into batches and puts them on a bounded queue. The writer reads the batches back
+ * through the {@link ResultSet} returned by {@link #start()}, which can be handed to the existing writers unchanged.
+ * When the queue is full the fetch thread waits for the writer, and when it is empty the writer waits for the fetch
+ * thread; the time each side spends waiting shows which one limits the export.</p>
+ * @author nahrens
+ *
+ */
+public class FetchPipeline implements RowResultSet.RowSource {
+	/** Default number of rows per batch. */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	/** Default number of batches the queue holds. */
+	public static final int DEFAULT_QUEUE_BATCHES = 16;
+	/** Longest time {@link #close()} waits for the fetch thread to finish, in milliseconds. */
+	public static final long CLOSE_TIMEOUT_MILLIS = 10000;
+
+	private static final List<Object[]> END_OF_ROWS = new ArrayList<Object[]>(0);
+
+	private final ResultSet rs;
+	private final int batchSize;
+	private final BlockingQueue<List<Object[]>> queue;
+	private Thread fetcher;
+	private volatile SQLException error;
+	private volatile boolean cancelled;
+	private List<Object[]> batch;
+	private int position;
+	private boolean finished;
+
+	// Counters, written by the fetch thread until END_OF_ROWS is queued
+	private volatile long rows;
+	private volatile long batches;
+	private volatile long fetchNanos;
+	private volatile long fetchStallNanos;
+	// Counters, written by the writer
+	private long writeStallNanos;
+	private long depthSamples;
+	private long depthTotal;
+	private int maxDepth;
+
+	/**
+	 *
+	 * @param rs ResultSet to fetch the rows of. Once started, it must only be read through the pipeline.
+	 */
+	public FetchPipeline(ResultSet rs) {
+		this(rs, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_BATCHES);
+	}
+
+	/**
+	 *
+	 * @param rs           ResultSet to fetch the rows of. Once started, it must only be read through the pipeline.
+	 * @param batchSize    Number of rows per batch.
+	 * @param queueBatches Number of batches the fetch thread may get ahead of the writer.
+	 */
+	public FetchPipeline(ResultSet rs, int batchSize, int queueBatches) {
+		this.rs = rs;
+		this.batchSize = Math.max(batchSize, 1);
+		this.queue = new ArrayBlockingQueue<List<Object[]>>(Math.max(queueBatches, 1));
+	}
+
+	/**
+	 * Start fetching the rows.
+	 * @return ResultSet Rows of the source {@link ResultSet}, read from the queue.
+	 * @throws SQLException When unable to read the metadata of the source ResultSet.
+	 */
+	public ResultSet start() throws SQLException {
+		RowResultSetMetaData rsmd = RowResultSetMetaData.copyOf(this.rs.getMetaData());
+		int colCount = rsmd.getColumnCount();
+		this.fetcher = new Thread(() -> this.fetch(colCount), "FetchPipeline-fetch");
+		this.fetcher.setDaemon(true);
+		this.fetcher.start();
+		return RowResultSet.create(rsmd, this);
+	}
+
+	private void fetch(int colCount) {
+		long startTime = System.nanoTime();
+		try {
+			List<Object[]> rowBatch = new ArrayList<Object[]>(this.batchSize);
+			while (!this.cancelled && this.rs.next()) {
+				rowBatch.add(RowResultSet.readRow(this.rs, colCount));
+				this.rows++;
+				if (rowBatch.size() == this.batchSize) {
+					this.put(rowBatch);
+					rowBatch = new ArrayList<Object[]>(this.batchSize);
+				}
+			}
+			if (!rowBatch.isEmpty()) {
+				this.put(rowBatch);
+			}
+		} catch (SQLException e) {
+			this.error = e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.fetchNanos = System.nanoTime() - startTime;
+			try {
+				this.queue.put(END_OF_ROWS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void put(List<Object[]> rowBatch) throws InterruptedException {
+		if (!this.queue.offer(rowBatch)) {
+			long startTime = System.nanoTime();
+			this.queue.put(rowBatch);
+			this.fetchStallNanos += System.nanoTime() - startTime;
+		}
+		this.batches++;
+	}
+
+	public Object[] nextRow() throws SQLException {
+		while (this.batch == null || this.position >= this.batch.size()) {
+			if (this.finished) {
+				return null;
+			}
+			int depth = this.queue.size();
+			this.depthSamples++;
+			this.depthTotal += depth;
+			this.maxDepth = Math.max(this.maxDepth, depth);
+			try {
+				this.batch = this.queue.poll();
+				if (this.batch == null) {
+					long startTime = System.nanoTime();
+					this.batch = this.queue.take();
+					this.writeStallNanos += System.nanoTime() - startTime;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for rows", e);
+			}
+			this.position = 0;
+			if (this.batch == END_OF_ROWS) {
+				this.finished = true;
+				this.batch = null;
+				if (this.error != null) {
+					throw this.error;
+				}
+			}
+		}
+		return this.batch.get(this.position++);
+	}
+
+	/**
+	 * Stop the fetch thread (if still running) and wait up to {@link #CLOSE_TIMEOUT_MILLIS} for it to finish with the
+	 * source {@link ResultSet}. A fetch thread blocked in a round trip is unblocked by cancelling the statement of the
+	 * ResultSet, if the driver supports it. The source ResultSet itself is left open. See {@link #isFetching()} for
+	 * whether the fetch thread stopped in time.
+	 */
+	public void close() {
+		this.cancelled = true;
+		if (this.fetcher == null || !this.fetcher.isAlive()) {
+			return;
+		}
+		// Unblock the fetch thread if it is waiting on a full queue, or on the source
+		this.queue.clear();
+		try {
+			Statement stmt = this.rs.getStatement();
+			if (stmt != null) {
+				stmt.cancel();
+			}
+		} catch (SQLException e) {
+			// Statement already complete or closed, or cancel not supported
+		}
+		long deadline = System.nanoTime() + CLOSE_TIMEOUT_MILLIS * 1000000L;
+		while (this.fetcher.isAlive() && System.nanoTime() < deadline) {
+			// The fetch thread may have filled the queue again before seeing the cancel
+			this.queue.clear();
+			try {
+				this.fetcher.join(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return boolean True while the fetch thread is reading the source {@link ResultSet}. If still true after
+	 *         {@link #close()}, closing the statement is the only way left to stop it.
+	 */
+	public boolean isFetching() {
+		return this.fetcher != null && this.fetcher.isAlive();
+	}
+
+	/**
+	 *
+	 * @return long Number of rows fetched.
+	 */
+	public long getRows() {
+		return this.rows;
+	}
+
+	/**
+	 *
+	 * @return long Number of batches queued.
+	 */
+	public long getBatches() {
+		return this.batches;
+	}
+
+	/**
+	 *
+	 * @return int Number of batches currently waiting in the queue.
+	 */
+	public int getQueueDepth() {
+		return this.queue.size();
+	}
+
+	/**
+	 *
+	 * @return int Largest number of batches seen waiting in the queue by the writer.
+	 */
+	public int getMaxQueueDepth() {
+		return this.maxDepth;
+	}
+
+	/**
+	 *
+	 * @return double Average number of batches seen waiting in the queue by the writer.
+	 */
+	public double getMeanQueueDepth() {
+		return this.depthSamples == 0 ? 0.0 : (double) this.depthTotal / this.depthSamples;
+	}
+
+	/**
+	 *
+	 * @return long Time the fetch thread spent fetching rows (including waiting on the writer), in nanoseconds.
+	 */
+	public long getFetchNanos() {
+		return this.fetchNanos;
+	}
+
+	/**
+	 *
+	 * @return long Time the fetch thread spent waiting for the writer to make room in the queue, in nanoseconds.
+	 */
+	public long getFetchStallNanos() {
+		return this.fetchStallNanos;
+	}
+
+	/**
+	 *
+	 * @return long Time the writer spent waiting for the fetch thread to queue rows, in nanoseconds.
+	 */
+	public long getWriteStallNanos() {
+		return this.writeStallNanos;
+	}
+}
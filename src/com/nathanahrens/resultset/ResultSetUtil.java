@@ -4,9 +4,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
 
 import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.apache.poi.xssf.usermodel.XSSFRow;
@@ -44,22 +46,79 @@ public class ResultSetUtil {
 		}
 	}
 
-	public static void printResultSet(ResultSet rs, String separator) {
+	/**
+	 * Prints a {@link ResultSet} to stdout as delimited text, with a header row, see
+	 * {@link DataExportDelimitedWriter}.
+	 * 
+	 * @param rs        {@link ResultSet} to print
+	 * @param separator String to use as column separator (only the first character is used)
+	 * @return long Number of rows printed.
+	 */
+	public static long printResultSet(ResultSet rs, String separator) {
+		long rows = 0;
 		try {
-			ResultSetMetaData rsmd = rs.getMetaData();
-			int colCount = rsmd.getColumnCount();
-
-			printHeaders(rs, separator, true);
-			while (rs.next()) {
-				for (int i = 1; i <= colCount; i++) {
-					System.out.print(rs.getString(i) + separator);
-				}
-				System.out.println();
-			}
+			DataExportDelimitedWriter writer = new DataExportDelimitedWriter(separator.charAt(0),
+					Charset.defaultCharset());
+			writer.setLineSeparator(System.lineSeparator());
+			rows = writer.print(rs);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			System.out.println("Unable to parse ResultSet to print...");
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.out.println("Unable to print ResultSet...");
+		}
+		return rows;
+	}
+
+	/**
+	 * Estimates the number of bytes a row of the {@link ResultSet} takes on the wire, from the type and declared
+	 * size of each column.
+	 * 
+	 * @param rsmd Metadata of the {@link ResultSet}.
+	 * @return int Estimated width of a row in bytes.
+	 * @throws SQLException
+	 */
+	public static int estimateRowWidth(ResultSetMetaData rsmd) throws SQLException {
+		int colCount = rsmd.getColumnCount();
+		int width = 0;
+		for (int i = 1; i <= colCount; i++) {
+			switch (rsmd.getColumnType(i)) {
+			case Types.BIT:
+			case Types.BOOLEAN:
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				width += 4;
+				break;
+			case Types.BIGINT:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+			case Types.REAL:
+				width += 8;
+				break;
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				// Oracle NUMBER is at most 22 bytes
+				width += 22;
+				break;
+			case Types.DATE:
+			case Types.TIME:
+			case Types.TIMESTAMP:
+				width += 11;
+				break;
+			case Types.BLOB:
+			case Types.CLOB:
+			case Types.NCLOB:
+				// Only the locator (and any prefetched data) travels with the row
+				width += 4000;
+				break;
+			default:
+				int size = rsmd.getColumnDisplaySize(i);
+				width += (size <= 0 || size > 4000) ? 4000 : size;
+			}
 		}
+		return Math.max(width, 1);
 	}
 
 	/**
@@ -0,0 +1,1026 @@
+package com.nathanahrens.resultset;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * <p>Forward-only, read-only {@link ResultSet} over rows that have already been read into memory (or are being read
+ * by another thread), so that they can be handed to the existing writers ({@link DataExportExcelWriter},
+ * {@link ResultSetUtil}) as if they came straight from the source.</p>
+ * <p>Rows are supplied by a {@link RowSource} as arrays of column values (as returned by
+ * {@link ResultSet#getObject(int)}). The typed getters convert the value in place, so reading a number with
+ * {@link #getLong(int)} or {@link #getDouble(int)} does not box it. Only the accessors used to read the values are
+ * supported; everything else throws {@link SQLFeatureNotSupportedException}. The getters taking a {@link Calendar}
+ * ignore it, as the values are already dates.</p>
+ * @author nahrens
+ *
+ */
+public final class RowResultSet implements ResultSet {
+
+	/**
+	 * Supplies the rows of a {@link RowResultSet}.
+	 */
+	public interface RowSource {
+		/**
+		 *
+		 * @return Object[] The next row, or null when there are no more rows.
+		 * @throws SQLException When the rows can not be read.
+		 */
+		public Object[] nextRow() throws SQLException;
+
+		/**
+		 * Release any resources held by the source. Called when the {@link ResultSet} is closed.
+		 */
+		public void close();
+	}
+
+	private final ResultSetMetaData rsmd;
+	private final RowSource source;
+	private Object[] row;
+	private int rowNumber;
+	private boolean lastWasNull;
+	private boolean closed;
+
+	private RowResultSet(ResultSetMetaData rsmd, RowSource source) {
+		this.rsmd = rsmd;
+		this.source = source;
+	}
+
+	/**
+	 *
+	 * @param rsmd   Metadata describing the rows. Should not depend on an open {@link ResultSet}, see
+	 *               {@link RowResultSetMetaData#copyOf(ResultSetMetaData)}.
+	 * @param source Source of the rows.
+	 * @return ResultSet ResultSet returning the rows of the source.
+	 */
+	public static ResultSet create(ResultSetMetaData rsmd, RowSource source) {
+		return new RowResultSet(rsmd, source);
+	}
+
+	/**
+	 * Reads the current row of a {@link ResultSet} into an array. LOB values are read in full, since the locators are
+	 * only valid while the originating statement is open.
+	 *
+	 * @param rs       ResultSet positioned on a row.
+	 * @param colCount Number of columns in the ResultSet.
+	 * @return Object[] Values of the columns of the row.
+	 * @throws SQLException
+	 */
+	public static Object[] readRow(ResultSet rs, int colCount) throws SQLException {
+		Object[] values = new Object[colCount];
+		for (int i = 0; i < colCount; i++) {
+			Object value = rs.getObject(i + 1);
+			if (value instanceof Clob) {
+				Clob clob = (Clob) value;
+				value = clob.getSubString(1, (int) clob.length());
+			} else if (value instanceof Blob) {
+				Blob blob = (Blob) value;
+				value = blob.getBytes(1, (int) blob.length());
+			}
+			values[i] = value;
+		}
+		return values;
+	}
+
+	public boolean next() throws SQLException {
+		if (this.closed) {
+			throw new SQLException("ResultSet is closed");
+		}
+		this.row = this.source.nextRow();
+		if (this.row == null) {
+			return false;
+		}
+		this.rowNumber++;
+		return true;
+	}
+
+	public void close() throws SQLException {
+		if (!this.closed) {
+			this.closed = true;
+			this.row = null;
+			this.source.close();
+		}
+	}
+
+	public boolean isClosed() throws SQLException {
+		return this.closed;
+	}
+
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return this.rsmd;
+	}
+
+	public boolean wasNull() throws SQLException {
+		return this.lastWasNull;
+	}
+
+	public int findColumn(String columnLabel) throws SQLException {
+		int colCount = this.rsmd.getColumnCount();
+		for (int i = 1; i <= colCount; i++) {
+			if (this.rsmd.getColumnLabel(i).equalsIgnoreCase(columnLabel)) {
+				return i;
+			}
+		}
+		throw new SQLException("Invalid column name: " + columnLabel);
+	}
+
+	public int getRow() throws SQLException {
+		return this.row == null ? 0 : this.rowNumber;
+	}
+
+	public int getType() throws SQLException {
+		return ResultSet.TYPE_FORWARD_ONLY;
+	}
+
+	public int getConcurrency() throws SQLException {
+		return ResultSet.CONCUR_READ_ONLY;
+	}
+
+	public int getFetchDirection() throws SQLException {
+		return ResultSet.FETCH_FORWARD;
+	}
+
+	public int getFetchSize() throws SQLException {
+		return 0;
+	}
+
+	public void setFetchSize(int rows) throws SQLException {
+	}
+
+	public SQLWarning getWarnings() throws SQLException {
+		return null;
+	}
+
+	public void clearWarnings() throws SQLException {
+	}
+
+	public Statement getStatement() throws SQLException {
+		return null;
+	}
+
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this);
+	}
+
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Not a wrapper for " + iface);
+	}
+
+	/**
+	 * Value of a column of the current row, recording whether it is null.
+	 */
+	private Object value(int columnIndex) throws SQLException {
+		if (this.row == null) {
+			throw new SQLException("ResultSet is not positioned on a row");
+		}
+		if (columnIndex < 1 || columnIndex > this.row.length) {
+			throw new SQLException("Invalid column index: " + columnIndex);
+		}
+		Object value = this.row[columnIndex - 1];
+		this.lastWasNull = value == null;
+		return value;
+	}
+
+	/**
+	 * Value of a numeric column of the current row, or null if it is null.
+	 */
+	private Number number(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null || value instanceof Number) {
+			return (Number) value;
+		}
+		if (value instanceof Boolean) {
+			return ((Boolean) value) ? 1 : 0;
+		}
+		try {
+			return new BigDecimal(value.toString().trim());
+		} catch (NumberFormatException e) {
+			throw new SQLException("Unable to convert " + value.getClass().getName() + " to a number", e);
+		}
+	}
+
+	public String getString(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		return value == null ? null : value.toString();
+	}
+
+	public String getString(String columnLabel) throws SQLException {
+		return this.getString(this.findColumn(columnLabel));
+	}
+
+	public String getNString(int columnIndex) throws SQLException {
+		return this.getString(columnIndex);
+	}
+
+	public String getNString(String columnLabel) throws SQLException {
+		return this.getString(this.findColumn(columnLabel));
+	}
+
+	public boolean getBoolean(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null) {
+			return false;
+		} else if (value instanceof Boolean) {
+			return (Boolean) value;
+		} else if (value instanceof Number) {
+			return ((Number) value).intValue() != 0;
+		}
+		String text = value.toString().trim();
+		return Boolean.parseBoolean(text) || text.equals("1");
+	}
+
+	public boolean getBoolean(String columnLabel) throws SQLException {
+		return this.getBoolean(this.findColumn(columnLabel));
+	}
+
+	public byte getByte(int columnIndex) throws SQLException {
+		Number number = this.number(columnIndex);
+		return number == null ? 0 : number.byteValue();
+	}
+
+	public byte getByte(String columnLabel) throws SQLException {
+		return this.getByte(this.findColumn(columnLabel));
+	}
+
+	public short getShort(int columnIndex) throws SQLException {
+		Number number = this.number(columnIndex);
+		return number == null ? 0 : number.shortValue();
+	}
+
+	public short getShort(String columnLabel) throws SQLException {
+		return this.getShort(this.findColumn(columnLabel));
+	}
+
+	public int getInt(int columnIndex) throws SQLException {
+		Number number = this.number(columnIndex);
+		return number == null ? 0 : number.intValue();
+	}
+
+	public int getInt(String columnLabel) throws SQLException {
+		return this.getInt(this.findColumn(columnLabel));
+	}
+
+	public long getLong(int columnIndex) throws SQLException {
+		Number number = this.number(columnIndex);
+		return number == null ? 0 : number.longValue();
+	}
+
+	public long getLong(String columnLabel) throws SQLException {
+		return this.getLong(this.findColumn(columnLabel));
+	}
+
+	public float getFloat(int columnIndex) throws SQLException {
+		Number number = this.number(columnIndex);
+		return number == null ? 0 : number.floatValue();
+	}
+
+	public float getFloat(String columnLabel) throws SQLException {
+		return this.getFloat(this.findColumn(columnLabel));
+	}
+
+	public double getDouble(int columnIndex) throws SQLException {
+		Number number = this.number(columnIndex);
+		return number == null ? 0 : number.doubleValue();
+	}
+
+	public double getDouble(String columnLabel) throws SQLException {
+		return this.getDouble(this.findColumn(columnLabel));
+	}
+
+	public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+		Number number = this.number(columnIndex);
+		if (number == null || number instanceof BigDecimal) {
+			return (BigDecimal) number;
+		}
+		return new BigDecimal(number.toString());
+	}
+
+	public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+		return this.getBigDecimal(this.findColumn(columnLabel));
+	}
+
+	@Deprecated
+	public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+		BigDecimal value = this.getBigDecimal(columnIndex);
+		return value == null ? null : value.setScale(scale, RoundingMode.HALF_UP);
+	}
+
+	@Deprecated
+	public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+		return this.getBigDecimal(this.findColumn(columnLabel), scale);
+	}
+
+	public byte[] getBytes(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null || value instanceof byte[]) {
+			return (byte[]) value;
+		}
+		throw new SQLException("Unable to convert " + value.getClass().getName() + " to bytes");
+	}
+
+	public byte[] getBytes(String columnLabel) throws SQLException {
+		return this.getBytes(this.findColumn(columnLabel));
+	}
+
+	/**
+	 * Value of a date column of the current row as milliseconds since the epoch, or {@link Long#MIN_VALUE} if it is
+	 * null.
+	 */
+	private long millis(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null) {
+			return Long.MIN_VALUE;
+		} else if (value instanceof java.util.Date) {
+			return ((java.util.Date) value).getTime();
+		} else if (value instanceof LocalDateTime) {
+			return Timestamp.valueOf((LocalDateTime) value).getTime();
+		} else if (value instanceof LocalDate) {
+			return Date.valueOf((LocalDate) value).getTime();
+		}
+		try {
+			return Timestamp.valueOf(value.toString().trim()).getTime();
+		} catch (IllegalArgumentException e) {
+			throw new SQLException("Unable to convert " + value.getClass().getName() + " to a date", e);
+		}
+	}
+
+	public Date getDate(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value instanceof Date) {
+			return (Date) value;
+		}
+		long millis = this.millis(columnIndex);
+		return millis == Long.MIN_VALUE ? null : new Date(millis);
+	}
+
+	public Date getDate(String columnLabel) throws SQLException {
+		return this.getDate(this.findColumn(columnLabel));
+	}
+
+	public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+		return this.getDate(columnIndex);
+	}
+
+	public Date getDate(String columnLabel, Calendar cal) throws SQLException {
+		return this.getDate(this.findColumn(columnLabel));
+	}
+
+	public Time getTime(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value instanceof Time) {
+			return (Time) value;
+		}
+		long millis = this.millis(columnIndex);
+		return millis == Long.MIN_VALUE ? null : new Time(millis);
+	}
+
+	public Time getTime(String columnLabel) throws SQLException {
+		return this.getTime(this.findColumn(columnLabel));
+	}
+
+	public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+		return this.getTime(columnIndex);
+	}
+
+	public Time getTime(String columnLabel, Calendar cal) throws SQLException {
+		return this.getTime(this.findColumn(columnLabel));
+	}
+
+	public Timestamp getTimestamp(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value instanceof Timestamp) {
+			return (Timestamp) value;
+		} else if (value instanceof LocalDateTime) {
+			// Keeps the nanoseconds
+			return Timestamp.valueOf((LocalDateTime) value);
+		}
+		long millis = this.millis(columnIndex);
+		return millis == Long.MIN_VALUE ? null : new Timestamp(millis);
+	}
+
+	public Timestamp getTimestamp(String columnLabel) throws SQLException {
+		return this.getTimestamp(this.findColumn(columnLabel));
+	}
+
+	public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+		return this.getTimestamp(columnIndex);
+	}
+
+	public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+		return this.getTimestamp(this.findColumn(columnLabel));
+	}
+
+	public Object getObject(int columnIndex) throws SQLException {
+		return this.value(columnIndex);
+	}
+
+	public Object getObject(String columnLabel) throws SQLException {
+		return this.getObject(this.findColumn(columnLabel));
+	}
+
+	public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+		return this.getObject(columnIndex);
+	}
+
+	public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+		return this.getObject(this.findColumn(columnLabel));
+	}
+
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null || type.isInstance(value)) {
+			return type.cast(value);
+		} else if (type == String.class) {
+			return type.cast(value.toString());
+		} else if (type == Boolean.class) {
+			return type.cast(this.getBoolean(columnIndex));
+		} else if (type == Integer.class) {
+			return type.cast(this.getInt(columnIndex));
+		} else if (type == Long.class) {
+			return type.cast(this.getLong(columnIndex));
+		} else if (type == Double.class) {
+			return type.cast(this.getDouble(columnIndex));
+		} else if (type == Float.class) {
+			return type.cast(this.getFloat(columnIndex));
+		} else if (type == Short.class) {
+			return type.cast(this.getShort(columnIndex));
+		} else if (type == Byte.class) {
+			return type.cast(this.getByte(columnIndex));
+		} else if (type == BigDecimal.class) {
+			return type.cast(this.getBigDecimal(columnIndex));
+		} else if (type == Date.class) {
+			return type.cast(this.getDate(columnIndex));
+		} else if (type == Time.class) {
+			return type.cast(this.getTime(columnIndex));
+		} else if (type == Timestamp.class || type == java.util.Date.class) {
+			return type.cast(this.getTimestamp(columnIndex));
+		}
+		throw new SQLException("Unable to convert " + value.getClass().getName() + " to " + type.getName());
+	}
+
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+		return this.getObject(this.findColumn(columnLabel), type);
+	}
+
+	private static SQLFeatureNotSupportedException unsupported(String method) {
+		return new SQLFeatureNotSupportedException("RowResultSet does not support " + method);
+	}
+
+	// Not supported
+
+	public boolean absolute(int row) throws SQLException {
+		throw unsupported("absolute");
+	}
+
+	public void afterLast() throws SQLException {
+		throw unsupported("afterLast");
+	}
+
+	public void beforeFirst() throws SQLException {
+		throw unsupported("beforeFirst");
+	}
+
+	public void cancelRowUpdates() throws SQLException {
+		throw unsupported("cancelRowUpdates");
+	}
+
+	public void deleteRow() throws SQLException {
+		throw unsupported("deleteRow");
+	}
+
+	public boolean first() throws SQLException {
+		throw unsupported("first");
+	}
+
+	public Array getArray(String columnLabel) throws SQLException {
+		throw unsupported("getArray");
+	}
+
+	public Array getArray(int columnIndex) throws SQLException {
+		throw unsupported("getArray");
+	}
+
+	public InputStream getAsciiStream(String columnLabel) throws SQLException {
+		throw unsupported("getAsciiStream");
+	}
+
+	public InputStream getAsciiStream(int columnIndex) throws SQLException {
+		throw unsupported("getAsciiStream");
+	}
+
+	public InputStream getBinaryStream(String columnLabel) throws SQLException {
+		throw unsupported("getBinaryStream");
+	}
+
+	public InputStream getBinaryStream(int columnIndex) throws SQLException {
+		throw unsupported("getBinaryStream");
+	}
+
+	public Blob getBlob(String columnLabel) throws SQLException {
+		throw unsupported("getBlob");
+	}
+
+	public Blob getBlob(int columnIndex) throws SQLException {
+		throw unsupported("getBlob");
+	}
+
+	public Reader getCharacterStream(String columnLabel) throws SQLException {
+		throw unsupported("getCharacterStream");
+	}
+
+	public Reader getCharacterStream(int columnIndex) throws SQLException {
+		throw unsupported("getCharacterStream");
+	}
+
+	public Clob getClob(String columnLabel) throws SQLException {
+		throw unsupported("getClob");
+	}
+
+	public Clob getClob(int columnIndex) throws SQLException {
+		throw unsupported("getClob");
+	}
+
+	public String getCursorName() throws SQLException {
+		throw unsupported("getCursorName");
+	}
+
+	public int getHoldability() throws SQLException {
+		throw unsupported("getHoldability");
+	}
+
+	public Reader getNCharacterStream(String columnLabel) throws SQLException {
+		throw unsupported("getNCharacterStream");
+	}
+
+	public Reader getNCharacterStream(int columnIndex) throws SQLException {
+		throw unsupported("getNCharacterStream");
+	}
+
+	public NClob getNClob(String columnLabel) throws SQLException {
+		throw unsupported("getNClob");
+	}
+
+	public NClob getNClob(int columnIndex) throws SQLException {
+		throw unsupported("getNClob");
+	}
+
+	public Ref getRef(String columnLabel) throws SQLException {
+		throw unsupported("getRef");
+	}
+
+	public Ref getRef(int columnIndex) throws SQLException {
+		throw unsupported("getRef");
+	}
+
+	public RowId getRowId(String columnLabel) throws SQLException {
+		throw unsupported("getRowId");
+	}
+
+	public RowId getRowId(int columnIndex) throws SQLException {
+		throw unsupported("getRowId");
+	}
+
+	public SQLXML getSQLXML(String columnLabel) throws SQLException {
+		throw unsupported("getSQLXML");
+	}
+
+	public SQLXML getSQLXML(int columnIndex) throws SQLException {
+		throw unsupported("getSQLXML");
+	}
+
+	public URL getURL(String columnLabel) throws SQLException {
+		throw unsupported("getURL");
+	}
+
+	public URL getURL(int columnIndex) throws SQLException {
+		throw unsupported("getURL");
+	}
+
+	@Deprecated
+	public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+		throw unsupported("getUnicodeStream");
+	}
+
+	@Deprecated
+	public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+		throw unsupported("getUnicodeStream");
+	}
+
+	public void insertRow() throws SQLException {
+		throw unsupported("insertRow");
+	}
+
+	public boolean isAfterLast() throws SQLException {
+		throw unsupported("isAfterLast");
+	}
+
+	public boolean isBeforeFirst() throws SQLException {
+		throw unsupported("isBeforeFirst");
+	}
+
+	public boolean isFirst() throws SQLException {
+		throw unsupported("isFirst");
+	}
+
+	public boolean isLast() throws SQLException {
+		throw unsupported("isLast");
+	}
+
+	public boolean last() throws SQLException {
+		throw unsupported("last");
+	}
+
+	public void moveToCurrentRow() throws SQLException {
+		throw unsupported("moveToCurrentRow");
+	}
+
+	public void moveToInsertRow() throws SQLException {
+		throw unsupported("moveToInsertRow");
+	}
+
+	public boolean previous() throws SQLException {
+		throw unsupported("previous");
+	}
+
+	public void refreshRow() throws SQLException {
+		throw unsupported("refreshRow");
+	}
+
+	public boolean relative(int rows) throws SQLException {
+		throw unsupported("relative");
+	}
+
+	public boolean rowDeleted() throws SQLException {
+		throw unsupported("rowDeleted");
+	}
+
+	public boolean rowInserted() throws SQLException {
+		throw unsupported("rowInserted");
+	}
+
+	public boolean rowUpdated() throws SQLException {
+		throw unsupported("rowUpdated");
+	}
+
+	public void setFetchDirection(int direction) throws SQLException {
+		throw unsupported("setFetchDirection");
+	}
+
+	public void updateArray(String columnLabel, Array x) throws SQLException {
+		throw unsupported("updateArray");
+	}
+
+	public void updateArray(int columnIndex, Array x) throws SQLException {
+		throw unsupported("updateArray");
+	}
+
+	public void updateAsciiStream(String columnLabel, InputStream x, int length) throws SQLException {
+		throw unsupported("updateAsciiStream");
+	}
+
+	public void updateAsciiStream(String columnLabel, InputStream x, long length) throws SQLException {
+		throw unsupported("updateAsciiStream");
+	}
+
+	public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException {
+		throw unsupported("updateAsciiStream");
+	}
+
+	public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException {
+		throw unsupported("updateAsciiStream");
+	}
+
+	public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException {
+		throw unsupported("updateAsciiStream");
+	}
+
+	public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException {
+		throw unsupported("updateAsciiStream");
+	}
+
+	public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+		throw unsupported("updateBigDecimal");
+	}
+
+	public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+		throw unsupported("updateBigDecimal");
+	}
+
+	public void updateBinaryStream(String columnLabel, InputStream x, int length) throws SQLException {
+		throw unsupported("updateBinaryStream");
+	}
+
+	public void updateBinaryStream(String columnLabel, InputStream x, long length) throws SQLException {
+		throw unsupported("updateBinaryStream");
+	}
+
+	public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException {
+		throw unsupported("updateBinaryStream");
+	}
+
+	public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException {
+		throw unsupported("updateBinaryStream");
+	}
+
+	public void updateBinaryStream(int columnIndex, InputStream x, long length) throws SQLException {
+		throw unsupported("updateBinaryStream");
+	}
+
+	public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException {
+		throw unsupported("updateBinaryStream");
+	}
+
+	public void updateBlob(String columnLabel, InputStream x, long length) throws SQLException {
+		throw unsupported("updateBlob");
+	}
+
+	public void updateBlob(String columnLabel, InputStream x) throws SQLException {
+		throw unsupported("updateBlob");
+	}
+
+	public void updateBlob(String columnLabel, Blob x) throws SQLException {
+		throw unsupported("updateBlob");
+	}
+
+	public void updateBlob(int columnIndex, InputStream x, long length) throws SQLException {
+		throw unsupported("updateBlob");
+	}
+
+	public void updateBlob(int columnIndex, InputStream x) throws SQLException {
+		throw unsupported("updateBlob");
+	}
+
+	public void updateBlob(int columnIndex, Blob x) throws SQLException {
+		throw unsupported("updateBlob");
+	}
+
+	public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+		throw unsupported("updateBoolean");
+	}
+
+	public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+		throw unsupported("updateBoolean");
+	}
+
+	public void updateByte(String columnLabel, byte x) throws SQLException {
+		throw unsupported("updateByte");
+	}
+
+	public void updateByte(int columnIndex, byte x) throws SQLException {
+		throw unsupported("updateByte");
+	}
+
+	public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+		throw unsupported("updateBytes");
+	}
+
+	public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+		throw unsupported("updateBytes");
+	}
+
+	public void updateCharacterStream(String columnLabel, Reader x, int length) throws SQLException {
+		throw unsupported("updateCharacterStream");
+	}
+
+	public void updateCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+		throw unsupported("updateCharacterStream");
+	}
+
+	public void updateCharacterStream(String columnLabel, Reader x) throws SQLException {
+		throw unsupported("updateCharacterStream");
+	}
+
+	public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException {
+		throw unsupported("updateCharacterStream");
+	}
+
+	public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+		throw unsupported("updateCharacterStream");
+	}
+
+	public void updateCharacterStream(int columnIndex, Reader x) throws SQLException {
+		throw unsupported("updateCharacterStream");
+	}
+
+	public void updateClob(String columnLabel, Reader x, long length) throws SQLException {
+		throw unsupported("updateClob");
+	}
+
+	public void updateClob(String columnLabel, Reader x) throws SQLException {
+		throw unsupported("updateClob");
+	}
+
+	public void updateClob(String columnLabel, Clob x) throws SQLException {
+		throw unsupported("updateClob");
+	}
+
+	public void updateClob(int columnIndex, Reader x, long length) throws SQLException {
+		throw unsupported("updateClob");
+	}
+
+	public void updateClob(int columnIndex, Reader x) throws SQLException {
+		throw unsupported("updateClob");
+	}
+
+	public void updateClob(int columnIndex, Clob x) throws SQLException {
+		throw unsupported("updateClob");
+	}
+
+	public void updateDate(String columnLabel, Date x) throws SQLException {
+		throw unsupported("updateDate");
+	}
+
+	public void updateDate(int columnIndex, Date x) throws SQLException {
+		throw unsupported("updateDate");
+	}
+
+	public void updateDouble(String columnLabel, double x) throws SQLException {
+		throw unsupported("updateDouble");
+	}
+
+	public void updateDouble(int columnIndex, double x) throws SQLException {
+		throw unsupported("updateDouble");
+	}
+
+	public void updateFloat(String columnLabel, float x) throws SQLException {
+		throw unsupported("updateFloat");
+	}
+
+	public void updateFloat(int columnIndex, float x) throws SQLException {
+		throw unsupported("updateFloat");
+	}
+
+	public void updateInt(String columnLabel, int x) throws SQLException {
+		throw unsupported("updateInt");
+	}
+
+	public void updateInt(int columnIndex, int x) throws SQLException {
+		throw unsupported("updateInt");
+	}
+
+	public void updateLong(String columnLabel, long x) throws SQLException {
+		throw unsupported("updateLong");
+	}
+
+	public void updateLong(int columnIndex, long x) throws SQLException {
+		throw unsupported("updateLong");
+	}
+
+	public void updateNCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+		throw unsupported("updateNCharacterStream");
+	}
+
+	public void updateNCharacterStream(String columnLabel, Reader x) throws SQLException {
+		throw unsupported("updateNCharacterStream");
+	}
+
+	public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+		throw unsupported("updateNCharacterStream");
+	}
+
+	public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException {
+		throw unsupported("updateNCharacterStream");
+	}
+
+	public void updateNClob(String columnLabel, Reader x, long length) throws SQLException {
+		throw unsupported("updateNClob");
+	}
+
+	public void updateNClob(String columnLabel, Reader x) throws SQLException {
+		throw unsupported("updateNClob");
+	}
+
+	public void updateNClob(String columnLabel, NClob x) throws SQLException {
+		throw unsupported("updateNClob");
+	}
+
+	public void updateNClob(int columnIndex, Reader x, long length) throws SQLException {
+		throw unsupported("updateNClob");
+	}
+
+	public void updateNClob(int columnIndex, Reader x) throws SQLException {
+		throw unsupported("updateNClob");
+	}
+
+	public void updateNClob(int columnIndex, NClob x) throws SQLException {
+		throw unsupported("updateNClob");
+	}
+
+	public void updateNString(String columnLabel, String x) throws SQLException {
+		throw unsupported("updateNString");
+	}
+
+	public void updateNString(int columnIndex, String x) throws SQLException {
+		throw unsupported("updateNString");
+	}
+
+	public void updateNull(String columnLabel) throws SQLException {
+		throw unsupported("updateNull");
+	}
+
+	public void updateNull(int columnIndex) throws SQLException {
+		throw unsupported("updateNull");
+	}
+
+	public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException {
+		throw unsupported("updateObject");
+	}
+
+	public void updateObject(String columnLabel, Object x) throws SQLException {
+		throw unsupported("updateObject");
+	}
+
+	public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException {
+		throw unsupported("updateObject");
+	}
+
+	public void updateObject(int columnIndex, Object x) throws SQLException {
+		throw unsupported("updateObject");
+	}
+
+	public void updateRef(String columnLabel, Ref x) throws SQLException {
+		throw unsupported("updateRef");
+	}
+
+	public void updateRef(int columnIndex, Ref x) throws SQLException {
+		throw unsupported("updateRef");
+	}
+
+	public void updateRow() throws SQLException {
+		throw unsupported("updateRow");
+	}
+
+	public void updateRowId(String columnLabel, RowId x) throws SQLException {
+		throw unsupported("updateRowId");
+	}
+
+	public void updateRowId(int columnIndex, RowId x) throws SQLException {
+		throw unsupported("updateRowId");
+	}
+
+	public void updateSQLXML(String columnLabel, SQLXML x) throws SQLException {
+		throw unsupported("updateSQLXML");
+	}
+
+	public void updateSQLXML(int columnIndex, SQLXML x) throws SQLException {
+		throw unsupported("updateSQLXML");
+	}
+
+	public void updateShort(String columnLabel, short x) throws SQLException {
+		throw unsupported("updateShort");
+	}
+
+	public void updateShort(int columnIndex, short x) throws SQLException {
+		throw unsupported("updateShort");
+	}
+
+	public void updateString(String columnLabel, String x) throws SQLException {
+		throw unsupported("updateString");
+	}
+
+	public void updateString(int columnIndex, String x) throws SQLException {
+		throw unsupported("updateString");
+	}
+
+	public void updateTime(String columnLabel, Time x) throws SQLException {
+		throw unsupported("updateTime");
+	}
+
+	public void updateTime(int columnIndex, Time x) throws SQLException {
+		throw unsupported("updateTime");
+	}
+
+	public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+		throw unsupported("updateTimestamp");
+	}
+
+	public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException {
+		throw unsupported("updateTimestamp");
+	}
+}
@@ -0,0 +1,188 @@
+package com.nathanahrens.resultset;
+
+import java.io.Serializable;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Copy of the {@link ResultSetMetaData} of a query that stays usable after the originating
+ * {@link java.sql.ResultSet} and statement have been closed. Used to describe the rows of a {@link RowResultSet}.
+ * @author nahrens
+ *
+ */
+public class RowResultSetMetaData implements ResultSetMetaData, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String[] names;
+	private final String[] labels;
+	private final int[] types;
+	private final String[] typeNames;
+	private final String[] classNames;
+	private final int[] precisions;
+	private final int[] scales;
+	private final int[] displaySizes;
+	private final int[] nullables;
+
+	/**
+	 *
+	 * @param names     Names of the columns.
+	 * @param labels    Labels of the columns.
+	 * @param types     {@link java.sql.Types} of the columns.
+	 * @param typeNames Database type names of the columns.
+	 */
+	public RowResultSetMetaData(String[] names, String[] labels, int[] types, String[] typeNames) {
+		this(names, labels, types, typeNames, new String[names.length], new int[names.length], new int[names.length],
+				new int[names.length], new int[names.length]);
+		for (int i = 0; i < names.length; i++) {
+			this.classNames[i] = Object.class.getName();
+			this.nullables[i] = columnNullableUnknown;
+		}
+	}
+
+	private RowResultSetMetaData(String[] names, String[] labels, int[] types, String[] typeNames,
+			String[] classNames, int[] precisions, int[] scales, int[] displaySizes, int[] nullables) {
+		this.names = names;
+		this.labels = labels;
+		this.types = types;
+		this.typeNames = typeNames;
+		this.classNames = classNames;
+		this.precisions = precisions;
+		this.scales = scales;
+		this.displaySizes = displaySizes;
+		this.nullables = nullables;
+	}
+
+	/**
+	 *
+	 * @param rsmd Metadata to copy.
+	 * @return RowResultSetMetaData Copy of the metadata.
+	 * @throws SQLException
+	 */
+	public static RowResultSetMetaData copyOf(ResultSetMetaData rsmd) throws SQLException {
+		int colCount = rsmd.getColumnCount();
+		String[] names = new String[colCount];
+		String[] labels = new String[colCount];
+		int[] types = new int[colCount];
+		String[] typeNames = new String[colCount];
+		String[] classNames = new String[colCount];
+		int[] precisions = new int[colCount];
+		int[] scales = new int[colCount];
+		int[] displaySizes = new int[colCount];
+		int[] nullables = new int[colCount];
+		for (int i = 0; i < colCount; i++) {
+			names[i] = rsmd.getColumnName(i + 1);
+			labels[i] = rsmd.getColumnLabel(i + 1);
+			types[i] = rsmd.getColumnType(i + 1);
+			typeNames[i] = rsmd.getColumnTypeName(i + 1);
+			classNames[i] = rsmd.getColumnClassName(i + 1);
+			precisions[i] = rsmd.getPrecision(i + 1);
+			scales[i] = rsmd.getScale(i + 1);
+			displaySizes[i] = rsmd.getColumnDisplaySize(i + 1);
+			nullables[i] = rsmd.isNullable(i + 1);
+		}
+		return new RowResultSetMetaData(names, labels, types, typeNames, classNames, precisions, scales,
+				displaySizes, nullables);
+	}
+
+	private int index(int column) throws SQLException {
+		if (column < 1 || column > this.names.length) {
+			throw new SQLException("Invalid column index: " + column);
+		}
+		return column - 1;
+	}
+
+	public int getColumnCount() {
+		return this.names.length;
+	}
+
+	public boolean isAutoIncrement(int column) {
+		return false;
+	}
+
+	public boolean isCaseSensitive(int column) {
+		return true;
+	}
+
+	public boolean isSearchable(int column) {
+		return false;
+	}
+
+	public boolean isCurrency(int column) {
+		return false;
+	}
+
+	public int isNullable(int column) throws SQLException {
+		return this.nullables[this.index(column)];
+	}
+
+	public boolean isSigned(int column) {
+		return true;
+	}
+
+	public int getColumnDisplaySize(int column) throws SQLException {
+		return this.displaySizes[this.index(column)];
+	}
+
+	public String getColumnLabel(int column) throws SQLException {
+		return this.labels[this.index(column)];
+	}
+
+	public String getColumnName(int column) throws SQLException {
+		return this.names[this.index(column)];
+	}
+
+	public String getSchemaName(int column) {
+		return "";
+	}
+
+	public int getPrecision(int column) throws SQLException {
+		return this.precisions[this.index(column)];
+	}
+
+	public int getScale(int column) throws SQLException {
+		return this.scales[this.index(column)];
+	}
+
+	public String getTableName(int column) {
+		return "";
+	}
+
+	public String getCatalogName(int column) {
+		return "";
+	}
+
+	public int getColumnType(int column) throws SQLException {
+		return this.types[this.index(column)];
+	}
+
+	public String getColumnTypeName(int column) throws SQLException {
+		return this.typeNames[this.index(column)];
+	}
+
+	public boolean isReadOnly(int column) {
+		return true;
+	}
+
+	public boolean isWritable(int column) {
+		return false;
+	}
+
+	public boolean isDefinitelyWritable(int column) {
+		return false;
+	}
+
+	public String getColumnClassName(int column) throws SQLException {
+		return this.classNames[this.index(column)];
+	}
+
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+}
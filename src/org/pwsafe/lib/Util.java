@@ -465,12 +465,9 @@ public final class Util {
 	 * @return the stretched user key for comparison
 	 */
 	public static byte[] stretchPassphrase(byte[] passphrase, byte[] salt, int iter) {
-		final SHA256Pws hasher = new SHA256Pws();
 		final byte[] p = mergeBytes(passphrase, salt);
-		byte[] hash = hasher.digest(p);
-		for (int i = 0; i < iter; i++) {
-			hash = hasher.digest(hash);
-		}
+		final byte[] hash = SHA256Pws.stretch(p, iter);
+		Arrays.fill(p, (byte) 0);
 		return hash;
 
 	}
@@ -32,6 +32,10 @@ public class HmacPws {
 		mac.update(incoming, 0, incoming.length);
 	}
 
+	public void digest(byte[] incoming, int offset, int length) {
+		mac.update(incoming, offset, length);
+	}
+
 	public byte[] doFinal() {
 		final byte[] output = new byte[mac.getUnderlyingDigest().getDigestSize()];
 		mac.doFinal(output, 0);
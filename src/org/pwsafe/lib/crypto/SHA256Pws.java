@@ -7,14 +7,74 @@
  */
 package org.pwsafe.lib.crypto;
 
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.pwsafe.lib.Log;
 
 /**
  * SHA256 implementation. Currently uses BouncyCastle provider underneath.
- * 
+ * <p>
+ * Key stretching ({@link #stretch(byte[], int)}) uses the JCA provider, which the
+ * JVM may back with CPU instructions, falling back to BouncyCastle when there is
+ * no provider or the system property <code>org.pwsafe.lib.crypto.sha256</code>
+ * is <code>bc</code>.
+ * </p>
+ *
  * @author Glen Smith
  */
 public class SHA256Pws {
+	private static final Log LOG = Log.getInstance(SHA256Pws.class);
+
+	private static final int DIGEST_LENGTH = 32;
+
+	/**
+	 * A SHA-256 implementation, rehashing its own output in place.
+	 */
+	private static interface Engine {
+		void update(byte[] in, int offset, int length);
+
+		void doFinal(byte[] out);
+	}
+
+	private static class BouncyCastleEngine implements Engine {
+		private final SHA256Digest digest = new SHA256Digest();
+
+		public void update(final byte[] in, final int offset, final int length) {
+			digest.update(in, offset, length);
+		}
+
+		public void doFinal(final byte[] out) {
+			digest.doFinal(out, 0);
+		}
+	}
+
+	private static class JcaEngine implements Engine {
+		private final MessageDigest digest;
+
+		JcaEngine() throws NoSuchAlgorithmException {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+
+		public void update(final byte[] in, final int offset, final int length) {
+			digest.update(in, offset, length);
+		}
+
+		public void doFinal(final byte[] out) {
+			try {
+				digest.digest(out, 0, DIGEST_LENGTH);
+			} catch (final DigestException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Whether to stretch with the JCA provider, decided on first use.
+	 */
+	private static Boolean useJca;
 
 	private final SHA256Digest digest = new SHA256Digest();
 
@@ -29,4 +89,54 @@ public class SHA256Pws {
 
 	}
 
+	/**
+	 * Hashes <code>incoming</code>, then hashes the hash <code>iter</code>
+	 * times. The rounds reuse one digest and buffer.
+	 *
+	 * @param incoming the data to hash.
+	 * @param iter the number of times to rehash.
+	 * @return the final hash.
+	 */
+	public static byte[] stretch(final byte[] incoming, final int iter) {
+		final Engine engine = newEngine();
+		final byte[] hash = new byte[DIGEST_LENGTH];
+		engine.update(incoming, 0, incoming.length);
+		engine.doFinal(hash);
+		rehash(engine, hash, iter);
+		return hash;
+	}
+
+	private static void rehash(final Engine engine, final byte[] hash, final int iter) {
+		for (int i = 0; i < iter; i++) {
+			engine.update(hash, 0, DIGEST_LENGTH);
+			engine.doFinal(hash);
+		}
+	}
+
+	private static synchronized Engine newEngine() {
+		if (useJca == null) {
+			useJca = Boolean.valueOf(chooseJca());
+		}
+		if (useJca.booleanValue()) {
+			try {
+				return new JcaEngine();
+			} catch (final NoSuchAlgorithmException e) {
+				// Checked when choosing
+			}
+		}
+		return new BouncyCastleEngine();
+	}
+
+	private static boolean chooseJca() {
+		if ("bc".equals(System.getProperty("org.pwsafe.lib.crypto.sha256"))) {
+			return false;
+		}
+		try {
+			MessageDigest.getInstance("SHA-256");
+			return true;
+		} catch (final NoSuchAlgorithmException e) {
+			LOG.info("No SHA-256 provider, using BouncyCastle");
+			return false;
+		}
+	}
 }
@@ -44,6 +44,24 @@ public class TwofishPws {
 
 	}
 
+	/**
+	 * Processes a run of whole blocks, which may be done in place (with
+	 * <code>out</code> and <code>outOff</code> the same as <code>input</code>
+	 * and <code>inOff</code>).
+	 * 
+	 * @param input the input data.
+	 * @param inOff the position of the first block in <code>input</code>.
+	 * @param out the array to write the result to.
+	 * @param outOff the position in <code>out</code> to write to.
+	 * @param length the number of bytes, a multiple of the block size.
+	 */
+	public void processCBC(byte[] input, int inOff, byte[] out, int outOff, int length) {
+		final int blockSize = cipher.getBlockSize();
+		for (int i = 0; i < length; i += blockSize) {
+			cipher.processBlock(input, inOff + i, out, outOff + i);
+		}
+	}
+
 	public static byte[] processECB(byte[] key, boolean forEncryption, byte[] input) {
 
 		final BufferedBlockCipher cipher = new BufferedBlockCipher(new TwofishEngine());
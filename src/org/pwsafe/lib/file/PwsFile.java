@@ -19,8 +19,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -89,6 +92,13 @@ public abstract class PwsFile {
 	 */
 	public static final int BLOCK_LENGTH = 8;
 
+	/**
+	 * Field types of the group and title of a record, which are the same in
+	 * all versions (V1 records have no group).
+	 */
+	private static final int GROUP_FIELD = 2;
+	private static final int TITLE_FIELD = 3;
+
 	/** The storage implementation associated with this file */
 	protected PwsStorage storage;
 
@@ -110,9 +120,36 @@ public abstract class PwsFile {
 	protected OutputStream outStream;
 
 	/**
-	 * The records that are part of the file.
+	 * The records that are part of the file, encoded by {@link RecordCodec}
+	 * and encrypted with the memory key.
+	 */
+	protected List<byte[]> sealedRecords = new ArrayList<byte[]>();
+
+	/**
+	 * Where in the storage each record starts, for files loaded lazily (see
+	 * {@link PwsFileV3#readRecordAt(long)}), <code>null</code> otherwise. The sealed
+	 * record of a record not read yet is <code>null</code>.
+	 */
+	private List<Long> recordOffsets;
+
+	/**
+	 * Hash of the group and title of each record, in the same order as
+	 * <code>sealedRecords</code>, so records can be found without decrypting
+	 * them.
+	 */
+	private final List<Integer> recordKeys = new ArrayList<Integer>();
+
+	/**
+	 * Record indexes by the hash of their group and title. Rebuilt from
+	 * <code>recordKeys</code> when records are removed (which shifts the
+	 * indexes), <code>null</code> until then.
+	 */
+	private Map<Integer, List<Integer>> recordIndex;
+
+	/**
+	 * Number of bytes read from <code>inStream</code>.
 	 */
-	protected List<SealedObject> sealedRecords = new ArrayList<SealedObject>();
+	private long readPosition;
 
 	/**
 	 * Flag indicating whether (<code>true</code>) or not (<code>false</code>)
@@ -135,6 +172,17 @@ public abstract class PwsFile {
 	private InMemoryKey memoryKey;
 	private byte[] memoryIv;
 
+	/**
+	 * Ciphers of the current thread, created on first use.
+	 */
+	private final ThreadLocal<CachedCiphers> ciphers = new ThreadLocal<CachedCiphers>();
+
+	/**
+	 * Incremented whenever the memory key or IV is discarded, so that cached
+	 * ciphers are no longer used.
+	 */
+	private volatile int cipherGeneration;
+
 	private final List<PwsLoadListener> loadListeners = new ArrayList<PwsLoadListener>();
 
 	/**
@@ -191,12 +239,9 @@ public abstract class PwsFile {
 
 		// TODO validate the record before adding it
 		try {
-			final SealedObject sealedRecord = new SealedObject(rec, aCipher);
-			sealedRecords.add(sealedRecord);
+			addSealed(rec, seal(rec, aCipher));
 		} catch (final IllegalBlockSizeException e) {
 			throw new MemoryKeyException(e);
-		} catch (final IOException e) {
-			throw new MemoryKeyException(e);
 		}
 	}
 
@@ -281,9 +326,40 @@ public abstract class PwsFile {
 			Arrays.fill(memoryIv, (byte) 0);
 			memoryIv = null;
 		}
+		cipherGeneration++;
+		ciphers.remove();
 	}
 
+	/**
+	 * Returns the cipher sealing (<code>forWriting</code>) or unsealing the
+	 * records in memory. Creating and initialising a cipher is far more
+	 * expensive than sealing a record, so each thread reuses its ciphers until
+	 * the memory key changes. The returned cipher must only be used by the
+	 * calling thread.
+	 * 
+	 * @param forWriting <code>true</code> for an encrypting cipher,
+	 *        <code>false</code> for a decrypting one.
+	 * @return the cipher.
+	 */
 	protected Cipher getCipher(final boolean forWriting) {
+		CachedCiphers cached = ciphers.get();
+		if (cached == null || cached.generation != cipherGeneration) {
+			cached = new CachedCiphers(cipherGeneration);
+			ciphers.set(cached);
+		}
+		if (forWriting) {
+			if (cached.encrypt == null) {
+				cached.encrypt = newCipher(true);
+			}
+			return cached.encrypt;
+		}
+		if (cached.decrypt == null) {
+			cached.decrypt = newCipher(false);
+		}
+		return cached.decrypt;
+	}
+
+	private Cipher newCipher(final boolean forWriting) {
 		if (memoryIv == null) {
 			memoryIv = new byte[8];
 			Util.newRandBytes(memoryIv);
@@ -398,20 +474,230 @@ public abstract class PwsFile {
 	 * @return the PwsRecord at that index
 	 */
 	public PwsRecord getRecord(final int index) {
-		getCipher(true);
-		SealedObject sealedRecord;
 		try {
-			sealedRecord = sealedRecords.get(index);
-			return (PwsRecord) sealedRecord.getObject(getCipher(false));
+			return unseal(getSealedRecord(index), getCipher(false));
 		} catch (final IllegalBlockSizeException e) {
 			throw new MemoryKeyException(e);
 		} catch (final IOException e) {
 			throw new MemoryKeyException(e);
 		} catch (final BadPaddingException e) {
 			throw new MemoryKeyException(e);
-		} catch (final ClassNotFoundException e) {
+		}
+	}
+
+	/**
+	 * Finds the first record with the given group and title. Only records whose
+	 * group and title hash to the same value are decrypted.
+	 * 
+	 * @param group the group of the record, or <code>null</code> for a record
+	 *        without a group.
+	 * @param title the title of the record.
+	 * 
+	 * @return the index of the record, or -1 if there is no such record.
+	 */
+	public int indexOf(final String group, final String title) {
+		final List<Integer> candidates = getRecordIndex().get(recordKey(group, title));
+		if (candidates != null) {
+			for (final int index : candidates) {
+				final PwsRecord rec = getRecord(index);
+				if (Objects.equals(group, fieldValue(rec, GROUP_FIELD))
+						&& Objects.equals(title, fieldValue(rec, TITLE_FIELD))) {
+					return index;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the first record with the given group and title.
+	 * 
+	 * @param group the group of the record, or <code>null</code> for a record
+	 *        without a group.
+	 * @param title the title of the record.
+	 * 
+	 * @return the record, or <code>null</code> if there is no such record.
+	 * @see #indexOf(String, String)
+	 */
+	public PwsRecord getRecord(final String group, final String title) {
+		final int index = indexOf(group, title);
+		return index < 0 ? null : getRecord(index);
+	}
+
+	/**
+	 * Encodes and encrypts a record.
+	 */
+	private static byte[] seal(final PwsRecord rec, final Cipher cipher) throws IllegalBlockSizeException {
+		final byte[] encoded = RecordCodec.encode(rec);
+		try {
+			return cipher.doFinal(encoded);
+		} catch (final BadPaddingException e) {
+			// Only thrown when decrypting
+			throw new MemoryKeyException(e);
+		} finally {
+			Arrays.fill(encoded, (byte) 0);
+		}
+	}
+
+	/**
+	 * Decrypts and decodes a record.
+	 */
+	private static PwsRecord unseal(final byte[] sealedRecord, final Cipher cipher)
+			throws IllegalBlockSizeException, BadPaddingException, IOException {
+		final byte[] encoded = cipher.doFinal(sealedRecord);
+		try {
+			return RecordCodec.decode(encoded);
+		} finally {
+			Arrays.fill(encoded, (byte) 0);
+		}
+	}
+
+	/**
+	 * Seals a record with the cipher of the calling thread, so records can be
+	 * sealed in parallel and added by {@link #addSealed(PwsRecord, byte[])}.
+	 * 
+	 * @param rec the record to seal.
+	 * @return the sealed record.
+	 */
+	protected byte[] sealRecord(final PwsRecord rec) {
+		try {
+			return seal(rec, getCipher(true));
+		} catch (final IllegalBlockSizeException e) {
+			throw new MemoryKeyException(e);
+		}
+	}
+
+	/**
+	 * Adds a record sealed by {@link #sealRecord(PwsRecord)}.
+	 * 
+	 * @param rec the record.
+	 * @param sealedRecord the sealed record.
+	 */
+	protected void addSealed(final PwsRecord rec, final byte[] sealedRecord) {
+		sealedRecords.add(sealedRecord);
+		if (recordOffsets != null) {
+			recordOffsets.add(Long.valueOf(-1));
+		}
+		addRecordKey(recordKey(rec));
+	}
+
+	/**
+	 * Notifies the load listeners of a record read from the file.
+	 * 
+	 * @param rec the record read.
+	 */
+	protected void notifyLoaded(final PwsRecord rec) {
+		for (final PwsLoadListener loadListener : loadListeners) {
+			loadListener.loaded(rec);
+		}
+	}
+
+	/**
+	 * Adds a record that has not been read yet, for loading a file lazily.
+	 * Only version 3 files are loaded lazily, and the record is read by
+	 * {@link PwsFileV3#readRecordAt(long)} when first accessed.
+	 * 
+	 * @param key the hash of the group and title of the record, see
+	 *        {@link #recordKey(String, String)}.
+	 * @param offset where the record starts in the storage.
+	 */
+	void addLazily(final Integer key, final long offset) {
+		if (recordOffsets == null) {
+			recordOffsets = new ArrayList<Long>();
+			for (int i = 0; i < sealedRecords.size(); i++) {
+				recordOffsets.add(Long.valueOf(-1));
+			}
+		}
+		sealedRecords.add(null);
+		recordOffsets.add(Long.valueOf(offset));
+		addRecordKey(key);
+	}
+
+	/**
+	 * Returns the sealed record at an index, reading and sealing it first if
+	 * the file was loaded lazily and it has not been read yet.
+	 */
+	private byte[] getSealedRecord(final int index) throws IllegalBlockSizeException, IOException {
+		if (recordOffsets == null) {
+			return sealedRecords.get(index);
+		}
+		// Records are read by any thread sharing the file
+		synchronized (this) {
+			byte[] sealedRecord = sealedRecords.get(index);
+			if (sealedRecord == null) {
+				// Only set by addLazily, for version 3 files
+				final PwsRecord rec = ((PwsFileV3) this).readRecordAt(recordOffsets.get(index).longValue());
+				sealedRecord = seal(rec, getCipher(true));
+				sealedRecords.set(index, sealedRecord);
+			}
+			return sealedRecord;
+		}
+	}
+
+	/**
+	 * Reads all records of a file loaded lazily that have not been read yet.
+	 * 
+	 * @throws IOException if a record can not be read.
+	 */
+	protected synchronized void readLazyRecords() throws IOException {
+		if (recordOffsets == null) {
+			return;
+		}
+		try {
+			for (int i = 0; i < sealedRecords.size(); i++) {
+				getSealedRecord(i);
+			}
+		} catch (final IllegalBlockSizeException e) {
 			throw new MemoryKeyException(e);
 		}
+		recordOffsets = null;
+	}
+
+	private void addRecordKey(final Integer key) {
+		recordKeys.add(key);
+		if (recordIndex != null) {
+			indexRecord(key, recordKeys.size() - 1);
+		}
+	}
+
+	private void removeRecordKey(final int index) {
+		recordKeys.remove(index);
+		if (recordOffsets != null) {
+			recordOffsets.remove(index);
+		}
+		recordIndex = null;
+	}
+
+	private synchronized Map<Integer, List<Integer>> getRecordIndex() {
+		if (recordIndex == null) {
+			recordIndex = new HashMap<Integer, List<Integer>>();
+			for (int i = 0; i < recordKeys.size(); i++) {
+				indexRecord(recordKeys.get(i), i);
+			}
+		}
+		return recordIndex;
+	}
+
+	private void indexRecord(final Integer key, final int index) {
+		List<Integer> indexes = recordIndex.get(key);
+		if (indexes == null) {
+			indexes = new ArrayList<Integer>(1);
+			recordIndex.put(key, indexes);
+		}
+		indexes.add(index);
+	}
+
+	private static String fieldValue(final PwsRecord rec, final int type) {
+		final PwsField field = rec.getField(type);
+		return field == null ? null : field.toString();
+	}
+
+	private static Integer recordKey(final PwsRecord rec) {
+		return recordKey(fieldValue(rec, GROUP_FIELD), fieldValue(rec, TITLE_FIELD));
+	}
+
+	static Integer recordKey(final String group, final String title) {
+		return Objects.hash(group, title);
 	}
 
 	/**
@@ -442,15 +728,15 @@ public abstract class PwsFile {
 	public void set(final int index, final PwsRecord aRecord) {
 		// TODO validate here as well
 		final Cipher cipher = getCipher(true);
-		SealedObject sealedRecord;
 		try {
-			sealedRecord = new SealedObject(aRecord, cipher);
-			sealedRecords.set(index, sealedRecord);
+			sealedRecords.set(index, seal(aRecord, cipher));
+			final Integer key = recordKey(aRecord);
+			if (!key.equals(recordKeys.set(index, key))) {
+				recordIndex = null;
+			}
 			setModified();
 		} catch (final IllegalBlockSizeException e) {
 			throw new MemoryKeyException(e);
-		} catch (final IOException e) {
-			throw new MemoryKeyException(e);
 		}
 
 	}
@@ -484,9 +770,7 @@ public abstract class PwsFile {
 				if (rec.isValid()) {
 					this.add(rec, c);
 				}
-				for (final PwsLoadListener loadListener : loadListeners) {
-					loadListener.loaded(rec);
-				}
+				notifyLoaded(rec);
 			}
 		} catch (final EndOfFileException e) {
 			// OK
@@ -521,21 +805,55 @@ public abstract class PwsFile {
 	 * @throws IOException If an error occurs whilst reading the file.
 	 */
 	public void readBytes(final byte[] bytes) throws IOException, EndOfFileException {
-		int count;
+		readBytes(bytes, 0, bytes.length);
+	}
 
-		count = inStream.read(bytes);
+	/**
+	 * Reads raw (unencrypted) bytes from the file into part of an array,
+	 * reading until all <code>length</code> bytes have been read.
+	 * 
+	 * @param bytes the array to be filled from the file.
+	 * @param offset the position in <code>bytes</code> to read to.
+	 * @param length the number of bytes to read.
+	 * 
+	 * @throws EndOfFileException If end of file occurs before any data is read.
+	 * @throws IOException If end of file occurs whilst reading the data, or an
+	 *         error occurs whilst reading the file.
+	 */
+	protected void readBytes(final byte[] bytes, final int offset, final int length) throws IOException,
+			EndOfFileException {
+		int count = 0;
+
+		while (count < length) {
+			final int read = inStream.read(bytes, offset + count, length - count);
+			if (read == -1) {
+				break;
+			}
+			count += read;
+		}
+		readPosition += count;
 
-		if (count == -1) {
+		if (count == 0 && length > 0) {
 			LOG.debug1("END OF FILE");
 			throw new EndOfFileException();
-		} else if (count < bytes.length) {
+		} else if (count < length) {
 			LOG.info(I18nHelper.getInstance().formatMessage("I00003",
-					new Object[] { new Integer(bytes.length), new Integer(count) }));
+					new Object[] { new Integer(length), new Integer(count) }));
 			throw new IOException(I18nHelper.getInstance().formatMessage("E00006"));
 		}
 		LOG.debug1("Read " + count + " bytes");
 	}
 
+	/**
+	 * Returns the number of bytes read from the storage so far, which is the
+	 * offset of the next byte to be read.
+	 * 
+	 * @return the read position.
+	 */
+	long getReadPosition() {
+		return readPosition;
+	}
+
 	/**
 	 * Reads bytes from the file and decryps them. <code>buff</code> may be any
 	 * length provided that is a multiple of <code>getBlockSize()</code> bytes
@@ -593,11 +911,11 @@ public abstract class PwsFile {
 	 * @return true if a record was removed
 	 */
 	public boolean removeRecord(final int index) {
-		final boolean success = sealedRecords.remove(index) != null;
-		if (success) {
-			setModified();
-		}
-		return success;
+		// Records not read yet are null
+		sealedRecords.remove(index);
+		removeRecordKey(index);
+		setModified();
+		return true;
 	}
 
 	/**
@@ -710,6 +1028,19 @@ public abstract class PwsFile {
 		this.readOnly = readOnly;
 	}
 
+	/**
+	 * The ciphers of a thread, for the memory key and IV of one generation.
+	 */
+	private static final class CachedCiphers {
+		private final int generation;
+		private Cipher encrypt;
+		private Cipher decrypt;
+
+		private CachedCiphers(final int generation) {
+			this.generation = generation;
+		}
+	}
+
 	/**
 	 * This provides a wrapper around the <code>Iterator</code> that is returned
 	 * by the <code>iterator()</code> method on the Collections class used to
@@ -721,8 +1052,8 @@ public abstract class PwsFile {
 		private final Log LOG = Log.getInstance(FileIterator.class.getPackage().getName());
 
 		private final PwsFile file;
-		private final Iterator<SealedObject> delegate;
-		private Cipher cipher;
+		private final Iterator<byte[]> delegate;
+		private int index = -1;
 
 		/**
 		 * Construct the <code>Iterator</code> linking it to the given
@@ -731,12 +1062,11 @@ public abstract class PwsFile {
 		 * @param file the file this iterator is linked to.
 		 * @param iter the <code>Iterator</code> over the records.
 		 */
-		public FileIterator(final PwsFile file, final Iterator<SealedObject> iter) {
+		public FileIterator(final PwsFile file, final Iterator<byte[]> iter) {
 			LOG.enterMethod("PwsFile$FileIterator");
 
 			this.file = file;
 			delegate = iter;
-			cipher = getCipher(false);
 
 			LOG.leaveMethod("PwsFile$FileIterator");
 		}
@@ -763,22 +1093,17 @@ public abstract class PwsFile {
 		 * @see java.util.Iterator#next()
 		 */
 		public final Object next() {
-			SealedObject sealedRecord;
 			try {
-				sealedRecord = delegate.next();
-				final PwsRecord theRecord = (PwsRecord) sealedRecord.getObject(cipher);
-				if (!hasNext()) {// clean up
-					cipher = null;
-				}
-				return theRecord;
+				delegate.next();
+				index++;
+				// The cipher of the calling thread, as the iterator may be handed between threads
+				return unseal(getSealedRecord(index), getCipher(false));
 			} catch (final IllegalBlockSizeException e) {
 				throw new MemoryKeyException(e);
 			} catch (final IOException e) {
 				throw new MemoryKeyException(e);
 			} catch (final BadPaddingException e) {
 				throw new MemoryKeyException(e);
-			} catch (final ClassNotFoundException e) {
-				throw new MemoryKeyException(e);
 			}
 		}
 
@@ -797,6 +1122,7 @@ public abstract class PwsFile {
 			}
 
 			delegate.remove();
+			removeRecordKey(index--);
 			file.setModified();
 
 			LOG.leaveMethod("PwsFile$FileIterator.remove");
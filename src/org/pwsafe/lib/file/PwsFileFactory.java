@@ -234,7 +234,7 @@ public class PwsFileFactory {
 		fis.close();
 		if (Util.bytesAreEqual("PWS3".getBytes(), first4Bytes)) {
 			LOG.debug1("This is a V3 format file.");
-			file = new PwsFileV3(new PwsFileStorage(filename), passphrase);
+			file = new PwsFileV3(new PwsMappedFileStorage(filename), passphrase);
 			readRecords(file);
 			return file;
 		}
@@ -271,6 +271,55 @@ public class PwsFileFactory {
 		return file;
 	}
 
+	/**
+	 * Loads a Password Safe file lazily. Version 3 files are read through once
+	 * to check their HMAC and to index their records by group and title, but
+	 * records are only decoded when first accessed, so a single record can be
+	 * looked up with {@link PwsFile#getRecord(String, String)} without
+	 * decoding the others. Version 1 and 2 files are loaded as by
+	 * {@link #loadFile(String, StringBuilder)}.
+	 * <p>
+	 * No entry store is filled. The file is memory mapped rather than read
+	 * into the heap, and the mapping is kept until all its records have been
+	 * read, it is saved or it is disposed. Records read later are checked to
+	 * be unchanged since the HMAC was checked, see
+	 * {@link PwsFileV3#readAllLazily()}.
+	 * </p>
+	 * 
+	 * @param filename the name of the file to open
+	 * @param aPassphrase the passphrase for the file
+	 * 
+	 * @return The correct subclass of {@link PwsFile} for the file.
+	 * 
+	 * @throws EndOfFileException
+	 * @throws FileNotFoundException
+	 * @throws InvalidPassphraseException
+	 * @throws IOException
+	 * @throws UnsupportedFileVersionException
+	 * @throws NoSuchAlgorithmException If no SHA-1 implementation is found.
+	 */
+	public static final PwsFile loadFileLazily(final String filename, final StringBuilder aPassphrase)
+			throws EndOfFileException, FileNotFoundException, InvalidPassphraseException,
+			IOException, UnsupportedFileVersionException, NoSuchAlgorithmException {
+		LOG.enterMethod("PwsFileFactory.loadFileLazily");
+
+		final FileInputStream fis = new FileInputStream(filename);
+		final byte[] first4Bytes = new byte[4];
+		fis.read(first4Bytes);
+		fis.close();
+		if (!Util.bytesAreEqual("PWS3".getBytes(), first4Bytes)) {
+			return loadFile(filename, aPassphrase);
+		}
+
+		final PwsFileV3 file = new PwsFileV3(new PwsMappedFileStorage(filename), aPassphrase.toString());
+		file.readAllLazily();
+		file.close();
+
+		LOG.debug1("File contains " + file.getRecordCount() + " records.");
+		LOG.leaveMethod("PwsFileFactory.loadFileLazily");
+		return file;
+	}
+
 	/**
 	 * Creates a new, empty PasswordSafe database in memory. The database will
 	 * always be the latest version supported by this library which for this
@@ -325,7 +374,7 @@ public class PwsFileFactory {
 		fis.close();
 		if (Util.bytesAreEqual("PWS3".getBytes(), first4Bytes)) {
 			LOG.debug1("This is a V3 format file.");
-			file = new PwsFileV3(new PwsFileStorage(filename), passphrase);
+			file = new PwsFileV3(new PwsMappedFileStorage(filename), passphrase);
 			entryStore = readRecords(file);
 			return entryStore;
 		}
@@ -11,13 +11,27 @@ package org.pwsafe.lib.file;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
@@ -77,6 +91,101 @@ public final class PwsFileV3 extends PwsFile {
 	HmacPws hasher;
 	PwsRecordV3 headerRecord;
 
+	/**
+	 * The bytes of the storage, mapped if the storage supports it, kept whilst
+	 * some records of a file loaded lazily have not been read yet.
+	 */
+	private ByteBuffer lazySource;
+
+	/**
+	 * The records of a file loaded lazily that have not been read yet, by
+	 * their offset.
+	 */
+	private Map<Long, LazyRecord> lazyRecords;
+
+	/**
+	 * Where a record of a file loaded lazily ends, and the SHA-256 digest of
+	 * its encrypted bytes (starting with the encrypted block before it, which
+	 * is its IV) as read when the HMAC was checked.
+	 */
+	private static final class LazyRecord {
+		private final int end;
+		private final byte[] digest;
+
+		LazyRecord(final int end, final byte[] digest) {
+			this.end = end;
+			this.digest = digest;
+		}
+	}
+
+	/**
+	 * A stream digesting the encrypted bytes of each record as they are read,
+	 * for loading a file lazily.
+	 */
+	private static final class RecordDigestStream extends FilterInputStream {
+		private final MessageDigest digest = newRecordDigest();
+		private final byte[] lastBlock;
+
+		RecordDigestStream(final InputStream in, final byte[] lastBlock) {
+			super(in);
+			this.lastBlock = lastBlock;
+		}
+
+		/**
+		 * Starts the digest of a record, with the block read before it.
+		 */
+		void startRecord() {
+			digest.reset();
+			digest.update(lastBlock);
+		}
+
+		/**
+		 * Returns the digest of the record started last.
+		 */
+		byte[] endRecord() {
+			return digest.digest();
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int count = in.read(b, off, len);
+			if (count > 0) {
+				digest.update(b, off, count);
+				// Keep the last block read, the IV of a record starting next
+				final int kept = Math.max(0, lastBlock.length - count);
+				System.arraycopy(lastBlock, lastBlock.length - kept, lastBlock, 0, kept);
+				System.arraycopy(b, off + count - (lastBlock.length - kept), lastBlock, kept, lastBlock.length - kept);
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			throw new IOException("Records can not be skipped");
+		}
+	}
+
+	/**
+	 * Length of the HMAC at the end of the file.
+	 */
+	private static final int HMAC_LENGTH = 32;
+
+	/**
+	 * Size of the records below which they are read one after another.
+	 */
+	private static final int PARALLEL_MIN_BYTES = 64 * 1024;
+
+	/**
+	 * Number of bytes decrypted by each task when reading in parallel.
+	 */
+	private static final int DECRYPT_CHUNK_BYTES = 64 * 1024;
+
 	/**
 	 * Constructs and initialises a new, empty version 3 PasswordSafe database
 	 * in memory.
@@ -127,6 +236,8 @@ public final class PwsFileV3 extends PwsFile {
 		if (decryptedRecordKey != null) {
 			Arrays.fill(decryptedRecordKey, (byte) 0);
 		}
+		lazySource = null;
+		lazyRecords = null;
 	}
 
 	@Override
@@ -137,7 +248,7 @@ public final class PwsFileV3 extends PwsFile {
 		setPassphrase(new StringBuilder(aPassphrase));
 
 		if (storage != null) {
-			inStream = new ByteArrayInputStream(storage.load());
+			inStream = storage.getInputStream();
 			lastStorageChange = storage.getModifiedDate();
 		}
 		final PwsFileHeaderV3 theHeaderV3 = new PwsFileHeaderV3(this);
@@ -147,14 +258,17 @@ public final class PwsFileV3 extends PwsFile {
 		final int iter = theHeaderV3.getIter();
 		LOG.debug1("Using iterations: [" + iter + "]");
 		final SHA256Pws shaHasher = new SHA256Pws();
-		stretchedPassword = Util.stretchPassphrase(aPassphrase.getBytes(), theHeaderV3.getSalt(),
-				iter);
+		final byte[] passphraseBytes = aPassphrase.getBytes();
+		stretchedPassword = Util.stretchPassphrase(passphraseBytes, theHeaderV3.getSalt(), iter);
 
 		if (!Util.bytesAreEqual(theHeaderV3.getPassword(), shaHasher.digest(stretchedPassword))) {
 			// try another method to avoid asymmetric encoding bug in V0.8 Beta1
 			final CharBuffer buf = CharBuffer.wrap(aPassphrase);
-			stretchedPassword = Util.stretchPassphrase(
-					Charset.defaultCharset().encode(buf).array(), theHeaderV3.getSalt(), iter);
+			final byte[] encodedBytes = Charset.defaultCharset().encode(buf).array();
+			// Stretching the same bytes again can not match, and costs as much as the first try
+			if (!Arrays.equals(passphraseBytes, encodedBytes)) {
+				stretchedPassword = Util.stretchPassphrase(encodedBytes, theHeaderV3.getSalt(), iter);
+			}
 			if (Util.bytesAreEqual(theHeaderV3.getPassword(), shaHasher.digest(stretchedPassword))) {
 				LOG.warn("Succeeded workaround for asymmetric password encoding bug");
 			} else {
@@ -184,6 +298,239 @@ public final class PwsFileV3 extends PwsFile {
 		LOG.leaveMethod("PwsFileV3.init");
 	}
 
+	/**
+	 * Returns all bytes of the storage, mapped if the storage supports it.
+	 */
+	private ByteBuffer getStorageBytes() throws IOException {
+		return storage instanceof PwsMappedFileStorage ? ((PwsMappedFileStorage) storage).map() : ByteBuffer
+				.wrap(storage.load());
+	}
+
+	/**
+	 * Reads all records, decrypting and parsing them in parallel for larger
+	 * files when there is more than one core. As CBC decryption of a block only needs the previous encrypted
+	 * block, all blocks up to the end of file marker are decrypted in chunks
+	 * on the fork/join pool. The decrypted items are then walked through in
+	 * order to find the records and to check the HMAC, before the records are
+	 * created and sealed on the pool. Records are added, and the load listeners
+	 * notified, in the order of the file.
+	 * 
+	 * @throws IOException If an error occurs reading from the file.
+	 * @throws UnsupportedFileVersionException
+	 */
+	@Override
+	void readAll() throws IOException, UnsupportedFileVersionException {
+		if (storage == null || ForkJoinPool.getCommonPoolParallelism() < 2) {
+			readAllSequentially();
+			return;
+		}
+		final ByteBuffer source = getStorageBytes();
+		final int blockSize = getBlockSize();
+		final int start = (int) getReadPosition();
+		// The records are followed by the end of file marker and the HMAC
+		final int end = source.capacity() - EOF_BYTES_RAW.length - HMAC_LENGTH;
+		if (end - start < PARALLEL_MIN_BYTES || (end - start) % blockSize != 0) {
+			readAllSequentially();
+			return;
+		}
+		final byte[] trailer = new byte[EOF_BYTES_RAW.length + HMAC_LENGTH];
+		final ByteBuffer trailerSource = source.duplicate();
+		trailerSource.position(end);
+		trailerSource.get(trailer);
+		if (!isEofBlock(trailer, 0)) {
+			readAllSequentially();
+			return;
+		}
+
+		final byte[] plaintext = new byte[end - start];
+		try {
+			final int chunks = (plaintext.length + DECRYPT_CHUNK_BYTES - 1) / DECRYPT_CHUNK_BYTES;
+			IntStream.range(0, chunks).parallel().forEach(chunk -> {
+				final int from = chunk * DECRYPT_CHUNK_BYTES;
+				final int length = Math.min(DECRYPT_CHUNK_BYTES, plaintext.length - from);
+				final byte[] iv = new byte[blockSize];
+				final ByteBuffer chunkSource = source.duplicate();
+				chunkSource.position(start + from - blockSize);
+				chunkSource.get(iv);
+				chunkSource.get(plaintext, from, length);
+				new TwofishPws(decryptedRecordKey, false, iv).processCBC(plaintext, from, plaintext, from, length);
+			});
+
+			// Record boundaries and the HMAC, in order
+			final List<int[]> ranges = new ArrayList<int[]>();
+			int recordStart = 0;
+			int pos = 0;
+			while (pos < plaintext.length) {
+				final int length = Util.getIntFromByteArray(plaintext, pos);
+				final int type = plaintext[pos + 4] & 0x000000ff;
+				// Checked before the size is computed, which would overflow for lengths near Integer.MAX_VALUE
+				if (length < 0 || length > plaintext.length - pos - 5) {
+					throw new IOException("Error reading encrypted fields");
+				}
+				final int size = PwsRecordV3.itemSize(length, blockSize);
+				if (pos + size > plaintext.length) {
+					throw new IOException("Error reading encrypted fields");
+				}
+				hasher.digest(plaintext, pos + 5, length);
+				pos += size;
+				if (type == PwsRecordV3.END_OF_RECORD) {
+					ranges.add(new int[] { recordStart, pos });
+					recordStart = pos;
+				}
+			}
+			if (!Util.bytesAreEqual(Arrays.copyOfRange(trailer, EOF_BYTES_RAW.length, trailer.length),
+					hasher.doFinal())) {
+				LOG.error("HMAC record did not match. File may have been tampered");
+				throw new IOException("HMAC record did not match. File has been tampered");
+			}
+
+			final PwsRecordV3[] records = new PwsRecordV3[ranges.size()];
+			final byte[][] sealed = new byte[records.length][];
+			IntStream.range(0, records.length).parallel().forEach(i -> {
+				try {
+					records[i] = new PwsRecordV3(plaintext, ranges.get(i)[0], ranges.get(i)[1]);
+				} catch (final UnsupportedEncodingException e) {
+					throw new UncheckedIOException(e);
+				}
+				if (records[i].isValid()) {
+					sealed[i] = sealRecord(records[i]);
+				}
+			});
+			for (int i = 0; i < records.length; i++) {
+				if (sealed[i] != null) {
+					addSealed(records[i], sealed[i]);
+				}
+				notifyLoaded(records[i]);
+			}
+		} catch (final UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			Arrays.fill(plaintext, (byte) 0);
+		}
+	}
+
+	/**
+	 * Reads all records one after another, as {@link #readAll()} does for
+	 * files too small to be read in parallel.
+	 * 
+	 * @throws IOException If an error occurs reading from the file.
+	 * @throws UnsupportedFileVersionException
+	 */
+	void readAllSequentially() throws IOException, UnsupportedFileVersionException {
+		super.readAll();
+	}
+
+	/**
+	 * Reads all records lazily: the records are decrypted and the HMAC is
+	 * checked, but only the group and title of each record are kept, with
+	 * the offset of the record in the storage. Records are decrypted again
+	 * when they are first accessed, and only then have their fields created
+	 * and are sealed. Load listeners are not notified.
+	 * <p>
+	 * The records are read from the mapped file if the storage is a
+	 * {@link PwsMappedFileStorage}, and the mapping is kept until every record
+	 * has been read, or the file is saved or disposed. The encrypted bytes of
+	 * each record are digested as they are read now, and a record read later is
+	 * only decoded if its bytes still have the same digest, so the HMAC checked
+	 * now covers them. Saving a file replaces it with a new one, which leaves
+	 * the mapping of the old one valid. A file modified in place makes the
+	 * records not read yet fail to read with an {@link IOException}. So does a
+	 * truncated one, though if it is truncated whilst a record is being read
+	 * the read may fail with an {@link InternalError} instead.
+	 * </p>
+	 * 
+	 * @throws IOException If an error occurs reading from the file.
+	 */
+	void readAllLazily() throws IOException {
+		final int blockSize = getBlockSize();
+		final int start = (int) getReadPosition();
+		lazySource = getStorageBytes().asReadOnlyBuffer();
+		lazyRecords = new HashMap<Long, LazyRecord>();
+		final ByteBuffer records = lazySource.duplicate();
+		final byte[] lastBlock = new byte[blockSize];
+		records.position(start - blockSize);
+		records.get(lastBlock);
+		final RecordDigestStream digestStream = new RecordDigestStream(PwsMappedFileStorage.newInputStream(records),
+				lastBlock);
+		inStream.close();
+		inStream = digestStream;
+		try {
+			for (;;) {
+				final long offset = getReadPosition();
+				digestStream.startRecord();
+				final String[] groupAndTitle = PwsRecordV3.skipRecord(this);
+				final byte[] digest = digestStream.endRecord();
+				if (groupAndTitle != null) {
+					lazyRecords.put(Long.valueOf(offset), new LazyRecord((int) getReadPosition(), digest));
+					addLazily(recordKey(groupAndTitle[0], groupAndTitle[1]), offset);
+				}
+			}
+		} catch (final EndOfFileException e) {
+			// OK
+		}
+	}
+
+	/**
+	 * Reads a record of a file loaded lazily. The encrypted bytes of the
+	 * record are copied from the storage and checked against their digest
+	 * when the file was loaded, then decrypted with a cipher of their own,
+	 * starting from the previous encrypted block (every record follows at
+	 * least the header record), and without affecting the HMAC. Called at most
+	 * once for each record, whilst holding the lock of this file.
+	 * 
+	 * @param offset where the record starts in the storage.
+	 * @return the record.
+	 * @throws IOException if the record can not be read, or has changed since
+	 *         the file was loaded.
+	 */
+	PwsRecord readRecordAt(final long offset) throws IOException {
+		if (lazySource == null) {
+			throw new IllegalStateException("The file has been disposed");
+		}
+		final LazyRecord lazyRecord = lazyRecords.get(Long.valueOf(offset));
+		final int blockSize = getBlockSize();
+		final byte[] encrypted = new byte[lazyRecord.end - (int) offset + blockSize];
+		// Reading a page of a mapped file past its end fails with an InternalError
+		if (storage instanceof PwsMappedFileStorage
+				&& Files.size(Paths.get(((PwsMappedFileStorage) storage).getFilename())) < lazyRecord.end) {
+			throw new IOException("Record at " + offset + " is past the end of the file, which has been truncated");
+		}
+		final ByteBuffer source = lazySource.duplicate();
+		source.position((int) offset - blockSize);
+		source.get(encrypted);
+		if (!MessageDigest.isEqual(newRecordDigest().digest(encrypted), lazyRecord.digest)) {
+			LOG.error("Record at " + offset + " changed since the file was loaded. File may have been tampered");
+			throw new IOException("Record at " + offset + " changed since the file was loaded. File has been tampered");
+		}
+
+		final InputStream savedStream = inStream;
+		final TwofishPws savedCipher = twofishCbc;
+		final HmacPws savedHasher = hasher;
+		try {
+			inStream = new ByteArrayInputStream(encrypted, blockSize, encrypted.length - blockSize);
+			twofishCbc = new TwofishPws(decryptedRecordKey, false, Arrays.copyOf(encrypted, blockSize));
+			hasher = new HmacPws(decryptedHmacKey);
+			final PwsRecord rec = new PwsRecordV3(this);
+			lazyRecords.remove(Long.valueOf(offset));
+			return rec;
+		} catch (final EndOfFileException e) {
+			throw new IOException("Record at " + offset + " is truncated", e);
+		} finally {
+			inStream = savedStream;
+			twofishCbc = savedCipher;
+			hasher = savedHasher;
+		}
+	}
+
+	private static MessageDigest newRecordDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
 	/**
 	 * Writes this file back to the filesystem. If successful the modified flag
 	 * is also reset on the file and all records.
@@ -196,6 +543,11 @@ public final class PwsFileV3 extends PwsFile {
 			throw new IOException("File is read only");
 		}
 
+		// The record key changes when saving, so records must be read first
+		readLazyRecords();
+		lazySource = null;
+		lazyRecords = null;
+
 		if (lastStorageChange != null && // check for concurrent change
 				storage.getModifiedDate().after(lastStorageChange)) {
 			throw new ConcurrentModificationException(
@@ -321,20 +673,50 @@ public final class PwsFileV3 extends PwsFile {
 		if ((buff.length == 0) || ((buff.length % getBlockSize()) != 0)) {
 			throw new IllegalArgumentException(I18nHelper.getInstance().formatMessage("E00001"));
 		}
-		readBytes(buff);
-		if (Util.bytesAreEqual(buff, EOF_BYTES_RAW)) {
-			throw new EndOfFileException();
+		readDecryptedBytes(buff, 0, buff.length);
+	}
+
+	/**
+	 * Reads bytes from the file and decrypts them in place into part of
+	 * <code>buff</code>, without any intermediate copies.
+	 * 
+	 * @param buff the buffer to read the bytes into.
+	 * @param offset the position in <code>buff</code> to read to.
+	 * @param length the number of bytes to read, a multiple of the block size.
+	 * 
+	 * @throws EndOfFileException If end of file has been reached.
+	 * @throws IOException If a read error occurs.
+	 * @throws IllegalArgumentException If <code>length</code> is not an
+	 *         integral multiple of the block size.
+	 */
+	void readDecryptedBytes(final byte[] buff, final int offset, final int length) throws EndOfFileException,
+			IOException {
+		final int blockSize = getBlockSize();
+		if ((length == 0) || ((length % blockSize) != 0)) {
+			throw new IllegalArgumentException(I18nHelper.getInstance().formatMessage("E00001"));
+		}
+		readBytes(buff, offset, length);
+		for (int i = offset; i < offset + length; i += blockSize) {
+			if (isEofBlock(buff, i)) {
+				throw new EndOfFileException();
+			}
 		}
 
-		byte[] decrypted;
 		try {
-			decrypted = twofishCbc.processCBC(buff);
+			twofishCbc.processCBC(buff, offset, buff, offset, length);
 		} catch (final Exception e) {
 			e.printStackTrace();
 			throw new IOException("Error decrypting field");
 		}
-		Util.copyBytes(decrypted, buff);
-		// Algorithm.decrypt( buff );
+	}
+
+	private static boolean isEofBlock(final byte[] buff, final int offset) {
+		for (int i = 0; i < EOF_BYTES_RAW.length; i++) {
+			if (buff[offset + i] != EOF_BYTES_RAW[i]) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
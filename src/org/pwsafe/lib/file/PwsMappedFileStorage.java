@@ -0,0 +1,122 @@
+/*
+ * $Id:$
+ *
+ * Copyright (c) 2008-2014 David Muller <roxon@users.sourceforge.net>.
+ * All rights reserved. Use of the code is allowed under the
+ * Artistic License 2.0 terms, as specified in the LICENSE file
+ * distributed with this code, or available from
+ * http://www.opensource.org/licenses/artistic-license-2.0.php
+ */
+package org.pwsafe.lib.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file storage that is read by memory mapping the file, so the file is read
+ * by the operating system as it is parsed rather than copied into the heap
+ * first. Saving is the same as for {@link PwsFileStorage}.
+ * <p>
+ * The mapping is released once the stream and buffer are garbage collected.
+ * </p>
+ *
+ * @author nahrens
+ *
+ */
+public class PwsMappedFileStorage extends PwsFileStorage {
+
+	/**
+	 * An input stream reading a (mapped) byte buffer.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private ByteBuffer buffer;
+
+		ByteBufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			final int count = Math.min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + count);
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return buffer.remaining();
+		}
+
+		@Override
+		public void close() throws IOException {
+			// Drop the mapping so it can be released
+			buffer = ByteBuffer.allocate(0);
+		}
+	}
+
+	/*
+	 * Build an implementation given the filename for the underlying storage.
+	 */
+	public PwsMappedFileStorage(final String filename) throws IOException {
+		super(filename);
+	}
+
+	/**
+	 * Maps the file and returns a stream reading the mapped bytes.
+	 *
+	 * @return a stream of the bytes of the file.
+	 * @throws IOException if the file can not be mapped.
+	 */
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return new ByteBufferInputStream(map());
+	}
+
+	/**
+	 * Maps the file read only.
+	 *
+	 * @return the bytes of the file.
+	 * @throws IOException if the file can not be mapped.
+	 */
+	public ByteBuffer map() throws IOException {
+		// The mapping stays valid once the channel is closed
+		final FileChannel channel = FileChannel.open(Paths.get(getFilename()), StandardOpenOption.READ);
+		try {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns a stream reading a byte buffer from its position.
+	 *
+	 * @param buffer the bytes to read.
+	 * @return the stream.
+	 */
+	static InputStream newInputStream(final ByteBuffer buffer) {
+		return new ByteBufferInputStream(buffer);
+	}
+}
@@ -175,6 +175,26 @@ public abstract class PwsRecord implements Comparable, Serializable, Cloneable {
 		ValidTypes = validTypes;
 	}
 
+	/**
+	 * Constructor used to restore a record decoded by {@link RecordCodec}.
+	 * 
+	 * @param validTypes an array of valid field types.
+	 * @param fields the fields of the record.
+	 * @param loaded whether the record was loaded.
+	 * @param modified whether the record was modified.
+	 * @param ignoreFieldTypes true if all fields types should be ignored.
+	 */
+	PwsRecord(Object[] validTypes, Map<Integer, PwsField> fields, boolean loaded, boolean modified,
+			boolean ignoreFieldTypes) {
+		super();
+
+		ValidTypes = validTypes;
+		attributes = fields;
+		isLoaded = loaded;
+		this.modified = modified;
+		this.ignoreFieldTypes = ignoreFieldTypes;
+	}
+
 	/**
 	 * This constructor is called when a record is to be read from the database.
 	 * 
@@ -387,6 +407,15 @@ public abstract class PwsRecord implements Comparable, Serializable, Cloneable {
 		return modified;
 	}
 
+	/**
+	 * Returns whether this record was loaded, or is a new record.
+	 * 
+	 * @return <code>true</code> if the record was loaded.
+	 */
+	boolean isLoaded() {
+		return isLoaded;
+	}
+
 	/**
 	 * Read a record from the given file.
 	 * 
@@ -11,6 +11,7 @@ package org.pwsafe.lib.file;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.Map;
 
 import org.pwsafe.lib.exception.EndOfFileException;
 
@@ -109,6 +110,18 @@ public class PwsRecordV1 extends PwsRecord implements Comparable {
 		super(file, VALID_TYPES);
 	}
 
+	/**
+	 * Restores a record decoded by {@link RecordCodec}.
+	 * 
+	 * @param fields the fields of the record.
+	 * @param loaded whether the record was loaded.
+	 * @param modified whether the record was modified.
+	 * @param ignoreFieldTypes true if all fields types should be ignored.
+	 */
+	PwsRecordV1(Map<Integer, PwsField> fields, boolean loaded, boolean modified, boolean ignoreFieldTypes) {
+		super(VALID_TYPES, fields, loaded, modified, ignoreFieldTypes);
+	}
+
 	/**
 	 * Creates a new record that is a copy <code>base</code>.
 	 * 
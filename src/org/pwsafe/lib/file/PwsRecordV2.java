@@ -148,6 +148,18 @@ public class PwsRecordV2 extends PwsRecord {
 		super(file, VALID_TYPES);
 	}
 
+	/**
+	 * Restores a record decoded by {@link RecordCodec}.
+	 * 
+	 * @param fields the fields of the record.
+	 * @param loaded whether the record was loaded.
+	 * @param modified whether the record was modified.
+	 * @param ignoreFieldTypes true if all fields types should be ignored.
+	 */
+	PwsRecordV2(Map<Integer, PwsField> fields, boolean loaded, boolean modified, boolean ignoreFieldTypes) {
+		super(VALID_TYPES, fields, loaded, modified, ignoreFieldTypes);
+	}
+
 	/**
 	 * Creates a new record that is a copy <code>base</code>.
 	 * 
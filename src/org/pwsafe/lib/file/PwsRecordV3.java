@@ -10,11 +10,14 @@
 package org.pwsafe.lib.file;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.pwsafe.lib.Log;
 import org.pwsafe.lib.UUID;
@@ -197,6 +200,18 @@ public class PwsRecordV3 extends PwsRecord {
 		super(file, VALID_TYPES, ignoreFieldTypes);
 	}
 
+	/**
+	 * Restores a record decoded by {@link RecordCodec}.
+	 * 
+	 * @param fields the fields of the record.
+	 * @param loaded whether the record was loaded.
+	 * @param modified whether the record was modified.
+	 * @param ignoreFieldTypes true if all fields types should be ignored.
+	 */
+	PwsRecordV3(Map<Integer, PwsField> fields, boolean loaded, boolean modified, boolean ignoreFieldTypes) {
+		super(VALID_TYPES, fields, loaded, modified, ignoreFieldTypes);
+	}
+
 	/**
 	 * Creates a new record that is a copy <code>base</code>.
 	 * 
@@ -206,6 +221,51 @@ public class PwsRecordV3 extends PwsRecord {
 		super(base);
 	}
 
+	/**
+	 * Creates a record from items already decrypted, for reading a file in
+	 * parallel.
+	 * 
+	 * @param plaintext the decrypted items.
+	 * @param offset the position of the first item of the record.
+	 * @param end the position after the end of record item.
+	 * @throws UnsupportedEncodingException
+	 */
+	PwsRecordV3(final byte[] plaintext, final int offset, final int end) throws UnsupportedEncodingException {
+		super(VALID_TYPES, new TreeMap<Integer, PwsField>(), true, false, false);
+
+		int pos = offset;
+		while (pos < end) {
+			final int length = Util.getIntFromByteArray(plaintext, pos);
+			final int type = plaintext[pos + 4] & 0x000000ff;
+			if (type == END_OF_RECORD) {
+				break;
+			}
+			// The data follows the length and type, continuing into the next blocks
+			final byte[] data = Arrays.copyOfRange(plaintext, pos + 5, pos + 5 + length);
+			// V3 allows any field type, so the fields do not need validating
+			attributes.put(Integer.valueOf(type), newField(type, data));
+			pos += itemSize(length, BLOCK_SIZE);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes an item takes up in the file: a block with
+	 * the length, type and up to 11 bytes of data, followed by as many blocks
+	 * as the rest of the data needs.
+	 * 
+	 * @param length the length of the data of the item, which must not be
+	 *            more than the bytes left after the length and type.
+	 * @param blockSize the block size of the file.
+	 * @return the size of the item.
+	 */
+	static int itemSize(final int length, final int blockSize) {
+		if (length <= 11) {
+			return blockSize;
+		}
+		// Rounded up in long, as length + blockSize may not fit in an int
+		return (int) (blockSize + ((long) length - 11 + blockSize - 1) / blockSize * blockSize);
+	}
+
 	/**
 	 * The V3 format allows and requires the ability to add formerly unknown
 	 * fields.
@@ -308,6 +368,11 @@ public class PwsRecordV3 extends PwsRecord {
 		return false;
 	}
 
+	/**
+	 * The block size of V3 files.
+	 */
+	private static final int BLOCK_SIZE = 16;
+
 	static byte[] EOF_BYTES_RAW = "PWS3-EOFPWS3-EOF".getBytes();
 
 	protected class ItemV3 extends Item {
@@ -329,31 +394,23 @@ public class PwsRecordV3 extends PwsRecord {
 			length = Util.getIntFromByteArray(rawData, 0);
 			type = rawData[4] & 0x000000ff; // rest of header is now random data
 			data = new byte[length];
-			final byte[] remainingDataInRecord = Util.getBytes(rawData, 5, 11);
-			if (length <= 11) {
-				Util.copyBytes(Util.getBytes(remainingDataInRecord, 0, length), data);
-			} else if (length > 11) {
+			// The first block holds the length, type and up to 11 bytes of data
+			System.arraycopy(rawData, 5, data, 0, Math.min(length, 11));
+			if (length > 11) {
+				// Decrypt the remaining blocks straight into the data, except
+				// a partial last block, which is decrypted apart and trimmed
+				final int blockSize = file.getBlockSize();
 				final int bytesToRead = length - 11;
-				int blocksToRead = bytesToRead / file.getBlockSize();
-
-				// if blocksToRead doesn't fit neatly into current block
-				// size, add an extra block for the remaining bytes
-				if (bytesToRead % file.getBlockSize() != 0) {
-					blocksToRead++;
+				final int wholeBytes = bytesToRead - bytesToRead % blockSize;
+				if (wholeBytes > 0) {
+					file.readDecryptedBytes(data, 11, wholeBytes);
 				}
-
-				byte[] remainingRecords = new byte[0];
-				for (int i = 0; i < blocksToRead; i++) {
-					byte[] nextBlock = new byte[file.getBlockSize()];
-					file.readDecryptedBytes(nextBlock);
-					if (i == blocksToRead - 1) {
-						// last block, do magic
-						nextBlock = Util.getBytes(nextBlock, 0, bytesToRead
-								- remainingRecords.length);
-					}
-					remainingRecords = Util.mergeBytes(remainingRecords, nextBlock);
+				if (wholeBytes < bytesToRead) {
+					final byte[] lastBlock = new byte[blockSize];
+					file.readDecryptedBytes(lastBlock, 0, blockSize);
+					System.arraycopy(lastBlock, 0, data, 11 + wholeBytes, bytesToRead - wholeBytes);
+					Arrays.fill(lastBlock, (byte) 0);
 				}
-				data = Util.mergeBytes(remainingDataInRecord, remainingRecords);
 			}
 			final byte[] dataToHash = data;
 			file.hasher.digest(dataToHash);
@@ -361,6 +418,42 @@ public class PwsRecordV3 extends PwsRecord {
 		}
 	}
 
+	/**
+	 * Reads a record from <code>file</code> without creating its fields, for
+	 * loading the file lazily.
+	 * 
+	 * @param file the file to read the record from.
+	 * @return the group (<code>null</code> if it has none) and title of the
+	 *         record, or <code>null</code> if it is not a valid record.
+	 * 
+	 * @throws EndOfFileException If end of file is reached
+	 * @throws IOException If a read error occurs.
+	 */
+	static String[] skipRecord(PwsFileV3 file) throws EndOfFileException, IOException {
+		// Only used to read the items
+		final PwsRecordV3 reader = new PwsRecordV3(null, false, false, false);
+		final String[] groupAndTitle = new String[2];
+		boolean valid = true;
+		for (;;) {
+			final Item item = reader.new ItemV3(file);
+			switch (item.getType()) {
+			case END_OF_RECORD:
+				return valid ? groupAndTitle : null;
+			case V3_ID_STRING:
+				valid = false;
+				break;
+			case GROUP:
+				groupAndTitle[0] = new String(item.getByteData(), "UTF-8");
+				break;
+			case TITLE:
+				groupAndTitle[1] = new String(item.getByteData(), "UTF-8");
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
 	/**
 	 * Initialises this record by reading its data from <code>file</code>.
 	 * 
@@ -388,49 +481,7 @@ public class PwsRecordV3 extends PwsRecord {
 				attributes.put(new Integer(item.getType()), itemVal);
 			} else {
 
-				switch (item.getType()) {
-				case V3_ID_STRING:
-					// itemVal = new PwsIntegerField( item.getType(), new byte[]
-					// {3,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0} );
-					itemVal = new PwsVersionField(item.getType(), item.getByteData());
-					break;
-
-				case UUID:
-					itemVal = new PwsUUIDField(item.getType(), item.getByteData());
-					break;
-
-				case GROUP:
-				case TITLE:
-				case USERNAME:
-				case NOTES:
-				case PASSWORD:
-				case PASSWORD_POLICY:
-				case PASSWORD_HISTORY:
-				case URL:
-				case AUTOTYPE:
-					itemVal = new PwsStringUnicodeField(item.getType(), item.getByteData());
-					break;
-
-				case CREATION_TIME:
-				case PASSWORD_MOD_TIME:
-				case LAST_ACCESS_TIME:
-				case LAST_MOD_TIME:
-					itemVal = new PwsTimeField(item.getType(), item.getByteData());
-					break;
-
-				case PASSWORD_LIFETIME:
-					itemVal = new PwsTimeField(item.getType(), item.getByteData());
-					break;
-
-				// case PASSWORD_EXPIRY_INTERVAL :
-				// break;
-				//
-
-				default:
-					itemVal = new PwsUnknownField(item.getType(), item.getByteData());
-					break;
-				// throw new UnimplementedConversionException();
-				}
+				itemVal = newField(item.getType(), item.getByteData());
 				if (LOG.isDebug2Enabled()) {
 					LOG.debug2("type=" + item.getType() + " ("
 							+ ((Object[]) VALID_TYPES[item.getType()])[1] + "), value=\""
@@ -441,6 +492,54 @@ public class PwsRecordV3 extends PwsRecord {
 		}
 	}
 
+	/**
+	 * Creates the field of an item read from the file.
+	 * 
+	 * @param type the type of the item.
+	 * @param data the data of the item.
+	 * @return the field.
+	 * @throws UnsupportedEncodingException
+	 */
+	private PwsField newField(final int type, final byte[] data) throws UnsupportedEncodingException {
+		switch (type) {
+		case V3_ID_STRING:
+			// itemVal = new PwsIntegerField( item.getType(), new byte[]
+			// {3,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0} );
+			return new PwsVersionField(type, data);
+
+		case UUID:
+			return new PwsUUIDField(type, data);
+
+		case GROUP:
+		case TITLE:
+		case USERNAME:
+		case NOTES:
+		case PASSWORD:
+		case PASSWORD_POLICY:
+		case PASSWORD_HISTORY:
+		case URL:
+		case AUTOTYPE:
+			return new PwsStringUnicodeField(type, data);
+
+		case CREATION_TIME:
+		case PASSWORD_MOD_TIME:
+		case LAST_ACCESS_TIME:
+		case LAST_MOD_TIME:
+			return new PwsTimeField(type, data);
+
+		case PASSWORD_LIFETIME:
+			return new PwsTimeField(type, data);
+
+		// case PASSWORD_EXPIRY_INTERVAL :
+		// break;
+		//
+
+		default:
+			return new PwsUnknownField(type, data);
+		// throw new UnimplementedConversionException();
+		}
+	}
+
 	/**
 	 * Saves this record to <code>file</code>.
 	 * 
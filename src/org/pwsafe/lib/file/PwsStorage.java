@@ -9,7 +9,9 @@
  */
 package org.pwsafe.lib.file;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Date;
 
 /**
@@ -28,12 +30,17 @@ import java.util.Date;
  */
 public interface PwsStorage {
 	/**
-	 * This method provides an input stream that can be used
+	 * This method provides an input stream over the stored bytes, which the
+	 * file is read from. By default a stream over the bytes returned by
+	 * {@link #load()}; implementations may stream the bytes without holding
+	 * all of them in memory.
 	 * 
-	 * @return
+	 * @return a stream of the stored bytes.
 	 * @throws IOException
 	 */
-	// public InputStream getInputStream() throws IOException;
+	public default InputStream getInputStream() throws IOException {
+		return new ByteArrayInputStream(load());
+	}
 
 	public byte[] load() throws IOException;
 
@@ -0,0 +1,259 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2008-2014 David Muller <roxon@users.sourceforge.net>.
+ * All rights reserved. Use of the code is allowed under the
+ * Artistic License 2.0 terms, as specified in the LICENSE file
+ * distributed with this code, or available from
+ * http://www.opensource.org/licenses/artistic-license-2.0.php
+ */
+package org.pwsafe.lib.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.pwsafe.lib.UUID;
+
+/**
+ * Encodes records to bytes for sealing them in memory, replacing Java
+ * serialization which writes the class descriptors of the record, its map
+ * and each field along with the data.
+ * <p>
+ * <tt>
+ * <pre> +--------------+-----------+----------------------------------------------------+
+ * |       Length | Name      | Description                                        |
+ * +--------------+-----------+----------------------------------------------------+
+ * |            1 | Version   | Major version of the record (1, 2 or 3)            |
+ * |            1 | Flags     | Loaded, modified and ignore field types flags      |
+ * |            4 | Count     | Number of fields                                   |
+ * +--------------+-----------+----------------------------------------------------+</pre>
+ * </tt>
+ * </p>
+ * <p>
+ * followed by each field:
+ * </p>
+ * <p>
+ * <tt>
+ * <pre> +--------------+-----------+----------------------------------------------------+
+ * |            4 | Type      | Field type                                         |
+ * |            1 | Kind      | Class of the field, see <code>KIND_*</code>        |
+ * |            4 | Length    | Length of the value, or -1 for a null value        |
+ * |       Length | Value     | The value, as described for each kind              |
+ * +--------------+-----------+----------------------------------------------------+</pre>
+ * </tt>
+ * </p>
+ *
+ * @author nahrens
+ */
+final class RecordCodec {
+	/** String of a {@link PwsStringField}, in UTF-8. */
+	private static final byte KIND_STRING = 1;
+	/** String of a {@link PwsStringUnicodeField}, in UTF-8. */
+	private static final byte KIND_UNICODE = 2;
+	/** Bytes of a {@link PwsIntegerField}. */
+	private static final byte KIND_INTEGER = 3;
+	/** Bytes of a {@link PwsVersionField}. */
+	private static final byte KIND_VERSION = 4;
+	/** Milliseconds of a {@link PwsTimeField}, as a big endian long. */
+	private static final byte KIND_TIME = 5;
+	/** Bytes of a {@link PwsUUIDField}. */
+	private static final byte KIND_UUID = 6;
+	/** Bytes of a {@link PwsUnknownField}. */
+	private static final byte KIND_UNKNOWN = 7;
+	/** Any other field, serialized. */
+	private static final byte KIND_SERIALIZED = 8;
+
+	private static final int FLAG_LOADED = 1;
+	private static final int FLAG_MODIFIED = 2;
+	private static final int FLAG_IGNORE_FIELD_TYPES = 4;
+
+	private static final int RECORD_HEADER_LENGTH = 6;
+	private static final int FIELD_HEADER_LENGTH = 9;
+
+	private RecordCodec() {
+	}
+
+	/**
+	 * Encodes a record. The caller should wipe the returned bytes once they
+	 * have been encrypted.
+	 *
+	 * @param rec the record to encode.
+	 * @return the encoded record.
+	 */
+	static byte[] encode(final PwsRecord rec) {
+		final int count = rec.attributes.size();
+		final int[] types = new int[count];
+		final byte[] kinds = new byte[count];
+		final byte[][] values = new byte[count][];
+		int length = RECORD_HEADER_LENGTH;
+		int i = 0;
+		for (final Map.Entry<Integer, PwsField> entry : rec.attributes.entrySet()) {
+			final PwsField field = entry.getValue();
+			types[i] = entry.getKey().intValue();
+			kinds[i] = kindOf(field);
+			// A serialized field holds its null value itself
+			values[i] = field.getValue() == null && kinds[i] != KIND_SERIALIZED ? null : valueOf(field, kinds[i]);
+			length += FIELD_HEADER_LENGTH + (values[i] == null ? 0 : values[i].length);
+			i++;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.put((byte) versionOf(rec));
+		buffer.put((byte) ((rec.isLoaded() ? FLAG_LOADED : 0) | (rec.isModified() ? FLAG_MODIFIED : 0)
+				| (rec.ignoreFieldTypes ? FLAG_IGNORE_FIELD_TYPES : 0)));
+		buffer.putInt(count);
+		for (i = 0; i < count; i++) {
+			buffer.putInt(types[i]);
+			buffer.put(kinds[i]);
+			if (values[i] == null) {
+				buffer.putInt(-1);
+			} else {
+				buffer.putInt(values[i].length);
+				buffer.put(values[i]);
+				Arrays.fill(values[i], (byte) 0);
+			}
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Decodes a record encoded by {@link #encode(PwsRecord)}.
+	 *
+	 * @param bytes the encoded record.
+	 * @return the record.
+	 * @throws IOException if the bytes are not an encoded record.
+	 */
+	static PwsRecord decode(final byte[] bytes) throws IOException {
+		try {
+			final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			final int version = buffer.get();
+			final int flags = buffer.get();
+			final int count = buffer.getInt();
+			final Map<Integer, PwsField> fields = new TreeMap<Integer, PwsField>();
+			for (int i = 0; i < count; i++) {
+				final int type = buffer.getInt();
+				final byte kind = buffer.get();
+				final int length = buffer.getInt();
+				byte[] value = null;
+				if (length >= 0) {
+					value = new byte[length];
+					buffer.get(value);
+				}
+				fields.put(Integer.valueOf(type), newField(type, kind, value));
+			}
+
+			final boolean loaded = (flags & FLAG_LOADED) != 0;
+			final boolean modified = (flags & FLAG_MODIFIED) != 0;
+			final boolean ignoreFieldTypes = (flags & FLAG_IGNORE_FIELD_TYPES) != 0;
+			switch (version) {
+			case PwsFileV1.VERSION:
+				return new PwsRecordV1(fields, loaded, modified, ignoreFieldTypes);
+			case PwsFileV2.VERSION:
+				return new PwsRecordV2(fields, loaded, modified, ignoreFieldTypes);
+			case PwsFileV3.VERSION:
+				return new PwsRecordV3(fields, loaded, modified, ignoreFieldTypes);
+			default:
+				throw new IOException("Unknown record version " + version);
+			}
+		} catch (final RuntimeException e) {
+			// Underflow or a value its field rejects
+			throw new IOException("Invalid encoded record", e);
+		}
+	}
+
+	private static int versionOf(final PwsRecord rec) {
+		if (rec instanceof PwsRecordV3) {
+			return PwsFileV3.VERSION;
+		} else if (rec instanceof PwsRecordV2) {
+			return PwsFileV2.VERSION;
+		} else if (rec instanceof PwsRecordV1) {
+			return PwsFileV1.VERSION;
+		}
+		throw new IllegalArgumentException("Unknown record class " + rec.getClass().getName());
+	}
+
+	private static byte kindOf(final PwsField field) {
+		final Class<?> cl = field.getClass();
+		if (cl == PwsStringField.class) {
+			return KIND_STRING;
+		} else if (cl == PwsStringUnicodeField.class) {
+			return KIND_UNICODE;
+		} else if (cl == PwsIntegerField.class) {
+			return KIND_INTEGER;
+		} else if (cl == PwsVersionField.class) {
+			return KIND_VERSION;
+		} else if (cl == PwsTimeField.class) {
+			return KIND_TIME;
+		} else if (cl == PwsUUIDField.class) {
+			return KIND_UUID;
+		} else if (cl == PwsUnknownField.class) {
+			return KIND_UNKNOWN;
+		}
+		return KIND_SERIALIZED;
+	}
+
+	private static byte[] valueOf(final PwsField field, final byte kind) {
+		switch (kind) {
+		case KIND_STRING:
+		case KIND_UNICODE:
+			return ((String) field.getValue()).getBytes(StandardCharsets.UTF_8);
+		case KIND_TIME:
+			return ByteBuffer.allocate(8).putLong(((Date) field.getValue()).getTime()).array();
+		case KIND_SERIALIZED:
+			try {
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				final ObjectOutputStream out = new ObjectOutputStream(bytes);
+				out.writeObject(field);
+				out.close();
+				return bytes.toByteArray();
+			} catch (final IOException e) {
+				throw new IllegalArgumentException("Unable to encode field " + field.getType(), e);
+			}
+		default:
+			// A copy, so wiping it does not wipe the field
+			return field.getBytes().clone();
+		}
+	}
+
+	private static PwsField newField(final int type, final byte kind, final byte[] value) throws IOException {
+		switch (kind) {
+		case KIND_STRING:
+			return new PwsStringField(type, value == null ? null : new String(value, StandardCharsets.UTF_8));
+		case KIND_UNICODE:
+			return new PwsStringUnicodeField(type, value == null ? null : new String(value,
+					StandardCharsets.UTF_8));
+		case KIND_INTEGER:
+			return new PwsIntegerField(type, value);
+		case KIND_VERSION:
+			return new PwsVersionField(type, value);
+		case KIND_TIME:
+			return new PwsTimeField(type, value == null ? null : new Date(ByteBuffer.wrap(value).getLong()));
+		case KIND_UUID:
+			return new PwsUUIDField(type, value == null ? null : new UUID(value));
+		case KIND_UNKNOWN:
+			return new PwsUnknownField(type, value);
+		case KIND_SERIALIZED:
+			try {
+				final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(value));
+				try {
+					return (PwsField) in.readObject();
+				} finally {
+					in.close();
+				}
+			} catch (final ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+		default:
+			throw new IOException("Unknown field kind " + kind);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2008-2014 David Muller <roxon@users.sourceforge.net>.
+ * All rights reserved. Use of the code is allowed under the
+ * Artistic License 2.0 terms, as specified in the LICENSE file
+ * distributed with this code, or available from
+ * http://www.opensource.org/licenses/artistic-license-2.0.php
+ */
+package org.pwsafe.lib.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+import static org.pwsafe.lib.file.RecordAssert.assertSameRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Loading version 3 files, in parallel as {@link PwsFileV3#readAll()} does
+ * for larger files, one record after another, and lazily.
+ *
+ * @author nahrens
+ */
+public class PwsFileV3Test {
+	private static final String PASSPHRASE = "secret";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Writes a file of records with the usual version 3 fields, and notes of
+	 * up to the given length.
+	 */
+	private String newFile(final String name, final int records, final int notesLength) throws Exception {
+		final String path = new File(folder.getRoot(), name).getPath();
+		final PwsFile file = PwsFileFactory.newFile();
+		file.setPassphrase(new StringBuilder(PASSPHRASE));
+		final StringBuilder notes = new StringBuilder();
+		while (notes.length() < notesLength) {
+			notes.append("line ").append(notes.length()).append(" é\n");
+		}
+		for (int i = 0; i < records; i++) {
+			final PwsRecord rec = file.newRecord();
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.GROUP, "group " + i % 7));
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.TITLE, "title " + i));
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.USERNAME, "user " + i));
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.PASSWORD, "password " + i));
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.NOTES, notes.substring(0, notesLength - i % 10)));
+			rec.setField(new PwsTimeField(PwsFieldTypeV3.CREATION_TIME, new Date(1577836800000L + i * 1000L)));
+			file.add(rec);
+		}
+		file.setStorage(new PwsFileStorage(path));
+		file.save();
+		return path;
+	}
+
+	private static PwsFileV3 loadSequentially(final String path) throws Exception {
+		final PwsFileV3 file = new PwsFileV3(new PwsFileStorage(path), PASSPHRASE);
+		file.readAllSequentially();
+		file.close();
+		return file;
+	}
+
+	private static void assertSameRecords(final PwsFile expected, final PwsFile actual) {
+		assertEquals(expected.getRecordCount(), actual.getRecordCount());
+		for (int i = 0; i < expected.getRecordCount(); i++) {
+			assertSameRecord(expected.getRecord(i), actual.getRecord(i));
+		}
+	}
+
+	private static void assumeParallel() {
+		assumeTrue("Files are only read in parallel with more than one core",
+				ForkJoinPool.getCommonPoolParallelism() > 1);
+	}
+
+	@Test
+	public void parallelLoadMatchesSequential() throws Exception {
+		assumeParallel();
+		final String path = newFile("records.psafe3", 2000, 300);
+		assertTrue(new File(path).length() > 256 * 1024);
+		assertSameRecords(loadSequentially(path), PwsFileFactory.loadFile(path, new StringBuilder(PASSPHRASE)));
+	}
+
+	@Test
+	public void lazyLoadMatchesSequential() throws Exception {
+		final String path = newFile("records.psafe3", 500, 300);
+		assertSameRecords(loadSequentially(path), PwsFileFactory.loadFileLazily(path,
+				new StringBuilder(PASSPHRASE)));
+	}
+
+	/**
+	 * Flips a bit of a file and asserts that loading it in parallel fails the
+	 * HMAC check.
+	 */
+	private void assertTamperedFails(final String path, final long position) throws Exception {
+		final byte[] bytes = Files.readAllBytes(new File(path).toPath());
+		bytes[(int) position] ^= 1;
+		final File tampered = new File(folder.getRoot(), "tampered.psafe3");
+		Files.write(tampered.toPath(), bytes);
+		try {
+			PwsFileFactory.loadFile(tampered.getPath(), new StringBuilder(PASSPHRASE));
+			fail("Tampered file loaded");
+		} catch (final IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("HMAC"));
+		}
+	}
+
+	@Test
+	public void tamperedRecordFailsHmacInParallel() throws Exception {
+		assumeParallel();
+		// A single long note, so the middle of the file is inside it
+		final String path = newFile("notes.psafe3", 1, 400 * 1024);
+		assertTamperedFails(path, new File(path).length() / 2);
+	}
+
+	@Test
+	public void tamperedHmacFailsInParallel() throws Exception {
+		assumeParallel();
+		final String path = newFile("records.psafe3", 2000, 300);
+		assertTamperedFails(path, new File(path).length() - 1);
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2008-2014 David Muller <roxon@users.sourceforge.net>.
+ * All rights reserved. Use of the code is allowed under the
+ * Artistic License 2.0 terms, as specified in the LICENSE file
+ * distributed with this code, or available from
+ * http://www.opensource.org/licenses/artistic-license-2.0.php
+ */
+package org.pwsafe.lib.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Reading the items of version 3 records, which are decrypted in place from
+ * the first block, whole blocks and a partial last block.
+ *
+ * @author nahrens
+ */
+public class PwsRecordV3Test {
+	private static final String PASSPHRASE = "secret";
+
+	/**
+	 * Lengths around the 11 bytes held by the first block and the 16 byte
+	 * blocks after it.
+	 */
+	private static final int[] LENGTHS = { 0, 1, 10, 11, 12, 26, 27, 28, 42, 43, 44, 1000, 65536 };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static String value(final int length) {
+		final StringBuilder value = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			value.append((char) ('a' + i % 26));
+		}
+		return value.toString();
+	}
+
+	@Test
+	public void itemLengths() throws Exception {
+		final String path = new File(folder.getRoot(), "items.psafe3").getPath();
+		final PwsFile file = PwsFileFactory.newFile();
+		file.setPassphrase(new StringBuilder(PASSPHRASE));
+		for (final int length : LENGTHS) {
+			final PwsRecord rec = file.newRecord();
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.TITLE, "length " + length));
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.NOTES, value(length)));
+			file.add(rec);
+		}
+		file.setStorage(new PwsFileStorage(path));
+		file.save();
+
+		final PwsFileV3 loaded = new PwsFileV3(new PwsFileStorage(path), PASSPHRASE);
+		loaded.readAllSequentially();
+		loaded.close();
+		for (final int length : LENGTHS) {
+			final PwsRecord rec = loaded.getRecord(null, "length " + length);
+			assertEquals(value(length), rec.getField(PwsFieldTypeV3.NOTES).getValue());
+		}
+	}
+}
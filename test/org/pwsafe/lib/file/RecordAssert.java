@@ -0,0 +1,62 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2008-2014 David Muller <roxon@users.sourceforge.net>.
+ * All rights reserved. Use of the code is allowed under the
+ * Artistic License 2.0 terms, as specified in the LICENSE file
+ * distributed with this code, or available from
+ * http://www.opensource.org/licenses/artistic-license-2.0.php
+ */
+package org.pwsafe.lib.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Assertions comparing records field by field.
+ *
+ * @author nahrens
+ */
+final class RecordAssert {
+
+	private RecordAssert() {
+	}
+
+	/**
+	 * Asserts that two records have the same class, flags and fields, with
+	 * equal values (byte array values compared by content).
+	 */
+	static void assertSameRecord(final PwsRecord expected, final PwsRecord actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.isLoaded(), actual.isLoaded());
+		assertEquals(expected.isModified(), actual.isModified());
+		assertEquals(expected.ignoreFieldTypes, actual.ignoreFieldTypes);
+		final List<Integer> types = fieldTypes(expected);
+		assertEquals(types, fieldTypes(actual));
+		for (final Integer type : types) {
+			assertSameField(expected.getField(type), actual.getField(type));
+		}
+	}
+
+	static void assertSameField(final PwsField expected, final PwsField actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.getType(), actual.getType());
+		if (expected.getValue() instanceof byte[]) {
+			assertArrayEquals((byte[]) expected.getValue(), (byte[]) actual.getValue());
+		} else {
+			assertEquals(expected.getValue(), actual.getValue());
+		}
+	}
+
+	private static List<Integer> fieldTypes(final PwsRecord rec) {
+		final List<Integer> types = new ArrayList<Integer>();
+		for (final Iterator<Integer> it = rec.getFields(); it.hasNext();) {
+			types.add(it.next());
+		}
+		return types;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2008-2014 David Muller <roxon@users.sourceforge.net>.
+ * All rights reserved. Use of the code is allowed under the
+ * Artistic License 2.0 terms, as specified in the LICENSE file
+ * distributed with this code, or available from
+ * http://www.opensource.org/licenses/artistic-license-2.0.php
+ */
+package org.pwsafe.lib.file;
+
+import static org.pwsafe.lib.file.RecordAssert.assertSameRecord;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.pwsafe.lib.UUID;
+
+/**
+ * Round trips of records through {@link RecordCodec}, for every kind of
+ * field.
+ *
+ * @author nahrens
+ */
+public class RecordCodecTest {
+
+	/**
+	 * A field of a class the codec does not know, so it is serialized.
+	 */
+	static class SerializedField extends PwsField {
+		private static final long serialVersionUID = 1L;
+
+		SerializedField(final int type, final Serializable value) {
+			super(type, value);
+		}
+
+		@Override
+		public byte[] getBytes() {
+			return getValue() == null ? new byte[0] : getValue().toString().getBytes();
+		}
+
+		public int compareTo(final Object other) {
+			return 0;
+		}
+	}
+
+	private static Map<Integer, PwsField> fields(final PwsField... fields) {
+		final Map<Integer, PwsField> map = new TreeMap<Integer, PwsField>();
+		for (final PwsField field : fields) {
+			map.put(Integer.valueOf(field.getType()), field);
+		}
+		return map;
+	}
+
+	private static void assertRoundTrip(final PwsRecord rec) throws IOException {
+		assertSameRecord(rec, RecordCodec.decode(RecordCodec.encode(rec)));
+	}
+
+	@Test
+	public void everyKindOfField() throws IOException {
+		assertRoundTrip(new PwsRecordV3(fields(new PwsStringField(1, "string"),
+				new PwsStringUnicodeField(2, "unicode é中🔑"),
+				new PwsIntegerField(3, new byte[] { 1, 2, 3, 4 }), new PwsVersionField(4, new byte[] { 3, 1 }),
+				new PwsTimeField(5, new Date(1577836800123L)), new PwsUUIDField(6, new UUID()),
+				new PwsUnknownField(7, new byte[] { 0, -1, 127, -128 }), new SerializedField(8, "serialized")),
+				true, false, false));
+	}
+
+	@Test
+	public void nullValues() throws IOException {
+		assertRoundTrip(new PwsRecordV3(fields(new PwsStringField(1, (String) null),
+				new PwsStringUnicodeField(2, (String) null), new PwsTimeField(5, (Date) null),
+				new PwsUUIDField(6, (UUID) null), new PwsUnknownField(7, null), new SerializedField(8, null)), true,
+				false, false));
+	}
+
+	@Test
+	public void emptyValues() throws IOException {
+		assertRoundTrip(new PwsRecordV3(fields(new PwsStringField(1, ""), new PwsStringUnicodeField(2, ""),
+				new PwsUnknownField(7, new byte[0])), true, false, false));
+	}
+
+	@Test
+	public void flagsAndVersions() throws IOException {
+		assertRoundTrip(new PwsRecordV1(fields(new PwsStringField(3, "v1")), false, true, true));
+		assertRoundTrip(new PwsRecordV2(fields(new PwsStringField(3, "v2")), true, true, false));
+		assertRoundTrip(new PwsRecordV3(fields(), false, false, true));
+	}
+
+	@Test
+	public void largeValue() throws IOException {
+		final char[] notes = new char[100000];
+		Arrays.fill(notes, 'n');
+		assertRoundTrip(new PwsRecordV3(fields(new PwsStringUnicodeField(5, new String(notes))), true, false,
+				false));
+	}
+
+	@Test(expected = IOException.class)
+	public void truncatedBytes() throws IOException {
+		final byte[] bytes = RecordCodec.encode(new PwsRecordV3(fields(new PwsStringField(1, "string")), true,
+				false, false));
+		RecordCodec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+	}
+}